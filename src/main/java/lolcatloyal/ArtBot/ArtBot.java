@@ -2,11 +2,20 @@ package lolcatloyal.ArtBot;
 
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
-import net.dv8tion.jda.api.requests.GatewayIntent;
-import net.dv8tion.jda.api.utils.Compression;
-import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import javax.security.auth.login.LoginException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 /**
  * Discord bot for storing the creator's favorite Twitter art links
@@ -14,31 +23,51 @@ import javax.security.auth.login.LoginException;
  * bot which will be stored under the artist's handle.
  */
 public class ArtBot {
+    private static final Logger LOG = LoggerFactory.getLogger(ArtBot.class);
+
     public static JDABuilder builder;
 
     public static final String PREFIX = "-"; //Command Prefix
-    //TODO: channel currently set for Freshie Furs #bot-requests
-    public static final String CHANNEL_ID = "799486667253350441"; //ID for TextChannel
     public static final String ADD_COMMAND = PREFIX + "add";
     public static final String SHOW_ARTISTS_COMMAND = PREFIX + "showArtists";
+    public static final String STORAGE_MODE_PROPERTY = "artbot.storage"; //System property naming a StorageMode
+    public static final String DATA_DIR_PROPERTY = "artbot.dataDir"; //System property for where the collection is saved
+    public static final String DEFAULT_DATA_DIR = "data";
+    public static final String PARTITIONS_DIR = "partitions"; //Directory under the data directory holding a collection per guild or channel
+    public static final String PARTITION_BY_PROPERTY = "artbot.partitionBy"; //System property, "guild" or "channel" for a collection per guild or per channel
+    public static final String DISPLAY_REFRESH_PROPERTY = "artbot.displayRefreshMillis"; //System property for least time between display refreshes
+    public static final String METRICS_PORT_PROPERTY = "artbot.metricsPort"; //System property for the local metrics port, 0 to not serve metrics
+    public static final int DEFAULT_METRICS_PORT = 9404;
+    public static final String PROFILE_PROPERTY = "artbot.profile"; //System property naming a RuntimeProfile
+    public static final String SHARDS_PROPERTY = "artbot.shards"; //System property for the number of shards, -1 for Discord's recommendation. Unset for one connection
     //TODO: add constants for navigation reaction emotes
 
 
 
-    public static void main(String[] args) throws LoginException {
+    private static final List<ArtListener> listeners = new CopyOnWriteArrayList<>(); //one per shard
 
-        builder = JDABuilder.createDefault(args[0]);
+    public static void main(String[] args) throws LoginException, IOException {
+        Metrics metrics = openMetrics();
+        CollectionStore collections = openCollections(metrics);
+        listenerGauge(metrics, "artbot_display_sessions", ArtListener::getDisplaySessionCount);
+        listenerGauge(metrics, "artbot_replies_queued", listener -> listener.getReplies().getQueuedCount());
+        listenerGauge(metrics, "artbot_replies_sent", listener -> listener.getReplies().getSentCount());
+        listenerGauge(metrics, "artbot_replies_saved", listener -> listener.getReplies().getSavedCount());
 
-        builder.disableCache(CacheFlag.MEMBER_OVERRIDES, CacheFlag.VOICE_STATE);
+        RuntimeProfile profile = RuntimeProfile.fromName(System.getProperty(PROFILE_PROPERTY));
+        String shards = System.getProperty(SHARDS_PROPERTY);
+        if (shards != null){
+            startSharded(args[0], profile, Integer.parseInt(shards), collections, metrics);
+            return;
+        }
 
-        builder.setBulkDeleteSplittingEnabled(false);
+        builder = profile.createBuilder(args[0], ArtListener.INTENTS);
 
-        builder.setCompression(Compression.NONE);
+        builder.setBulkDeleteSplittingEnabled(false);
 
         builder.setActivity(Activity.playing("-help"));
-        builder.enableIntents(GatewayIntent.GUILD_MEMBERS);
 
-        registerListeners();
+        registerListeners(collections, metrics);
 
         builder.build();
     }
@@ -46,8 +75,117 @@ public class ArtBot {
     /**
      * Adds any desired listeners to the bot.
      */
-    private static void registerListeners() {
-        builder.addEventListeners(new ArtListener());
+    private static void registerListeners(CollectionStore collections, Metrics metrics){
+        ArtListener listener = new ArtListener(collections, metrics);
+        listeners.add(listener);
+        builder.addEventListeners(listener);
+    }
+
+    /**
+     * Starts the bot as several shards, each handling its share of guilds
+     * on its own connection with its own ArtListener. The listeners share
+     * one CollectionStore, so a guild's collection is only ever open once.
+     *
+     * @param token Bot token.
+     * @param profile Gateway and cache settings to connect with.
+     * @param shardsTotal Number of shards, or -1 for Discord's recommendation.
+     * @param collections Collections shared by the shards.
+     * @param metrics Metrics shared by the shards.
+     * @throws LoginException if the token is invalid.
+     */
+    private static void startSharded(String token, RuntimeProfile profile, int shardsTotal,
+                                     CollectionStore collections, Metrics metrics) throws LoginException {
+        Map<Integer, ArtListener> shardListeners = new ConcurrentHashMap<>();
+
+        DefaultShardManagerBuilder shardBuilder = profile.createShardBuilder(token, ArtListener.INTENTS);
+        shardBuilder.setShardsTotal(shardsTotal);
+        shardBuilder.setBulkDeleteSplittingEnabled(false);
+        shardBuilder.setActivity(Activity.playing("-help"));
+
+        //Called again when a shard restarts --> keep its listener
+        shardBuilder.addEventListenerProvider(shardId -> shardListeners.computeIfAbsent(shardId, id -> {
+            ArtListener listener = new ArtListener(collections, metrics);
+            listeners.add(listener);
+            return listener;
+        }));
+
+        shardBuilder.build();
+    }
+
+    /**
+     * Creates the store of every guild's or channel's collection. Collections
+     * are closed once idle and on shutdown.
+     *
+     * @param metrics Metrics to add collection gauges to.
+     * @return The new CollectionStore.
+     */
+    private static CollectionStore openCollections(Metrics metrics){
+        CollectionStore collections = new CollectionStore(ArtBot::openCollection,
+                CollectionStore.DEFAULT_IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES,
+                Long.getLong(DISPLAY_REFRESH_PROPERTY, ArtListener.DEFAULT_DISPLAY_REFRESH_MILLIS), metrics);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            int inUse = collections.closeAll();
+            if (inUse > 0){
+                LOG.warn("{} collections were still in use and weren't closed.", inUse);
+            }
+        }));
+        return collections;
+    }
+
+    /**
+     * Creates the bot's Metrics, registering them over JMX and serving
+     * them at http://localhost:[artbot.metricsPort]/metrics.
+     *
+     * @return The new Metrics.
+     * @throws IOException if the metrics port can't be bound.
+     */
+    private static Metrics openMetrics() throws IOException {
+        Metrics metrics = new Metrics();
+
+        try {
+            metrics.registerMBean(Metrics.DEFAULT_OBJECT_NAME);
+        }
+        catch (JMException e){ //metrics still served over HTTP
+            LOG.warn("Couldn't register metrics over JMX", e);
+        }
+
+        int port = Integer.getInteger(METRICS_PORT_PROPERTY, DEFAULT_METRICS_PORT);
+        if (port != 0){
+            MetricsServer server = new MetricsServer(metrics, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        }
+        return metrics;
+    }
+
+    /**
+     * Adds a gauge summing a value over every shard's listener.
+     */
+    private static void listenerGauge(Metrics metrics, String name, ToLongFunction<ArtListener> value){
+        metrics.gauge(name, () -> {
+            long sum = 0;
+            for (ArtListener listener : listeners){
+                sum += value.applyAsLong(listener);
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Loads the collection of art of a guild or channel saved in the data
+     * directory, creating it if needed. The collection is saved on every
+     * change and closed by its ArtListener once idle or on shutdown.
+     *
+     * @param partitionId Id of the guild or channel.
+     * @return The loaded collection.
+     * @throws IOException if the saved collection can't be read.
+     */
+    private static DurableMultiMap openCollection(long partitionId) throws IOException {
+        StorageMode storageMode = StorageMode.fromName(System.getProperty(STORAGE_MODE_PROPERTY));
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY, DEFAULT_DATA_DIR);
+
+        return DurableMultiMap.open(Paths.get(dataDir, PARTITIONS_DIR, Long.toString(partitionId)),
+                storageMode.createCollection(), DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
     }
 
 }
@@ -1,18 +1,43 @@
 package lolcatloyal.ArtBot;
 
+import lolcatloyal.ArtBot.CollectionStore.Partition;
+import net.dv8tion.jda.api.entities.GuildChannel;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.MessageChannel;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.requests.RestAction;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Listener for handling front-end capabilities of
@@ -25,9 +50,38 @@ import java.util.regex.Pattern;
  * Responsible for listening and responding to
  * user text and button commands.
  *
+ * Each guild has its own collection, or each channel if
+ * artbot.partitionBy is "channel". Collections are loaded the first time
+ * they are used and closed after 30 minutes without use, so only active
+ * guilds take up memory.
+ *
+ * Each display message has its own session, looked up by the
+ * message's id, so any number of displays can be open at once.
+ * Sessions idle for 15 minutes, or the oldest ones past 500
+ * open displays, are evicted and their buttons stop working.
+ * Changes to the collection are shown by editing open displays in
+ * place, at most once per artbot.displayRefreshMillis (2 s by default).
+ *
+ * Commands and button clicks are handled off the JDA event thread,
+ * one at a time per channel and in the order they arrived, while
+ * channels are handled in parallel. A channel with 32 waiting is
+ * told to try again later. Clicks are acknowledged with a deferred
+ * edit as soon as they arrive, and the display is updated after.
+ *
+ * Text responses sent within 250 ms of each other in a channel are
+ * merged into one message to save API calls.
+ *
+ * Handling times of -add, -show and each button, counts of links added,
+ * already stored, invalid and removed, and the size of the collection
+ * are kept in a Metrics.
+ *
  * Text Commands:
- * -add [Twitter Link]   -- add a Twitter link to the bot's collection
+ * -add [Twitter Links]  -- add every Twitter link in the message to the bot's collection
  * -showCollection       -- show the bot's current collection of Artists and their handles with nav buttons
+ * -find [handle start]  -- list Artists whose handles start with the given text
+ * -import               -- add every link in an attached text, CSV or JSON file
+ * -backfill             -- add every link posted in the channel's history, resuming where the last scan stopped
+ * -stopBackfill         -- stop the running history scan
  * -clearCollection      -- empty the collection of all entries
  * -help                 -- show commands
  *
@@ -40,25 +94,46 @@ import java.util.regex.Pattern;
  */
 @SuppressWarnings("ALL")
 public class ArtListener extends ListenerAdapter {
-    private final MultiValueMap<String, String> m; //collection of art -- Artist links are keys, Art links are values
+    private static final Logger LOG = LoggerFactory.getLogger(ArtListener.class);
+
+    //Gateway intents needed: messages in guilds and DMs. Button clicks need none, guilds are always sent
+    public static final Set<GatewayIntent> INTENTS = Collections.unmodifiableSet(
+            EnumSet.of(GatewayIntent.GUILD_MESSAGES, GatewayIntent.DIRECT_MESSAGES));
+    private final CollectionStore partitions; //collections by guild or channel id, shared with other shards' listeners
+    private final boolean partitionByChannel;
     //private final EmbedBuilder eb;
-    private String displayedArtist; //String link to currently displayed Artist
-    private String displayedArt; //String link to currently displayed Art
+    private final SessionRegistry<DisplaySession> sessions; //open displays by message id
+    private static final int MAX_DISPLAY_SESSIONS = 500;
+    private static final long DISPLAY_IDLE_TIMEOUT_MINUTES = 15;
     private static final String removeArtPrompt = "Remove Art? \n";
     private static final String removeArtistPrompt = "Remove Artist? \n";
     private static final String removeFailureResponse ="Sorry, I couldn't remove that.";
     private static final String removeSuccessResponse = "Removed!";
-    private final ArrayIterator<String> links; //Iterator for currently displayed links
-    private DisplayModeEnum displayMode;
-    private Message displayMessage; //message displaying collection
-
-    //Regex Patterns for Input Analysis -- THREAD SAFE
-    private static final Pattern ADD_COMMAND_PATTERN = Pattern.compile("^" + ArtBot.PREFIX + "add \\s*\\w++");
-    private static final Pattern SHOW_COMMAND_PATTERN = Pattern.compile("^" + ArtBot.PREFIX + "show$");
-    private static final Pattern CLEAR_COMMAND_PATTERN = Pattern.compile("^" + ArtBot.PREFIX + "clear$");
-    private static final Pattern HELP_COMMAND_PATTERN = Pattern.compile("^" + ArtBot.PREFIX + "help$");
-    private static final Pattern QUIT_COMMAND_PATTERN = Pattern.compile("^" + ArtBot.PREFIX + "quit$");
-    //TODO: remove patterns for simple commands (EVERYTHING OTHER THAN ADD COMMAND), can just use String.equals()
+    private static final int FIND_RESULT_LIMIT = 10; //most Artists listed by -find
+    private static final String invalidLinkResponse = "Invalid Link. Are you sure you're using a Twitter *post* link? " +
+            "Profile links cannot be added directly.";
+    private static final String loadFailureResponse = "Sorry, I couldn't load this server's collection right now.";
+    private static final String expiredDisplayResponse = "This display has expired. Use " + ArtBot.PREFIX +
+            "show to open a new one.";
+
+    private final CommandDispatcher<CommandContext> commands; //text commands, see registerCommands()
+    private final MessageCoalescer<MessageChannel> replies; //merges text responses sent close together
+    private static final long REPLY_WINDOW_MILLIS = 250;
+    public static final long DEFAULT_DISPLAY_REFRESH_MILLIS = 2000;
+    private final KeyedSerialExecutor channelTasks; //runs handlers off the event thread, in order per channel
+    private static final int MAX_QUEUED_PER_CHANNEL = 32;
+    private final ButtonLatencies buttonLatencies; //ack vs completion latency of clicks by button id
+    private final Metrics metrics;
+    private final LatencyHistogram addLatency; //time to handle -add
+    private final LatencyHistogram openDisplayLatency; //time to snapshot the collection and send a display
+    private final Map<String, LatencyHistogram> buttonHandlerLatencies; //time to handle a click by button id, read-only
+    private final LongAdder linksAdded;
+    private final LongAdder linksDuplicate;
+    private final LongAdder linksInvalid;
+    private final LongAdder removals; //Artists or Art removed
+    private static final String busyResponse = "I'm still working through earlier commands here. Try again in a moment!";
+    private static final long BACKFILL_PAGE_DELAY_MILLIS = 1000;
+    private static final String BACKFILL_CHECKPOINT_FILE = "backfill-%d.checkpoint"; //by channel id
 
     //Nav Buttons
     private static final String PREV_BUTTON_ID = "Previous";
@@ -72,6 +147,12 @@ public class ArtListener extends ListenerAdapter {
                     Button.primary(EXIT_BUTTON_ID, EXIT_BUTTON_ID),
                     Button.primary(ENTER_BUTTON_ID, ENTER_BUTTON_ID),
                     Button.primary(REMOVE_BUTTON_ID, REMOVE_BUTTON_ID));
+    private static final List<Button> artNavActionRow = Arrays.asList(  //Action row while showing art -- can't enter
+                    Button.primary(PREV_BUTTON_ID, PREV_BUTTON_ID),
+                    Button.primary(NEXT_BUTTON_ID, NEXT_BUTTON_ID),
+                    Button.primary(EXIT_BUTTON_ID, EXIT_BUTTON_ID),
+                    Button.primary(ENTER_BUTTON_ID, ENTER_BUTTON_ID).asDisabled(),
+                    Button.primary(REMOVE_BUTTON_ID, REMOVE_BUTTON_ID));
     private static final List<Button> disabledNavActionRow = Arrays.asList(
                     Button.primary(PREV_BUTTON_ID, PREV_BUTTON_ID).asDisabled(),
                     Button.primary(NEXT_BUTTON_ID, NEXT_BUTTON_ID).asDisabled(),
@@ -101,16 +182,157 @@ public class ArtListener extends ListenerAdapter {
         DisplayPrompt
     }
 
+    /**
+     * A text command's message and the partition of its channel.
+     */
+    private static final class CommandContext {
+        private final Message message;
+        private final Partition partition;
+
+        private CommandContext(Message message, Partition partition){
+            this.message = message;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * State of a single display message, so several users can
+     * browse the collection at once.
+     */
+    private static class DisplaySession {
+        private final long partitionId; //partition of the displayed collection
+        private final MessageChannel channel; //channel of the display message
+        private long messageId; //set once the display message is sent
+        private MultiMapSnapshot<String, String> view; //snapshot of the collection as of the last refresh
+        private final Cursor<String> links; //cycles through the displayed links of view
+        private DisplayModeEnum displayMode;
+        private String displayedArtist; //String link to currently displayed Artist
+        private String displayedArt; //String link to currently displayed Art
+
+        private DisplaySession(long partitionId, MessageChannel channel, MultiMapSnapshot<String, String> view){
+            this.partitionId = partitionId;
+            this.channel = channel;
+            this.view = view;
+            links = new Cursor<>(view.getKeys());
+            displayMode = DisplayModeEnum.DisplayArtists;
+            displayedArtist = links.next();
+        }
+    }
+
     /**
      * Creates a new ArtListener with
-     * an empty collection.
+     * empty collections kept in memory.
      */
     public ArtListener(){
-        m = new MultiValueMap<>();
+        this(new Metrics());
+    }
+
+    /**
+     * Creates a new ArtListener with empty collections
+     * kept in memory, recording the collections' gauges
+     * and its own metrics in the same Metrics.
+     */
+    private ArtListener(Metrics metrics){
+        this(new CollectionStore(id -> new MultiValueMap<>(), CollectionStore.DEFAULT_IDLE_TIMEOUT_MINUTES,
+                TimeUnit.MINUTES, DEFAULT_DISPLAY_REFRESH_MILLIS, metrics), metrics);
+    }
+
+    /**
+     * Creates a new ArtListener backed by the given
+     * collections, recording its metrics in the
+     * given Metrics. Listeners of several shards can
+     * share the same collections and Metrics.
+     *
+     * @param collections Collections of art by guild or channel id.
+     * @param metrics Metrics to record handling times and counts in.
+     */
+    public ArtListener(CollectionStore collections, Metrics metrics){
+        partitions = collections;
+        partitions.addChangeListener(this::refreshDisplays);
+        partitionByChannel = "channel".equalsIgnoreCase(System.getProperty(ArtBot.PARTITION_BY_PROPERTY));
         //eb = new EmbedBuilder();
-        links = new ArrayIterator<>(new String[0]);
-        displayMode = DisplayModeEnum.DisplayOff;
-        displayMessage = null;
+        sessions = new SessionRegistry<>(MAX_DISPLAY_SESSIONS, DISPLAY_IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        commands = new CommandDispatcher<>(ArtBot.PREFIX);
+        registerCommands();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ArtListener-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replies = new MessageCoalescer<>(MessageChannel::getIdLong, (channel, text) -> channel.sendMessage(text).queue(),
+                REPLY_WINDOW_MILLIS, TimeUnit.MILLISECONDS, scheduler);
+        this.metrics = metrics;
+        buttonLatencies = new ButtonLatencies(metrics);
+        addLatency = metrics.histogram("artbot_command_add_seconds");
+        openDisplayLatency = metrics.histogram("artbot_command_show_seconds");
+        buttonHandlerLatencies = new HashMap<>();
+        for (String buttonId : Arrays.asList(PREV_BUTTON_ID, NEXT_BUTTON_ID, EXIT_BUTTON_ID, ENTER_BUTTON_ID,
+                REMOVE_BUTTON_ID, CANCEL_BUTTON_ID, CONFIRM_BUTTON_ID)){
+            buttonHandlerLatencies.put(buttonId,
+                    metrics.histogram("artbot_button_" + buttonId.toLowerCase(Locale.ROOT) + "_handler_seconds"));
+        }
+        linksAdded = metrics.counter("artbot_links_added_total");
+        linksDuplicate = metrics.counter("artbot_links_duplicate_total");
+        linksInvalid = metrics.counter("artbot_links_invalid_total");
+        removals = metrics.counter("artbot_removals_total");
+        channelTasks = new KeyedSerialExecutor(Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread thread = new Thread(r, "ArtListener-handler");
+                    thread.setDaemon(true);
+                    return thread;
+                }), MAX_QUEUED_PER_CHANNEL);
+    }
+
+    /**
+     * Gets the MessageCoalescer merging this listener's text
+     * responses, which counts the messages it saved.
+     *
+     * @return The listener's reply coalescer.
+     */
+    public MessageCoalescer<MessageChannel> getReplies(){
+        return replies;
+    }
+
+    /**
+     * Gets the number of displays open.
+     *
+     * @return The number of display sessions.
+     */
+    public int getDisplaySessionCount(){
+        return sessions.size();
+    }
+
+    /**
+     * Gets the latencies of button clicks on displays.
+     *
+     * @return Acknowledgement and completion latencies by button id.
+     */
+    public ButtonLatencies getButtonLatencies(){
+        return buttonLatencies;
+    }
+
+    /**
+     * Gets the metrics this ArtListener records.
+     *
+     * @return The Metrics given at creation.
+     */
+    public Metrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Registers the text commands specified at the top of this class.
+     */
+    private void registerCommands(){
+        commands.registerWithArgument("add", (c, argument) -> onReceiveAddCommand(c.partition, c.message.getChannel(), argument))
+                .registerWithArgument("find", (c, argument) -> onReceiveFindCommand(c.partition, c.message.getChannel(), argument))
+                .register("import", (c, argument) -> onReceiveImportCommand(c.partition, c.message))
+                .register("backfill", (c, argument) -> onReceiveBackfillCommand(c.partition, c.message.getChannel()))
+                .register("stopBackfill", (c, argument) -> onReceiveStopBackfillCommand(c.partition, c.message.getChannel()))
+                .register("show", (c, argument) -> onReceiveShowCommand(c.partition, c.message.getChannel()))
+                .register("clear", (c, argument) -> onReceiveClearCommand(c.partition, c.message.getChannel()))
+                .register("help", (c, argument) -> onReceiveHelpCommand(c.message.getChannel()));
     }
 
     //--- Event Listeners --------------------------------------------------------------
@@ -128,42 +350,88 @@ public class ArtListener extends ListenerAdapter {
      * @param event A ButtonInteractionEvent.
      */
     public void onButtonInteraction(@Nonnull ButtonInteractionEvent event) {
-        if (displayMessage != null) { //Display is on
-            if (displayMessage.getId().equals(event.getMessageId())) { //Click on our DisplayMessage
-                MessageChannel channel = event.getChannel();
+        long received = System.nanoTime();
+        String buttonId = event.getComponentId();
+
+        if (!isDisplayButton(buttonId)){
+            return; //Not ours
+        }
+
+        //Acknowledge right away so slow updates can't miss the interaction deadline
+        event.deferEdit().queue(ack -> buttonLatencies.recordAck(buttonId, System.nanoTime() - received));
+
+        if (!channelTasks.submit(event.getMessageChannel().getIdLong(), () -> handleButtonInteraction(event, received))){
+            event.getHook().sendMessage(busyResponse).setEphemeral(true).queue();
+        }
+    }
+
+    /**
+     * Handles an acknowledged button click on a handler thread, then
+     * records how long the click took to complete once its update lands.
+     *
+     * @param event A deferred ButtonInteractionEvent.
+     * @param received When the click was received, from System.nanoTime().
+     */
+    private void handleButtonInteraction(ButtonInteractionEvent event, long received){
+        DisplaySession session = sessions.get(event.getMessageIdLong());
+
+        if (session == null) { //Expired
+            event.getHook().sendMessage(expiredDisplayResponse).setEphemeral(true).queue();
+            return;
+        }
+
+        Partition p = acquirePartition(session.partitionId, event.getMessageChannel());
+        if (p == null){
+            return;
+        }
+
+        long start = System.nanoTime();
+        RestAction<?> update;
+        try {
+            synchronized (session) { //refreshes run on another thread
                 switch (event.getComponentId()) {
                     case PREV_BUTTON_ID:
-                        onClickPrev(event);
+                        update = onClickPrev(event, session);
                         break;
                     case NEXT_BUTTON_ID:
-                        onClickNext(event);
+                        update = onClickNext(event, session);
                         break;
                     case EXIT_BUTTON_ID:
-                        onClickExit(event);
+                        update = onClickExit(event, session);
                         break;
                     case ENTER_BUTTON_ID:
-                        onClickEnter(event);
+                        update = onClickEnter(event, session);
                         break;
                     case REMOVE_BUTTON_ID:
-                        onClickRemove(event);
+                        update = onClickRemove(event, session);
                         break;
                     case CANCEL_BUTTON_ID:
-                        onClickCancelRemove(event);
+                        update = onClickCancelRemove(event, session);
                         break;
                     case CONFIRM_BUTTON_ID:
-                        onClickConfirmRemove(event);
+                        update = onClickConfirmRemove(p, event, session);
                         break;
+                    default:
+                        return;
                 }
             }
         }
+        finally {
+            partitions.release(p.getId());
+        }
+
+        String buttonId = event.getComponentId();
+        buttonHandlerLatencies.get(buttonId).record(System.nanoTime() - start);
+        update.queue(done -> buttonLatencies.recordCompletion(buttonId, System.nanoTime() - received));
     }
 
     /**
-     * Reacts to user messages in the bot's message channel according
-     * to the text Bot commands specified at the top of this class:
+     * Reacts to user messages according to the text Bot commands
+     * specified at the top of this class, using the collection of
+     * the message's guild or channel:
      *
      * Text Commands:
-     * -add [Twitter Link]   -- add a Twitter link to the bot's collection
+     * -add [Twitter Links]  -- add every Twitter link in the message to the bot's collection
      * -showCollection       -- show the bot's current collection of Artists and their handles with nav buttons
      * -clearCollection      -- empty the collection of all entries
      * -help                 -- show commands
@@ -173,103 +441,320 @@ public class ArtListener extends ListenerAdapter {
     public void onMessageReceived(@Nonnull MessageReceivedEvent event){
         MessageChannel channel = event.getChannel();
 
-        //check if non-bot message and in proper channel
-        if (!event.getAuthor().isBot() && channel.getId().equals(ArtBot.CHANNEL_ID)){
-            String messageRaw = event.getMessage().getContentRaw();
-
-            //Matchers for Command Parsing
-            Matcher addMatcher = ADD_COMMAND_PATTERN.matcher(messageRaw);
-            Matcher showMatcher = SHOW_COMMAND_PATTERN.matcher(messageRaw);
-            Matcher clearMatcher = CLEAR_COMMAND_PATTERN.matcher(messageRaw);
-            Matcher helpMatcher = HELP_COMMAND_PATTERN.matcher(messageRaw);
-            Matcher quitMatcher = QUIT_COMMAND_PATTERN.matcher(messageRaw);
+        //check if non-bot message
+        if (!event.getAuthor().isBot()){
+            Message message = event.getMessage();
+            String messageRaw = message.getContentRaw();
 
-            //-add [Twitter Link]
-            if (addMatcher.find()) {
-                onReceiveAddCommand(channel, messageRaw);
-            }
-            //-showCollection
-            else if (showMatcher.find()){
-                onReceiveShowCommand(channel);
-            }
-            //-clearCollection
-            else if (clearMatcher.find()){
-                onReceiveClearCommand(channel);
-            }
-            //-help
-            else if (helpMatcher.find()){
-                onReceiveHelpCommand(channel);
+            //Leave chatter on the event thread, it costs nothing to turn away
+            if (messageRaw.startsWith(ArtBot.PREFIX)
+                    && !channelTasks.submit(channel.getIdLong(), () -> runCommand(messageRaw, message))){
+                replies.send(channel, busyResponse);
             }
         }
     }
 
+    /**
+     * Runs a text command against the collection of its channel's partition.
+     *
+     * @param messageRaw Raw content of the message.
+     * @param message The message that called the command.
+     */
+    private void runCommand(String messageRaw, Message message){
+        long partitionId = partitionIdOf(message.getChannel());
+        Partition p = acquirePartition(partitionId, message.getChannel());
+
+        if (p == null){
+            return;
+        }
+        try {
+            commands.dispatch(messageRaw, new CommandContext(message, p));
+        }
+        finally {
+            partitions.release(partitionId);
+        }
+    }
+
     //--- Text Commands --------------------------------------------------------------
     /**
-     * Attempts to add an art link given by a user's command and a matching artist link to the collection.
-     * Sends an appropriate response to the user detailing whether the attempt was successful or not.
+     * Attempts to add the art links given by a user's command and matching artist links to the collection.
+     * Sends one response to the user detailing whether the attempt was successful or not.
+     *
+     * @param p Partition of the channel.
+     * @param channel The MessageChannel to send a response in.
+     * @param argument The text following the command.
+     */
+    private void onReceiveAddCommand(Partition p, @NotNull MessageChannel channel, @NotNull String argument){
+        long start = System.nanoTime();
+        try {
+            addLinks(p, channel, argument);
+        }
+        finally {
+            addLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Adds the links given to -add in one batch, see onReceiveAddCommand().
+     * A single link gets the same replies as ever; several get one summary.
      *
+     * @param p Partition of the channel.
      * @param channel The MessageChannel to send a response in.
-     * @param messageRaw The raw String content of the MessageReceivedEvent that called this command.
+     * @param argument The text following the command.
      */
-    private void onReceiveAddCommand(@NotNull MessageChannel channel, @NotNull String messageRaw){
-        channel.sendMessage("I'll try to add that for you!").queue();
+    private void addLinks(Partition p, @NotNull MessageChannel channel, @NotNull String argument){
+        LinkImporter importer = new LinkImporter(p.getCollection(), LinkImporter.DEFAULT_BATCH_SIZE);
+        int found = importer.addLinks(argument); //Any Twitter, X or embed fixer Link --> canonical FXTwitter Link
+        importer.flush();
+        countLinks(importer);
 
-        String artLink = LinkUtil.trimLink(messageRaw.substring(5)); //remove command portion of message; trim to link
-        int linkType = LinkUtil.determineLinkType(artLink);
+        if (importer.getAdded() > 0){
+            //Show the new pieces in open displays
+            p.changed();
+        }
 
-        if (linkType == -1){ //Invalid link
-            channel.sendMessage("Invalid Link. Are you sure you're using a Twitter *post* link? " +
-                    "Profile links cannot be added directly.").queue();
+        String response;
+        if (found == 0 || (found == 1 && importer.getInvalid() == 1)){ //Invalid link
+            if (found == 0){
+                linksInvalid.increment();
+            }
+            replies.send(channel, invalidLinkResponse);
+            return;
+        }
+        else if (found == 1 && importer.getDuplicates() == 1){
+            //Send Failure Message
+            replies.send(channel, "Sorry - I couldn't do that. That piece was already stored.");
             return;
         }
-        else if (linkType == 0) { //Twitter Link --> turn into FXTwitter Link
-            artLink = LinkUtil.twitToFXLink(artLink);
+        else if (found == 1){
+            response = "Added!";
+        }
+        else {
+            response = "Added " + importer.getAdded() + " of " + found + " links! " + importer.getDuplicates() +
+                    " already stored, " + importer.getInvalid() + " invalid.";
         }
 
-        //Build Twitter Profile Link
-        String artistLink = LinkUtil.buildTwitProfileLink(artLink);
+        //Send Confirmation Message once the pieces are saved
+        p.getCollection().sync().whenComplete((saved, error) ->
+                replies.send(channel, (error == null) ? response : response + " I couldn't save that to disk."));
+    }
+
+    /**
+     * Imports every link in the file attached to a user's command, then sends
+     * one summary of how many were added, already stored or invalid.
+     *
+     * Once the download starts, the file is streamed and parsed by a
+     * LinkImporter in a task of the channel's serial queue, so the import
+     * runs in order with the channel's other commands.
+     *
+     * @param p Partition of the message's channel.
+     * @param message The message that called this command.
+     */
+    private void onReceiveImportCommand(Partition p, @NotNull Message message){
+        MessageChannel channel = message.getChannel();
+
+        if (message.getAttachments().isEmpty()){
+            replies.send(channel, "Attach a text, CSV or JSON file of links to import.");
+            return;
+        }
+        replies.send(channel, "Importing " + message.getAttachments().get(0).getFileName() + "...");
 
-        //Try to add to map
-        if (m.addValue(artistLink, artLink)) {
-            //Send Confirmation Message
-            channel.sendMessage("Added!").queue();
+        message.getAttachments().get(0).retrieveInputStream().whenComplete((in, downloadError) -> {
+            if (downloadError != null){
+                replies.send(channel, "Sorry, I couldn't download that file.");
+                return;
+            }
 
-            //Restart Display if Open Already
-            if (!displayMode.equals(DisplayModeEnum.DisplayOff)){
-                openDisplay(channel);
-                channel.sendMessage("Reloaded the display for you!").queue();
+            boolean queued;
+            try {
+                queued = channelTasks.submit(channel.getIdLong(), () -> {
+                    //The command's hold on the partition ended before the download --> hold it again
+                    Partition target = acquirePartition(p.getId(), channel);
+                    if (target == null){
+                        closeQuietly(in);
+                        return;
+                    }
+                    try {
+                        importLinks(target, channel, in);
+                    }
+                    finally {
+                        partitions.release(target.getId());
+                    }
+                });
+            }
+            catch (RejectedExecutionException e){ //shutting down
+                queued = false;
+            }
+            if (!queued){ //nothing will read the file
+                closeQuietly(in);
+                replies.send(channel, busyResponse);
             }
+        });
+    }
+
+    /**
+     * Imports every link in a downloaded file and sends a summary.
+     *
+     * @param p Partition to add links to.
+     * @param channel The MessageChannel to send the summary in.
+     * @param in The file's contents. Closed once read.
+     */
+    private void importLinks(Partition p, MessageChannel channel, InputStream in){
+        LinkImporter importer = new LinkImporter(p.getCollection(), LinkImporter.DEFAULT_BATCH_SIZE);
+        String failure = "";
+        try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            importer.importFrom(reader);
         }
-        else {
-            //Send Failure Message
-            channel.sendMessage("Sorry - I couldn't do that. That piece was already stored.").queue();
+        catch (IOException e){
+            failure = " The file stopped partway, so I may have missed some.";
+        }
+
+        countLinks(importer);
+        String summary = "Imported! " + importer.getAdded() + " added, " + importer.getDuplicates() +
+                " already stored, " + importer.getInvalid() + " invalid." + failure;
+        p.getCollection().sync().whenComplete((saved, error) ->
+                replies.send(channel, (error == null) ? summary : summary + " I couldn't save that to disk."));
+
+        if (importer.getAdded() > 0){
+            p.changed();
         }
     }
 
+    /**
+     * Scans the channel's history for post links and adds them, resuming from
+     * the last scan's checkpoint: back to the start of the history, then
+     * forward over messages posted since. Sends one summary when the scan ends.
+     *
+     * The scan runs on its own thread, parsing pages on a pool of workers and
+     * pausing between pages. Only one scan of a partition runs at a time.
+     *
+     * @param p Partition of the channel.
+     * @param channel The MessageChannel to scan.
+     */
+    private void onReceiveBackfillCommand(Partition p, @NotNull MessageChannel channel){
+        int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        Path checkpointFile = Paths.get(System.getProperty(ArtBot.DATA_DIR_PROPERTY, ArtBot.DEFAULT_DATA_DIR),
+                String.format(BACKFILL_CHECKPOINT_FILE, channel.getIdLong()));
+        HistoryBackfill scan = new HistoryBackfill(new HistoryBackfill.HistoryPager() {
+            @Override
+            public List<HistoryBackfill.HistoryMessage> pageBefore(long beforeId, int limit){
+                return toHistoryPage((beforeId == 0)
+                        ? channel.getHistory().retrievePast(limit).complete()
+                        : channel.getHistoryBefore(beforeId, limit).complete().getRetrievedHistory());
+            }
+
+            @Override
+            public List<HistoryBackfill.HistoryMessage> pageAfter(long afterId, int limit){
+                return toHistoryPage(channel.getHistoryAfter(afterId, limit).complete().getRetrievedHistory());
+            }
+        }, p.getCollection(), workerCount, checkpointFile, BACKFILL_PAGE_DELAY_MILLIS);
+
+        //Claim the partition's scan; the scan starts its workers only once run
+        if (!p.getBackfill().compareAndSet(null, scan)){
+            replies.send(channel, "Already scanning the history (" + p.getBackfill().get().getMessagesScanned() +
+                    " messages so far).");
+            return;
+        }
+        if (acquirePartition(p.getId(), channel) == null){ //hold the partition for the whole scan; loaded, so can't fail
+            p.getBackfill().set(null);
+            return;
+        }
+        replies.send(channel, "Scanning the history for links. I'll let you know when I'm done!");
+
+        Thread thread = new Thread(() -> {
+            String summary;
+            try {
+                summary = scan.run() ? "Finished scanning the history!" : "Stopped scanning the history.";
+            }
+            catch (Exception e){
+                summary = "Stopped scanning the history after an error. Use " + ArtBot.PREFIX + "backfill to resume.";
+            }
+            finally {
+                p.getBackfill().set(null);
+            }
+
+            LinkImporter found = scan.getImporter();
+            countLinks(found);
+            String message = summary + " " + scan.getMessagesScanned() + " messages scanned: " + found.getAdded() +
+                    " links added, " + found.getDuplicates() + " already stored, " + found.getInvalid() + " invalid.";
+            p.getCollection().sync().whenComplete((saved, error) ->
+                    replies.send(channel, (error == null) ? message : message + " I couldn't save that to disk."));
+            if (found.getAdded() > 0){
+                p.changed();
+            }
+            partitions.release(p.getId());
+        }, "ArtListener-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the history scan of the channel's partition after its current
+     * page. The scan sends its summary once stopped, and the next -backfill
+     * resumes it.
+     *
+     * @param p Partition of the channel.
+     * @param channel The MessageChannel to respond in.
+     */
+    private void onReceiveStopBackfillCommand(Partition p, @NotNull MessageChannel channel){
+        HistoryBackfill scan = p.getBackfill().get();
+
+        if (scan == null){
+            replies.send(channel, "I'm not scanning the history right now.");
+            return;
+        }
+        scan.stop();
+    }
+
     /**
      * Attempts to show the collection of Artists, which can then be
      * interacted with to explore their respective art link collections.
      *
-     * Does nothing if the collection is already being shown (Artists or Art).
+     * Each call opens a new display with its own session.
      *
+     * @param p Partition of the channel.
      * @param channel The MessageChannel to display the collection of artists in.
      */
-    private void onReceiveShowCommand(@NotNull MessageChannel channel){
-        openDisplay(channel);
+    private void onReceiveShowCommand(Partition p, @NotNull MessageChannel channel){
+        openDisplay(p, channel);
+    }
+
+    /**
+     * Lists the Artists whose handles start with the text given by a user's command.
+     *
+     * @param p Partition of the channel.
+     * @param channel The MessageChannel to send the results in.
+     * @param argument The text following the command.
+     */
+    private void onReceiveFindCommand(Partition p, @NotNull MessageChannel channel, @NotNull String argument){
+        String prefix = LinkUtil.trimLink(argument); //trim to the handle start
+        if (prefix.startsWith("@")){
+            prefix = prefix.substring(1);
+        }
+
+        List<String> artists = p.getCollection().searchHandles(prefix, FIND_RESULT_LIMIT);
+        if (artists.isEmpty()){
+            replies.send(channel, "No artists found starting with '" + prefix + "'.");
+        }
+        else {
+            replies.send(channel, "Artists starting with '" + prefix + "':\n" + String.join("\n", artists));
+        }
     }
 
     /**
      * Asks for confirmation to clear the ArtListener's collection of art and artists
      * if the collection is not already empty.
      *
+     * @param p Partition of the channel.
      * @param channel MessageChannel to send response in.
      */
-    private void onReceiveClearCommand(MessageChannel channel){
+    private void onReceiveClearCommand(Partition p, MessageChannel channel){
         //TODO: implement
-        if (m.isEmpty()){
-            channel.sendMessage("The collection is already empty.").queue();
+        if (p.getCollection().isEmpty()){
+            replies.send(channel, "The collection is already empty.");
         }
         else {
+            replies.flush(channel); //keep earlier responses above the prompt
             channel.sendMessage("Are you sure you'd like to clear the collection?")
                     .setActionRow(
                             Button.primary("Yes", "Yes"),
@@ -284,10 +769,14 @@ public class ArtListener extends ListenerAdapter {
      * @param event MessageReceivedEvent that triggered this command.
      */
     private void onReceiveHelpCommand(MessageChannel channel){
-        channel.sendMessage("**Text Commands**\n " +
+        replies.send(channel, "**Text Commands**\n " +
                     "(these are preceeded by '" + ArtBot.PREFIX + "' )" +
-                    "\n\nadd [Twitter Link]    -- add a Twitter link to the bot's collection" +
+                    "\n\nadd [Twitter Links]  -- add every Twitter link in the message to the bot's collection" +
                     "\nshow                           -- show the bot's current collection of Artists and their handles with nav buttons" +
+                    "\nfind [handle start]       -- list Artists whose handles start with the given text" +
+                    "\nimport                        -- add every link in an attached text, CSV or JSON file" +
+                    "\nbackfill                      -- add every link posted in this channel's history" +
+                    "\nstopBackfill               -- stop scanning this channel's history" +
                     "\nclear                            -- empty the collection of all entries" +
                     "\nhelp                             -- show commands help" +
                     "\n\n**Nav Button Commands**" +
@@ -296,66 +785,71 @@ public class ArtListener extends ListenerAdapter {
                     "\nPrevious                   -- move to the previous entry in the collection" +
                     "\nEnter                         -- Only Available in DisplayArtists Mode: show the displayed Artist's collection of art" +
                     "\nExit                            -- DisplayArtists Mode: stop displaying the collection, DisplayArt Mode: return to Artist view" +
-                    "\nRemove                    -- Remove the displayed Artist or Art and update the display appropriately")
-                .queue();
+                    "\nRemove                    -- Remove the displayed Artist or Art and update the display appropriately");
     }
 
     //--- Nav Button Commands --------------------------------------------------------------
+    //Clicks are acknowledged with a deferred edit before these run, so each
+    //returns the update to its display for the caller to queue.
 
     /**
-     * Displays the next link in the iterator.
+     * Displays the next link in the session's cursor.
      *
      * @param event Button click that triggered this command.
-     * @precond The display is on.
+     * @param session Session of the clicked display.
+     * @return The display's update.
      */
-    private void onClickNext(ButtonInteractionEvent event){
-        //Get next link in iterator
-        String linkToDisplay = links.next();
+    private RestAction<?> onClickNext(ButtonInteractionEvent event, DisplaySession session){
+        //Get next link
+        String linkToDisplay = session.links.next();
 
         //Set displayedArtist if needed
-        if (displayMode.equals(DisplayModeEnum.DisplayArtists)){
-            displayedArtist = linkToDisplay;
+        if (session.displayMode.equals(DisplayModeEnum.DisplayArtists)){
+            session.displayedArtist = linkToDisplay;
         }
         //Set displayedArt if needed
         else {
-            displayedArt = linkToDisplay;
+            session.displayedArt = linkToDisplay;
         }
 
         //Edit message to display next link
-        event.editMessage(linkToDisplay).queue();
+        return event.getHook().editOriginal(linkToDisplay);
     }
 
     /**
-     * Displays the previous link in the iterator.
+     * Displays the previous link in the session's cursor.
      *
      * @param event Button click that triggered this command.
-     * @orecond The display is on.
+     * @param session Session of the clicked display.
+     * @return The display's update.
      */
-    private void onClickPrev(ButtonInteractionEvent event){
-        String linkToDisplay = links.prev();
+    private RestAction<?> onClickPrev(ButtonInteractionEvent event, DisplaySession session){
+        String linkToDisplay = session.links.prev();
 
-        if (displayMode.equals(DisplayModeEnum.DisplayArtists)){
-            displayedArtist = linkToDisplay;
+        if (session.displayMode.equals(DisplayModeEnum.DisplayArtists)){
+            session.displayedArtist = linkToDisplay;
         }
         else {
-            displayedArt = linkToDisplay;
+            session.displayedArt = linkToDisplay;
         }
 
-        event.editMessage(linkToDisplay).queue();
+        return event.getHook().editOriginal(linkToDisplay);
     }
 
     /**
      * Displays the displayed artist's colleection of art links.
      *
      * @param event Button click that triggered this command.
-     * @precond displayMode is DisplayArtists.
+     * @param session Session of the clicked display.
+     * @precond The session's displayMode is DisplayArtists.
+     * @return The display's update.
      */
-    private void onClickEnter(ButtonInteractionEvent event){
-        links.setArray(m.getValuesForKey(displayedArtist).toArray(new String[0]));
-        displayedArt = links.next();
-        event.editMessage(displayedArt).queue();
-        event.editButton(event.getButton().asDisabled()).queue(); //disable enter button
-        displayMode = DisplayModeEnum.DisplayArt;
+    private RestAction<?> onClickEnter(ButtonInteractionEvent event, DisplaySession session){
+        session.links.setList(session.view.getValuesForKey(session.displayedArtist));
+        session.displayedArt = session.links.next();
+        session.displayMode = DisplayModeEnum.DisplayArt;
+        return event.getHook().editOriginal(session.displayedArt)
+                .setActionRow(artNavActionRow); //disable enter button
     }
 
     /**
@@ -364,146 +858,317 @@ public class ArtListener extends ListenerAdapter {
      * If art is being displayed, returns to display of artists.
      *
      * @param event The Button click that triggered this command.
-     * @precond The display is on.
+     * @param session Session of the clicked display.
+     * @return The display's update.
      */
-    private void onClickExit(ButtonInteractionEvent event){
+    private RestAction<?> onClickExit(ButtonInteractionEvent event, DisplaySession session){
         //Displaying Art --> return to DisplayArtists Mode
-        if(displayMode.equals(DisplayModeEnum.DisplayArt)){
-            displayMode = DisplayModeEnum.DisplayArtists;
-            links.setArray(m.getKeys().toArray(new String[0]));
-            displayedArtist = links.next();
-            displayedArt = null;
+        if(session.displayMode.equals(DisplayModeEnum.DisplayArt)){
+            session.displayMode = DisplayModeEnum.DisplayArtists;
+            session.links.setList(session.view.getKeys());
+            session.displayedArtist = session.links.next();
+            session.displayedArt = null;
 
             //Edit Message
-            event.editMessage(displayedArtist)
-                    .setActionRow(navActionRow)
-                    .queue();
+            return event.getHook().editOriginal(session.displayedArtist)
+                    .setActionRow(navActionRow);
         }
         else { //Displaying Artists --> close display
-            exitDisplay();
+            return exitDisplay(event);
         }
     }
 
     /**
      *
      * @param event The Button click that triggered this command.
-     * @precond The display is on.
+     * @param session Session of the clicked display.
+     * @return The display's update.
      */
-    private void onClickRemove(ButtonInteractionEvent event){
+    private RestAction<?> onClickRemove(ButtonInteractionEvent event, DisplaySession session){
+        String prompt;
+
         //Delete Artist - Send prompt message
-        if(displayMode.equals(DisplayModeEnum.DisplayArtists)){
-            event.editMessage(removeArtistPrompt + displayedArtist).setActionRow(promptActionRow).queue();
+        if(session.displayMode.equals(DisplayModeEnum.DisplayArtists)){
+            prompt = removeArtistPrompt + session.displayedArtist;
         }
         //Delete Art - Send prompt message
         else {
-            event.editMessage(removeArtPrompt + displayedArt).setActionRow(promptActionRow).queue();
+            prompt = removeArtPrompt + session.displayedArt;
         }
 
         //Now Displaying a Prompt
-        displayMode = DisplayModeEnum.DisplayPrompt;
+        session.displayMode = DisplayModeEnum.DisplayPrompt;
+        return event.getHook().editOriginal(prompt).setActionRow(promptActionRow);
     }
 
-    private void onClickCancelRemove(ButtonInteractionEvent event){
-        //Send Cancellation Message
-        event.editMessage("Cancelled!").setActionRows().queue();
-
+    private RestAction<?> onClickCancelRemove(ButtonInteractionEvent event, DisplaySession session){
         //Display Off
-        displayMode = DisplayModeEnum.DisplayOff;
+        session.displayMode = DisplayModeEnum.DisplayOff;
+        sessions.remove(event.getMessageIdLong());
+
+        //Send Cancellation Message
+        return event.getHook().editOriginal("Cancelled!").setActionRows();
     }
 
     /**
      * Attempts to remove the desired entry (Artist or Art).
      *
+     * @param p Partition of the displayed collection.
      * @param event Button click that triggered this action.
-     * @precond Display is on.
+     * @param session Session of the clicked display.
+     * @return The display's update.
      */
-    private void onClickConfirmRemove(ButtonInteractionEvent event){
+    private RestAction<?> onClickConfirmRemove(Partition p, ButtonInteractionEvent event, DisplaySession session){
         boolean success = false;
 
         //Remove Artist
         if(event.getMessage().getContentRaw().contains(removeArtistPrompt)){
-            success = m.removeKey(displayedArtist);
+            success = p.getCollection().removeKey(session.displayedArtist);
         }
         //Remove Art
         else {
-            success = m.removeValue(displayedArtist, displayedArt);
+            success = p.getCollection().removeValue(session.displayedArtist, session.displayedArt);
         }
 
-        //Close Display
-        exitDisplay();
-
         //Send Confirmation Message
         if (success) {
-            event.reply(removeSuccessResponse).queue();
+            removals.increment();
+            p.changed(); //other displays may show what was removed
+            replies.send(event.getMessageChannel(), removeSuccessResponse);
         }
         else {
-            event.reply(removeFailureResponse).queue();
+            replies.send(event.getMessageChannel(), removeFailureResponse);
         }
 
+        //Close Display
+        return exitDisplay(event);
+    }
 
-        //TODO: implement
-            //trying to delete an entry
-                //grab original message string, delete original message
-                    //split string about " "
-                    //check length of split
-                        //length == 5
-                            //grab artist link
-                            //grab art link
-                            //attempt remove
-                                //success: "Removed! \n" + artlink
-                                //failure: "Sorry, I couldn't remove that. \n" + artLink
-                        //else
-                            //grab artist link
-                            //attempt remove
-                                //success: "Removed! \n" + link
-                                //failure: "Sorry, I couldn't remove that. \n" + artistlink
-    }
-
-    /**
-     * Displays the current collection of Artists, if there are any.
-     * If the collection is already being displayed, closes and
-     * reopens it.
+    /**
+     * Opens a new display of the current collection of Artists, if there are any.
      *
+     * @param p Partition of the channel.
      * @param channel MessageChannel to display Artists in.
      */
-    private void openDisplay(MessageChannel channel){
-        //Close display if it's already open
-        if(!displayMode.equals(DisplayModeEnum.DisplayOff)){
-            exitDisplay();
+    private void openDisplay(Partition p, MessageChannel channel){
+        long start = System.nanoTime();
+        //Pin the current collection
+        MultiMapSnapshot<String, String> snapshot = p.getCollection().snapshot();
+
+        if (snapshot.isEmpty()) { //No Artists to show :(
+            replies.send(channel, "Nothing to show right now...");
         }
+        else { //Show artists!
+            DisplaySession session = new DisplaySession(p.getId(), channel, snapshot);
 
-        //Get Artists
-        String[] keys = m.getKeys().toArray(new String[0]);
+            replies.flush(channel); //keep earlier responses above the display
 
-        if (keys.length == 0) { //No Artists to show :(
-            channel.sendMessage("Nothing to show right now...").queue();
+            channel.sendMessage(session.displayedArtist)
+                    .setActionRow(navActionRow)
+                    .queue(message -> {
+                        session.messageId = message.getIdLong();
+                        sessions.put(session.messageId, session);
+                    });
         }
-        else { //Show artists!
-            displayMode = DisplayModeEnum.DisplayArtists;
-            links.setArray(m.getKeys().toArray(new String[0]));
-            displayedArtist = links.next();
+        openDisplayLatency.record(System.nanoTime() - start);
+    }
 
-            channel.sendMessage(displayedArtist)
+    /**
+     * Adds a LinkImporter's counts to the link counters.
+     *
+     * @param importer Importer that has finished.
+     */
+    private void countLinks(LinkImporter importer){
+        linksAdded.add(importer.getAdded());
+        linksDuplicate.add(importer.getDuplicates());
+        linksInvalid.add(importer.getInvalid());
+    }
+
+    /**
+     * Closes the display clicked in an event, deleting its message
+     * and releasing its session.
+     *
+     * @param event Button click on the display.
+     * @return The deletion of the display message.
+     */
+    private RestAction<?> exitDisplay(ButtonInteractionEvent event){
+        sessions.remove(event.getMessageIdLong());
+        return event.getHook().deleteOriginal();
+    }
+
+    /**
+     * Brings every open display of a partition up to date with its collection,
+     * editing display messages in place where what they show has changed.
+     * Displays showing a remove prompt are left alone.
+     *
+     * Runs at most once per refresh interval, however many changes were
+     * made since the last run.
+     *
+     * @param p Partition whose collection changed.
+     */
+    private void refreshDisplays(Partition p){
+        MultiMapSnapshot<String, String> snapshot = p.getCollection().snapshot();
+
+        for (DisplaySession session : sessions.values()){
+            synchronized (session){
+                if (session.partitionId == p.getId() && session.view != snapshot
+                        && !session.displayMode.equals(DisplayModeEnum.DisplayPrompt)){
+                    refreshDisplay(session, snapshot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a display to a newer snapshot of the collection, keeping the
+     * displayed link if it is still there, or the link at the same position
+     * if it isn't.
+     *
+     * @param session Session of the display.
+     * @param snapshot Snapshot to move to.
+     * @precond The session's displayMode is DisplayArtists or DisplayArt.
+     */
+    private void refreshDisplay(DisplaySession session, MultiMapSnapshot<String, String> snapshot){
+        String shown = session.displayMode.equals(DisplayModeEnum.DisplayArt) ? session.displayedArt : session.displayedArtist;
+        MultiMapSnapshot<String, String> oldView = session.view;
+        session.view = snapshot;
+
+        if (snapshot.isEmpty()){ //Nothing left to show --> close display
+            sessions.remove(session.messageId);
+            session.channel.editMessageById(session.messageId, "Nothing to show right now...").setActionRows().queue();
+            return;
+        }
+
+        //Showing Art of an Artist that was removed --> return to Artists
+        List<String> art = snapshot.getValuesForKey(session.displayedArtist);
+        if (session.displayMode.equals(DisplayModeEnum.DisplayArt) && art == null){
+            session.displayMode = DisplayModeEnum.DisplayArtists;
+            session.displayedArt = null;
+            session.links.setList(snapshot.getKeys());
+            moveToNearest(session.links, -1, oldView.indexOfKey(session.displayedArtist));
+            session.displayedArtist = snapshot.keyAt(session.links.getPosition());
+
+            session.channel.editMessageById(session.messageId, session.displayedArtist)
                     .setActionRow(navActionRow)
-                    .queue(message -> displayMessage = message);
+                    .queue();
+            return;
+        }
+
+        String nowShown;
+        if (session.displayMode.equals(DisplayModeEnum.DisplayArt)){
+            int position = session.links.getPosition();
+            session.links.setList(art);
+            moveToNearest(session.links, art.indexOf(session.displayedArt), position);
+            session.displayedArt = art.get(session.links.getPosition());
+            nowShown = session.displayedArt;
+        }
+        else {
+            int position = session.links.getPosition();
+            session.links.setList(snapshot.getKeys());
+            moveToNearest(session.links, snapshot.indexOfKey(session.displayedArtist), position);
+            session.displayedArtist = snapshot.keyAt(session.links.getPosition());
+            nowShown = session.displayedArtist;
+        }
+
+        if (!nowShown.equals(shown)){
+            session.channel.editMessageById(session.messageId, nowShown).queue();
+        }
+    }
+
+    /**
+     * Converts messages read from a channel's history for a HistoryBackfill.
+     *
+     * @param messages Messages in the order they were read.
+     * @return The messages' ids and raw content, in the same order.
+     */
+    private static List<HistoryBackfill.HistoryMessage> toHistoryPage(List<Message> messages){
+        List<HistoryBackfill.HistoryMessage> page = new ArrayList<>(messages.size());
+        for (Message message : messages){
+            page.add(new HistoryBackfill.HistoryMessage(message.getIdLong(), message.getContentRaw()));
+        }
+        return page;
+    }
+
+    /**
+     * Moves a cursor to a link's position, or as close as possible to its
+     * old position if the link is gone.
+     *
+     * @param links Cursor over the new list of links.
+     * @param index Position of the link in the new list, or -1.
+     * @param oldPosition Cursor's position in the old list.
+     */
+    private static void moveToNearest(Cursor<String> links, int index, int oldPosition){
+        if (index < 0){
+            index = Math.max(0, Math.min(oldPosition, links.getPosition())); //a fresh cursor sits at the last position
+        }
+        links.moveTo(index);
+    }
+
+    /**
+     * Gets the id of the partition a channel's collection is in.
+     *
+     * @param channel Channel to look up.
+     * @return The id of the channel's guild, or of the channel itself if
+     *             partitioning by channel or it isn't in a guild.
+     */
+    private long partitionIdOf(MessageChannel channel){
+        if (!partitionByChannel && channel instanceof GuildChannel){
+            return ((GuildChannel) channel).getGuild().getIdLong();
         }
+        return channel.getIdLong();
     }
 
     /**
-     * Closes the collection display if it is open.
+     * Closes a downloaded file that won't be read.
+     *
+     * @param in The file's contents.
      */
-    private void exitDisplay(){
-        if (!displayMode.equals(DisplayModeEnum.DisplayOff)){
-            //Delete Embed
-            displayMessage.delete().queue();
-            displayMessage = null;
+    private static void closeQuietly(InputStream in){
+        try {
+            in.close();
+        }
+        catch (IOException e){ //only the download is lost
+            LOG.warn("Couldn't close a downloaded file", e);
+        }
+    }
 
-            //Set Display Mode to DisplayOff
-            displayMode = DisplayModeEnum.DisplayOff;
+    /**
+     * Acquires a partition, telling the channel if it can't be loaded.
+     * Release it with partitions.release() when done.
+     *
+     * @param id Id of the partition.
+     * @param channel Channel to respond in on failure.
+     * @return The partition, or null if it couldn't be loaded.
+     */
+    private Partition acquirePartition(long id, MessageChannel channel){
+        try {
+            return partitions.acquire(id);
+        }
+        catch (IOException e){
+            LOG.error("Couldn't load partition {}", id, e);
+            replies.send(channel, loadFailureResponse);
+            return null;
+        }
+    }
 
-            //Null Out Displayed Artist and Displayed Links Array
-            displayedArtist = null;
-            links.setArray(null);
+    /**
+     * Checks whether a button belongs to a display.
+     *
+     * @param componentId Id of the button.
+     * @return True for nav and remove prompt buttons.
+     */
+    private static boolean isDisplayButton(String componentId){
+        switch (componentId){
+            case PREV_BUTTON_ID:
+            case NEXT_BUTTON_ID:
+            case EXIT_BUTTON_ID:
+            case ENTER_BUTTON_ID:
+            case REMOVE_BUTTON_ID:
+            case CANCEL_BUTTON_ID:
+            case CONFIRM_BUTTON_ID:
+                return true;
+            default:
+                return false;
         }
     }
 }
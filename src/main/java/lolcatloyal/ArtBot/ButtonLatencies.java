@@ -0,0 +1,111 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencies of button clicks by button id, split into how long a click
+ * took to be acknowledged and how long it took for its update to land.
+ *
+ * Both are measured from when the click was received, so completion
+ * latency includes acknowledgement latency. Each button's histograms are
+ * also kept in a Metrics, as "artbot_button_[id]_ack_seconds" and
+ * "artbot_button_[id]_completion_seconds".
+ *
+ * ButtonLatencies is thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class ButtonLatencies {
+    private final Metrics metrics;
+    private final ConcurrentHashMap<String, LatencyHistogram> acks;
+    private final ConcurrentHashMap<String, LatencyHistogram> completions;
+
+    /**
+     * Creates a new ButtonLatencies with nothing recorded.
+     */
+    public ButtonLatencies(){
+        this(new Metrics());
+    }
+
+    /**
+     * Creates a new ButtonLatencies with nothing recorded, keeping its
+     * histograms in the given Metrics.
+     *
+     * @param metrics Metrics to add the histograms to.
+     */
+    public ButtonLatencies(Metrics metrics){
+        this.metrics = metrics;
+        acks = new ConcurrentHashMap<String, LatencyHistogram>();
+        completions = new ConcurrentHashMap<String, LatencyHistogram>();
+    }
+
+    /**
+     * Records how long a click took to be acknowledged.
+     *
+     * @param buttonId Id of the clicked button.
+     * @param nanos Time from receiving the click to its acknowledgement.
+     */
+    public void recordAck(String buttonId, long nanos){
+        histogram(acks, buttonId, "_ack_seconds").record(nanos);
+    }
+
+    /**
+     * Records how long a click took to be handled in full.
+     *
+     * @param buttonId Id of the clicked button.
+     * @param nanos Time from receiving the click to its update landing.
+     */
+    public void recordCompletion(String buttonId, long nanos){
+        histogram(completions, buttonId, "_completion_seconds").record(nanos);
+    }
+
+    /**
+     * Gets the acknowledgement latencies of a button.
+     *
+     * @param buttonId Id of the button.
+     * @return The latencies, empty if the button hasn't been clicked.
+     */
+    public LatencyHistogram getAck(String buttonId){
+        LatencyHistogram h = acks.get(buttonId);
+        return (h == null) ? new LatencyHistogram() : h;
+    }
+
+    /**
+     * Gets the completion latencies of a button.
+     *
+     * @param buttonId Id of the button.
+     * @return The latencies, empty if no click on the button has completed.
+     */
+    public LatencyHistogram getCompletion(String buttonId){
+        LatencyHistogram h = completions.get(buttonId);
+        return (h == null) ? new LatencyHistogram() : h;
+    }
+
+    /**
+     * Gets the ids of the buttons with latencies recorded.
+     *
+     * @return The button ids in order.
+     */
+    public Set<String> getButtonIds(){
+        Set<String> ids = new TreeSet<String>(acks.keySet());
+        ids.addAll(completions.keySet());
+        return ids;
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Gets a button's histogram, creating it in the Metrics on its first click.
+     */
+    private LatencyHistogram histogram(ConcurrentHashMap<String, LatencyHistogram> histograms, String buttonId,
+                                       String suffix){
+        LatencyHistogram h = histograms.get(buttonId); //computeIfAbsent locks even when present
+        if (h == null){
+            h = histograms.computeIfAbsent(buttonId, id ->
+                    metrics.histogram("artbot_button_" + id.toLowerCase(Locale.ROOT) + suffix));
+        }
+        return h;
+    }
+}
@@ -0,0 +1,527 @@
+package lolcatloyal.ArtBot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of changes to a collection of art links,
+ * with snapshot compaction.
+ *
+ * The log lives in a directory as numbered generations. "log-[gen]" holds the
+ * changes made after "snapshot-[gen]", a full copy of the collection. Generation 0
+ * has no snapshot. Compaction writes the next snapshot and starts the next log,
+ * then deletes older generations.
+ *
+ * Log records are framed with their length and a CRC32, so a record torn by a
+ * crash is detected and dropped on replay.
+ *
+ * Changes are written by a single writer thread using group commit: every change
+ * appended while the previous batch was being forced to disk is written and forced
+ * together, so a burst of changes costs one fsync. append() returns a future
+ * completing once the change is durable.
+ *
+ * Once a write fails, the log may end in a torn record, so nothing more is
+ * written to it. Every later change fails with the same exception until the
+ * log is reopened, which drops the torn record.
+ *
+ * Replay memory-maps each file and decodes it straight from the mapping.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class CollectionLog implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(CollectionLog.class);
+
+    //Record types
+    static final byte ADD = 1;
+    static final byte REMOVE_VALUE = 2;
+    static final byte REMOVE_KEY = 3;
+    static final byte CLEAR = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x41525453; //"ARTS"
+    private static final int SNAPSHOT_END = 0x454E4421; //"END!"
+    private static final int RECORD_HEADER = 8; //payload length + crc
+    private static final Pattern FILE_PATTERN = Pattern.compile("(log|snapshot)-(\\d+)");
+
+    private final Path dir;
+    private long generation; //generation of the log being appended to
+    private FileChannel channel;
+    private long recordsInLog; //records appended to the current log
+
+    //Pending batches, guarded by the log's monitor
+    private ArrayDeque<Batch> queue = new ArrayDeque<Batch>();
+    private CompletableFuture<Void> lastDurable = CompletableFuture.completedFuture(null);
+    private boolean closed;
+    private final Thread writer;
+    private volatile IOException failure; //first write that failed, fails every later change
+
+    /**
+     * Changes waiting to be written together.
+     */
+    private static final class Batch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final CompletableFuture<Void> durable = new CompletableFuture<Void>();
+        private MultiMapSnapshot<String, String> compactTo; //snapshot to compact to after this batch, or null
+    }
+
+    private CollectionLog(Path dir, long generation, FileChannel channel, long recordsInLog){
+        this.dir = dir;
+        this.generation = generation;
+        this.channel = channel;
+        this.recordsInLog = recordsInLog;
+        writer = new Thread(this::writeLoop, "CollectionLog-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the log in a directory, replaying its latest snapshot and the logs
+     * after it into a collection.
+     *
+     * @param dir Directory holding the log. Created if missing.
+     * @param target Collection to replay into.
+     * @precond target is empty
+     * @return The open log, appending after the replayed changes.
+     * @throws IOException if the directory or its files can't be read.
+     */
+    public static CollectionLog open(Path dir, SortedMultiMap<String, String> target) throws IOException {
+        Files.createDirectories(dir);
+
+        //Find generations on disk
+        long latestSnapshot = 0;
+        long latestLog = 0;
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)){
+            for (Path file : entries){
+                Matcher matcher = FILE_PATTERN.matcher(file.getFileName().toString());
+                if (matcher.matches()){
+                    long gen = Long.parseLong(matcher.group(2));
+                    if (matcher.group(1).equals("snapshot")){
+                        latestSnapshot = Math.max(latestSnapshot, gen);
+                    }
+                    else {
+                        latestLog = Math.max(latestLog, gen);
+                    }
+                    files.add(file);
+                }
+                else if (file.getFileName().toString().endsWith(".tmp")){
+                    files.add(file);
+                }
+            }
+        }
+
+        //Delete generations and snapshots left behind by a compaction that didn't finish
+        for (Path file : files){
+            if (file.getFileName().toString().endsWith(".tmp")){
+                Files.delete(file);
+                continue;
+            }
+
+            Matcher matcher = FILE_PATTERN.matcher(file.getFileName().toString());
+            if (matcher.matches() && Long.parseLong(matcher.group(2)) < latestSnapshot){
+                Files.delete(file);
+            }
+        }
+
+        //Load snapshot, then replay every log from its generation on
+        if (latestSnapshot > 0){
+            readSnapshot(snapshotFile(dir, latestSnapshot), target);
+        }
+        long gen = latestSnapshot;
+        long records = 0;
+        for (long g = latestSnapshot; g <= Math.max(latestLog, latestSnapshot); g++){
+            Path log = logFile(dir, g);
+            if (Files.exists(log)){
+                records = replayLog(log, target);
+                gen = g;
+            }
+        }
+
+        FileChannel channel = FileChannel.open(logFile(dir, gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return new CollectionLog(dir, gen, channel, records);
+    }
+
+    /**
+     * Appends a change to the log.
+     *
+     * @param type ADD, REMOVE_VALUE, REMOVE_KEY or CLEAR.
+     * @param key Key changed, or "" for CLEAR.
+     * @param value Value changed, or "" for REMOVE_KEY and CLEAR.
+     * @return Future completing once the change is durable, or failing if it
+     *             couldn't be written. Fails at once if an earlier write failed.
+     */
+    public synchronized CompletableFuture<Void> append(byte type, String key, String value){
+        if (closed){
+            throw new IllegalStateException("CollectionLog is closed");
+        }
+        if (failure != null){
+            return failed(failure);
+        }
+
+        Batch batch = openBatch();
+        try {
+            writeRecord(batch.bytes, type, key, value);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e); //ByteArrayOutputStream doesn't throw
+        }
+        recordsInLog++;
+        lastDurable = batch.durable;
+        notifyAll();
+        return batch.durable;
+    }
+
+    /**
+     * Gets a future completing once every change appended so far is durable.
+     *
+     * @return Future for the latest change. Fails at once if an earlier write failed.
+     */
+    public synchronized CompletableFuture<Void> sync(){
+        if (failure != null){
+            return failed(failure);
+        }
+        return lastDurable;
+    }
+
+    /**
+     * Gets the number of changes in the current log generation.
+     *
+     * @return Changes since the last compaction.
+     */
+    public synchronized long recordsInLog(){
+        return recordsInLog;
+    }
+
+    /**
+     * Compacts the log to a snapshot once every change appended so far
+     * has been written. Later changes go into the next generation's log.
+     *
+     * @param snapshot Snapshot of the collection after every change appended so far.
+     */
+    public synchronized void compact(MultiMapSnapshot<String, String> snapshot){
+        if (failure != null){
+            return; //nothing more is written
+        }
+        openBatch().compactTo = snapshot;
+        recordsInLog = 0;
+        notifyAll();
+    }
+
+    /**
+     * Writes every pending change and closes the log.
+     *
+     * @throws IOException if pending changes couldn't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this){
+            if (closed){
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null){
+            throw failure;
+        }
+    }
+
+    //--- Writer Thread --------------------------------------------------------------
+
+    /**
+     * Gets the batch new changes join. Changes join the last batch
+     * unless it ends in a compaction.
+     */
+    private Batch openBatch(){
+        Batch last = queue.peekLast();
+
+        if (last == null || last.compactTo != null){
+            last = new Batch();
+            queue.addLast(last);
+        }
+        return last;
+    }
+
+    private void writeLoop(){
+        while (true){
+            ArrayDeque<Batch> batches;
+            synchronized (this){
+                while (queue.isEmpty() && !closed){
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException e){
+                        closed = true;
+                    }
+                }
+                if (queue.isEmpty()){
+                    return; //closed and drained
+                }
+                batches = queue;
+                queue = new ArrayDeque<Batch>();
+            }
+
+            //Queued before the failure was seen --> fail without writing
+            if (failure != null){
+                for (Batch batch : batches){
+                    batch.durable.completeExceptionally(failure);
+                }
+                continue;
+            }
+
+            List<CompletableFuture<Void>> written = new ArrayList<CompletableFuture<Void>>();
+            try {
+                for (Batch batch : batches){
+                    ByteBuffer bytes = ByteBuffer.wrap(batch.bytes.toByteArray());
+                    while (bytes.hasRemaining()){
+                        channel.write(bytes);
+                    }
+                    written.add(batch.durable);
+
+                    if (batch.compactTo != null){
+                        channel.force(false);
+                        complete(written);
+                        rotate(batch.compactTo);
+                    }
+                }
+                channel.force(false); //one fsync for the whole group
+                complete(written);
+            }
+            catch (IOException e){ //changes in these batches may be lost
+                LOG.error("Couldn't write the collection log in {}", dir, e);
+                failure = e;
+                for (Batch batch : batches){
+                    batch.durable.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private static CompletableFuture<Void> failed(IOException e){
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static void complete(List<CompletableFuture<Void>> futures){
+        for (CompletableFuture<Void> future : futures){
+            future.complete(null);
+        }
+        futures.clear();
+    }
+
+    /**
+     * Starts the next generation: switches to a new log, writes the snapshot,
+     * and deletes the previous generations.
+     */
+    private void rotate(MultiMapSnapshot<String, String> snapshot) throws IOException {
+        long next = generation + 1;
+        FileChannel nextChannel = FileChannel.open(logFile(dir, next),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        nextChannel.force(true);
+        channel.close();
+        channel = nextChannel;
+
+        //Write snapshot to a temporary file, then move it into place
+        Path tmp = dir.resolve("snapshot-" + next + ".tmp");
+        writeSnapshot(tmp, snapshot);
+        Files.move(tmp, snapshotFile(dir, next), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(dir); //the new log and snapshot survive a crash before the old ones are deleted
+
+        Files.deleteIfExists(logFile(dir, generation));
+        Files.deleteIfExists(snapshotFile(dir, generation));
+        generation = next;
+    }
+
+    /**
+     * Forces a directory's entries to disk, so files created
+     * or renamed in it survive a crash.
+     */
+    private static void forceDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)){
+            channel.force(true);
+        }
+    }
+
+    //--- File Formats --------------------------------------------------------------
+
+    private static Path logFile(Path dir, long gen){
+        return dir.resolve("log-" + gen);
+    }
+
+    private static Path snapshotFile(Path dir, long gen){
+        return dir.resolve("snapshot-" + gen);
+    }
+
+    /**
+     * Writes a framed record: payload length, CRC32 of the payload, then the
+     * payload of type, key and value.
+     */
+    private static void writeRecord(ByteArrayOutputStream out, byte type, String key, String value) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(type);
+        writeString(data, key);
+        writeString(data, value);
+
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        DataOutputStream framed = new DataOutputStream(out);
+        framed.writeInt(bytes.length);
+        framed.writeInt((int) crc.getValue());
+        framed.write(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in){
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining()){
+            throw new IllegalStateException("Corrupt string length: " + length);
+        }
+
+        //Decode straight from the buffer when possible
+        if (in.hasArray()){
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replays a log into a collection, truncating any torn record at its end.
+     *
+     * @return The number of records replayed.
+     */
+    private static long replayLog(Path log, SortedMultiMap<String, String> target) throws IOException {
+        long records = 0;
+        long validEnd = 0;
+
+        try (FileChannel in = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 crc = new CRC32();
+
+            while (buffer.remaining() >= RECORD_HEADER){
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()){
+                    break; //torn write
+                }
+
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum){
+                    break; //torn write
+                }
+                payload.flip();
+
+                apply(target, payload.get(), readString(payload), readString(payload));
+                buffer.position(buffer.position() + length);
+                validEnd = buffer.position();
+                records++;
+            }
+
+            if (validEnd < in.size()){
+                in.truncate(validEnd);
+            }
+        }
+        return records;
+    }
+
+    private static void apply(SortedMultiMap<String, String> target, byte type, String key, String value){
+        switch (type){
+            case ADD:
+                target.addValue(key, value);
+                break;
+            case REMOVE_VALUE:
+                target.removeValue(key, value);
+                break;
+            case REMOVE_KEY:
+                target.removeKey(key);
+                break;
+            case CLEAR:
+                target.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type: " + type);
+        }
+    }
+
+    /**
+     * Writes a snapshot: magic, key count, then each key followed by its
+     * values oldest first, then an end marker.
+     */
+    private static void writeSnapshot(Path file, MultiMapSnapshot<String, String> snapshot) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))){
+            List<String> keys = snapshot.getKeys();
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(keys.size());
+
+            for (String key : keys){
+                List<String> values = snapshot.getValuesForKey(key);
+                writeString(out, key);
+                out.writeInt(values.size());
+                for (int i = values.size() - 1; i >= 0; i--){
+                    writeString(out, values.get(i));
+                }
+            }
+            out.writeInt(SNAPSHOT_END);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    private static void readSnapshot(Path file, SortedMultiMap<String, String> target) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+
+            if (buffer.getInt() != SNAPSHOT_MAGIC){
+                throw new IOException("Not a collection snapshot: " + file);
+            }
+            int keys = buffer.getInt();
+            for (int k = 0; k < keys; k++){
+                String key = readString(buffer);
+                int values = buffer.getInt();
+                for (int v = 0; v < values; v++){
+                    target.addValue(key, readString(buffer));
+                }
+            }
+            if (buffer.getInt() != SNAPSHOT_END){
+                throw new IOException("Incomplete collection snapshot: " + file);
+            }
+        }
+    }
+}
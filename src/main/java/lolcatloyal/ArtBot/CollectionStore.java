@@ -0,0 +1,194 @@
+package lolcatloyal.ArtBot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Collections of art by guild or channel id, shared by every ArtListener
+ * of the bot, one per shard when sharded.
+ *
+ * Collections are held in a PartitionTable, so they load on first use
+ * and are closed once idle, and one is never open twice however many
+ * listeners use it. Each collection's changes are announced to change
+ * listeners, such as ArtListeners refreshing their displays, at most
+ * once per refresh interval.
+ *
+ * CollectionStore is thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class CollectionStore {
+    public static final long DEFAULT_IDLE_TIMEOUT_MINUTES = 30;
+
+    private final PartitionTable<Partition> partitions;
+    private final ScheduledExecutorService scheduler; //runs change announcements and eviction
+    private final long refreshMillis;
+    private final List<Consumer<Partition>> changeListeners;
+
+    /**
+     * Collection of a single guild or channel, with the state that
+     * goes with it.
+     */
+    public final class Partition implements Closeable {
+        private final long id; //guild or channel id
+        private final SortedMultiMap<String, String> collection; //closed with the partition
+        private final SearchableMultiMap m; //collection of art -- Artist links are keys, Art links are values
+        private final Debouncer changed; //announces changes to the change listeners
+        private final AtomicReference<HistoryBackfill> backfill; //running history scan, if any
+
+        private Partition(long id, SortedMultiMap<String, String> collection){
+            this.id = id;
+            this.collection = collection;
+            m = new SearchableMultiMap(collection);
+            changed = new Debouncer(() -> {
+                for (Consumer<Partition> listener : changeListeners){
+                    listener.accept(this);
+                }
+            }, refreshMillis, TimeUnit.MILLISECONDS, scheduler);
+            backfill = new AtomicReference<HistoryBackfill>();
+        }
+
+        /**
+         * Gets the id of this partition.
+         *
+         * @return The guild or channel id.
+         */
+        public long getId(){
+            return id;
+        }
+
+        /**
+         * Gets the collection of this partition.
+         *
+         * @return The collection, searchable by handle.
+         */
+        public SearchableMultiMap getCollection(){
+            return m;
+        }
+
+        /**
+         * Gets the history scan running for this partition.
+         *
+         * @return Holder of the running scan, or of null if there is none.
+         */
+        public AtomicReference<HistoryBackfill> getBackfill(){
+            return backfill;
+        }
+
+        /**
+         * Announces a change to the collection to the change listeners,
+         * merged with other changes made within the refresh interval.
+         */
+        public void changed(){
+            changed.request();
+        }
+
+        /**
+         * Stops any history scan of the partition, then closes its collection.
+         *
+         * @throws IOException if the collection couldn't be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            HistoryBackfill scan = backfill.get();
+            if (scan != null){
+                scan.stop();
+            }
+            if (collection instanceof Closeable){
+                ((Closeable) collection).close();
+            }
+        }
+    }
+
+    /**
+     * Creates a new CollectionStore.
+     *
+     * @param collections Opens the collection of art of a guild or channel id.
+     *                    Collections that are Closeable are closed once idle.
+     * @param idleTimeout How long a collection can go unused before it is closed.
+     * @param unit Unit of idleTimeout.
+     * @param refreshMillis Least time between announcements of a collection's changes.
+     * @param metrics Metrics to add gauges of the loaded collections' sizes to.
+     */
+    public CollectionStore(PartitionTable.Loader<? extends SortedMultiMap<String, String>> collections,
+                           long idleTimeout, TimeUnit unit, long refreshMillis, Metrics metrics){
+        this.refreshMillis = refreshMillis;
+        changeListeners = new CopyOnWriteArrayList<Consumer<Partition>>();
+        partitions = new PartitionTable<Partition>(id -> new Partition(id, collections.load(id)), idleTimeout, unit);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CollectionStore-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(partitions::evictIdle, 1, 1, TimeUnit.MINUTES);
+
+        metrics.gauge("artbot_artists", () -> {
+            long artists = 0;
+            for (Partition p : partitions.loaded()){
+                artists += p.m.keyCount();
+            }
+            return artists;
+        });
+        metrics.gauge("artbot_art", () -> {
+            long art = 0;
+            for (Partition p : partitions.loaded()){
+                art += p.m.valueCount();
+            }
+            return art;
+        });
+        metrics.gauge("artbot_partitions", partitions::size);
+    }
+
+    /**
+     * Adds a listener to call with a partition after its collection changes.
+     *
+     * @param listener Listener to add. Called on the store's scheduler thread.
+     */
+    public void addChangeListener(Consumer<Partition> listener){
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Gets a partition, loading it if needed, and keeps it open until
+     * release() is called.
+     *
+     * @param id Guild or channel id.
+     * @return The partition.
+     * @throws IOException if the collection can't be loaded.
+     */
+    public Partition acquire(long id) throws IOException {
+        return partitions.acquire(id);
+    }
+
+    /**
+     * Lets a partition acquired with acquire() be closed once idle.
+     *
+     * @param id Guild or channel id.
+     */
+    public void release(long id){
+        partitions.release(id);
+    }
+
+    /**
+     * Stops every history scan, then closes every collection not in use,
+     * such as on shutdown. A stopped scan keeps its collection in use until
+     * its current page is saved.
+     *
+     * @return The number of collections still in use, which are left open.
+     */
+    public int closeAll(){
+        for (Partition p : partitions.loaded()){
+            HistoryBackfill scan = p.backfill.get();
+            if (scan != null){
+                scan.stop();
+            }
+        }
+        return partitions.closeAll();
+    }
+}
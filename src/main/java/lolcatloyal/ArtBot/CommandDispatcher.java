@@ -0,0 +1,185 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Routes text commands like "-add [link]" to their handlers.
+ *
+ * A message is only looked at past its prefix, so chatter that isn't a
+ * command is turned away after one character comparison. Commands are
+ * kept in a table by the first character of their name; dispatch() finds
+ * the end of the message's command name, compares it in place against the
+ * few commands in its bucket, and calls the match's handler. Nothing is
+ * allocated unless a command taking an argument is matched, which
+ * allocates its argument String.
+ *
+ * A command without an argument must be the whole message. A command with
+ * one must be followed by whitespace, such as a space or a line break, and
+ * some non-whitespace text, which is passed to its handler trimmed.
+ *
+ * Commands should be registered before dispatching starts; after that,
+ * CommandDispatcher is safe to use from multiple threads.
+ *
+ * @param <C> The type of context passed to handlers, such as the channel
+ *           a command was sent in
+ */
+@SuppressWarnings("Convert2Diamond")
+public class CommandDispatcher<C> {
+    private static final int TABLE_SIZE = 128; //command names start with an ASCII character
+    private static final String NO_ARGUMENT = "";
+
+    private final String prefix;
+    private final Command<C>[][] table; //first character of name --> commands
+
+    /**
+     * A registered command.
+     *
+     * @param <C> The type of context passed to the handler
+     */
+    private static final class Command<C> {
+        private final String name;
+        private final boolean takesArgument;
+        private final BiConsumer<? super C, String> handler;
+
+        private Command(String name, boolean takesArgument, BiConsumer<? super C, String> handler){
+            this.name = name;
+            this.takesArgument = takesArgument;
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Creates a new CommandDispatcher with no commands.
+     *
+     * @param prefix Text every command starts with, such as "-".
+     * @precond prefix is nonnull and nonempty
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CommandDispatcher(String prefix){
+        this.prefix = prefix;
+        table = (Command<C>[][]) new Command[TABLE_SIZE][];
+    }
+
+    /**
+     * Registers a command that is the whole message, such as "-help".
+     *
+     * @param name Name of the command, without the prefix.
+     * @param handler Called with the context and an empty argument.
+     * @return This CommandDispatcher.
+     * @throws IllegalArgumentException if the name is invalid or already registered.
+     */
+    public CommandDispatcher<C> register(String name, BiConsumer<? super C, String> handler){
+        return add(new Command<C>(name, false, handler));
+    }
+
+    /**
+     * Registers a command followed by an argument, such as "-add [link]".
+     *
+     * @param name Name of the command, without the prefix.
+     * @param handler Called with the context and the text after the command.
+     * @return This CommandDispatcher.
+     * @throws IllegalArgumentException if the name is invalid or already registered.
+     */
+    public CommandDispatcher<C> registerWithArgument(String name, BiConsumer<? super C, String> handler){
+        return add(new Command<C>(name, true, handler));
+    }
+
+    /**
+     * Calls the handler of the command in a message, if it is one.
+     *
+     * @param message Raw content of the message.
+     * @param context Context to pass to the handler.
+     * @precond message is nonnull
+     * @return True if a command was handled.
+     */
+    public boolean dispatch(String message, C context){
+        if (!message.startsWith(prefix)){
+            return false; //not a command
+        }
+
+        int nameStart = prefix.length();
+        if (nameStart == message.length() || message.charAt(nameStart) >= TABLE_SIZE){
+            return false;
+        }
+        Command<C>[] bucket = table[message.charAt(nameStart)];
+        if (bucket == null){
+            return false;
+        }
+
+        //Command name runs up to the first whitespace
+        int nameEnd = nameStart;
+        while (nameEnd < message.length() && !Character.isWhitespace(message.charAt(nameEnd))){
+            nameEnd++;
+        }
+
+        for (Command<C> command : bucket){
+            if (command.name.length() == nameEnd - nameStart
+                    && message.regionMatches(nameStart, command.name, 0, command.name.length())){
+                return invoke(command, message, nameEnd, context);
+            }
+        }
+        return false;
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CommandDispatcher<C> add(Command<C> command){
+        String name = command.name;
+
+        if (name.isEmpty() || name.charAt(0) >= TABLE_SIZE){
+            throw new IllegalArgumentException("Command names must start with an ASCII character: " + name);
+        }
+        for (int i = 0; i < name.length(); i++){
+            if (Character.isWhitespace(name.charAt(i))){
+                throw new IllegalArgumentException("Command names can't contain whitespace: " + name);
+            }
+        }
+
+        Command<C>[] bucket = table[name.charAt(0)];
+        if (bucket == null){
+            bucket = (Command<C>[]) new Command[0];
+        }
+        for (Command<C> registered : bucket){
+            if (registered.name.equals(name)){
+                throw new IllegalArgumentException("Command already registered: " + name);
+            }
+        }
+
+        bucket = Arrays.copyOf(bucket, bucket.length + 1);
+        bucket[bucket.length - 1] = command;
+        table[name.charAt(0)] = bucket;
+        return this;
+    }
+
+    /**
+     * Checks the rest of a message against a matched command and calls
+     * its handler if it fits.
+     */
+    private boolean invoke(Command<C> command, String message, int nameEnd, C context){
+        if (!command.takesArgument){
+            if (nameEnd != message.length()){
+                return false; //trailing text
+            }
+            command.handler.accept(context, NO_ARGUMENT);
+            return true;
+        }
+
+        //Name ends at whitespace --> trim it from both ends of the argument
+        int argumentStart = nameEnd;
+        while (argumentStart < message.length() && Character.isWhitespace(message.charAt(argumentStart))){
+            argumentStart++;
+        }
+        if (argumentStart == message.length()){
+            return false; //missing argument
+        }
+        int argumentEnd = message.length();
+        while (Character.isWhitespace(message.charAt(argumentEnd - 1))){
+            argumentEnd--;
+        }
+
+        command.handler.accept(context, message.substring(argumentStart, argumentEnd));
+        return true;
+    }
+}
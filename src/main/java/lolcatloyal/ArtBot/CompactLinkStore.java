@@ -0,0 +1,452 @@
+package lolcatloyal.ArtBot;
+
+import java.util.*;
+
+/**
+ * Memory-compact SortedMultiMap for Twitter art links.
+ *
+ * Keys must be Twitter profile links ("https://twitter.com/[handle]") and
+ * Values must be FXTwitter post links by the same artist
+ * ("https://fxtwitter.com/[handle]/status/[id]"). Instead of keeping the
+ * link Strings, the store interns each artist's handle once under an int id
+ * and keeps their posts' status ids in a primitive long array. A global
+ * LongIntHashMap from status id to artist id detects duplicates in constant
+ * time, and answers containsValue() and getKeysForValue(). Link Strings are
+ * rebuilt with LinkUtil only when they are read.
+ *
+ * Removing a single Value shifts the rest of its artist's array, so it takes
+ * time linear in the number of posts stored for that artist.
+ *
+ * Writes are queued as changes to the store's last MultiMapSnapshot, as in
+ * MultiValueMap, so snapshot() only builds the links that changed since the
+ * last one. The store is copied in full only when more changes pile up than
+ * applying them is worth.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class CompactLinkStore implements SortedMultiMap<String, String> {
+    private static final int MISSING = -1;
+    private static final int MAX_STATUS_ID_DIGITS = 19; //digits in Long.MAX_VALUE
+
+    private final TreeMap<String, Artist> artists; //artists by handle
+    private Artist[] artistsById;
+    private final ArrayDeque<Integer> freeIds; //ids of removed artists, reused first
+    private int nextId;
+    private final LongIntHashMap owners; //status id --> artist id
+
+    private final SnapshotChanges<String, String> changes; //changes since the last snapshot
+
+    /**
+     * Posts stored for a single artist.
+     */
+    private static final class Artist {
+        private final int id;
+        private final String handle;
+        private long[] statusIds = new long[2]; //oldest first
+        private int size;
+
+        private Artist(int id, String handle){
+            this.id = id;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * Creates a new empty CompactLinkStore.
+     */
+    public CompactLinkStore(){
+        artists = new TreeMap<String, Artist>();
+        artistsById = new Artist[16];
+        freeIds = new ArrayDeque<Integer>();
+        owners = new LongIntHashMap();
+        changes = new SnapshotChanges<String, String>();
+    }
+
+    /**
+     * Gets a Set view of the stored artist profile links in
+     * alphabetical order. Links are built as they are iterated.
+     *
+     * @return An unmodifiable Set of profile links.
+     */
+    @Override
+    public Set<String> getKeys(){
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator(){
+                final Iterator<String> handles = artists.keySet().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext(){
+                        return handles.hasNext();
+                    }
+
+                    @Override
+                    public String next(){
+                        return LinkUtil.buildProfileLinkFromHandle(handles.next());
+                    }
+                };
+            }
+
+            @Override
+            public int size(){
+                return artists.size();
+            }
+
+            @Override
+            public boolean contains(Object o){
+                return (o instanceof String) && findArtist((String) o) != null;
+            }
+        };
+    }
+
+    /**
+     * Gets a List view of the post links stored for a given artist in
+     * LIFO order. Links are built as they are read.
+     *
+     * @param key Profile link of the artist.
+     * @precond key is nonnull
+     * @return An unmodifiable List of post links, or null if the artist is not stored.
+     */
+    @Override
+    public List<String> getValuesForKey(String key){
+        Artist artist = findArtist(key);
+        return (artist == null) ? null : new PostList(artist);
+    }
+
+    /**
+     * Adds a post link for an artist, adding the artist if needed. Fails if the
+     * post is already stored.
+     *
+     * @param key Profile link of the artist.
+     * @param value FXTwitter post link by the artist.
+     * @precond key, value are nonnull
+     * @return True if the post was not already stored.
+     * @throws IllegalArgumentException if key is not a profile link, or value is
+     *             not an FXTwitter post link by the same artist.
+     */
+    @Override
+    public boolean addValue(String key, String value){
+        String handle = LinkUtil.getHandleFromProfileLink(key);
+        long statusId = (handle == null) ? MISSING : statusIdOf(handle, value);
+
+        if (statusId == MISSING){
+            throw new IllegalArgumentException("Not a profile link and matching FXTwitter post link: "
+                    + key + ", " + value);
+        }
+        Artist artist = artists.get(handle);
+        if (artist == null){
+            artist = addArtist(handle);
+        }
+        if (!owners.putIfAbsent(statusId, artist.id)){
+            if (artist.size == 0){
+                removeArtist(artist); //added for a duplicate
+            }
+            return false;
+        }
+
+        //Append, growing the array if needed
+        if (artist.size == artist.statusIds.length){
+            artist.statusIds = Arrays.copyOf(artist.statusIds, artist.size * 2);
+        }
+        artist.statusIds[artist.size++] = statusId;
+        recordAdded(artist, statusId);
+        return true;
+    }
+
+    /**
+     * Adds post links grouped by artist, as if by calling addValue() for each
+     * link in iteration order. Each artist is looked up, and their array grown,
+     * only once.
+     *
+     * @param values Post links to add, grouped by profile link.
+     * @precond values, its Keys and Values are nonnull
+     * @return The number of posts added.
+     * @throws IllegalArgumentException if a link is invalid. Links before it
+     *             are still added.
+     */
+    @Override
+    public int addAll(Map<String, ? extends Collection<? extends String>> values){
+        int added = 0;
+
+        for (Map.Entry<String, ? extends Collection<? extends String>> entry : values.entrySet()){
+            String key = entry.getKey();
+            String handle = LinkUtil.getHandleFromProfileLink(key);
+            Collection<? extends String> posts = entry.getValue();
+
+            if (handle == null){
+                throw new IllegalArgumentException("Not a profile link: " + key);
+            }
+            if (posts.isEmpty()){
+                continue;
+            }
+
+            Artist artist = artists.get(handle);
+            if (artist == null){
+                artist = addArtist(handle);
+            }
+            if (artist.statusIds.length < artist.size + posts.size()){
+                artist.statusIds = Arrays.copyOf(artist.statusIds,
+                        Math.max(artist.size + posts.size(), artist.statusIds.length * 2));
+            }
+
+            for (String value : posts){
+                long statusId = statusIdOf(handle, value);
+                if (statusId == MISSING){
+                    if (artist.size == 0){
+                        removeArtist(artist);
+                    }
+                    throw new IllegalArgumentException("Not a matching FXTwitter post link: " + key + ", " + value);
+                }
+                if (owners.putIfAbsent(statusId, artist.id)){
+                    artist.statusIds[artist.size++] = statusId;
+                    recordAdded(artist, statusId);
+                    added++;
+                }
+            }
+
+            if (artist.size == 0){
+                removeArtist(artist); //every post was a duplicate
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeValue(String key, String value){
+        Artist artist = findArtist(key);
+
+        if (artist == null){
+            return false;
+        }
+
+        long statusId = statusIdOf(artist.handle, value);
+        if (statusId == MISSING || owners.get(statusId, MISSING) != artist.id){
+            return false;
+        }
+
+        //Find from the newest end and shift later posts down
+        int i = artist.size - 1;
+        while (artist.statusIds[i] != statusId){
+            i--;
+        }
+        System.arraycopy(artist.statusIds, i + 1, artist.statusIds, i, artist.size - i - 1);
+        artist.size--;
+        owners.remove(statusId);
+
+        //No associated posts --> remove artist
+        if (artist.size == 0){
+            removeArtist(artist);
+        }
+        if (changes.record(owners.size())){
+            changes.add(MultiMapSnapshot.Change.equalValueRemoved(LinkUtil.buildProfileLinkFromHandle(artist.handle),
+                    LinkUtil.buildFXPostLink(artist.handle, statusId)));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removeKey(String key){
+        Artist artist = findArtist(key);
+
+        if (artist == null){
+            return false;
+        }
+
+        for (int i = 0; i < artist.size; i++){
+            owners.remove(artist.statusIds[i]);
+        }
+        removeArtist(artist);
+        if (changes.record(owners.size())){
+            changes.add(MultiMapSnapshot.Change.<String, String>keyRemoved(LinkUtil.buildProfileLinkFromHandle(artist.handle)));
+        }
+        return true;
+    }
+
+    @Override
+    public void clear(){
+        artists.clear();
+        artistsById = new Artist[16];
+        freeIds.clear();
+        nextId = 0;
+        owners.clear();
+        if (changes.record(0)){
+            changes.add(MultiMapSnapshot.Change.<String, String>cleared());
+        }
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return artists.isEmpty();
+    }
+
+    @Override
+    public boolean containsValue(String value){
+        return ownerOf(value) != null;
+    }
+
+    @Override
+    public Set<String> getKeysForValue(String value){
+        Artist artist = ownerOf(value);
+        return (artist == null) ? Collections.<String>emptySet()
+                : Collections.singleton(LinkUtil.buildProfileLinkFromHandle(artist.handle));
+    }
+
+    /**
+     * Gets an immutable snapshot of the store's current contents, applying
+     * the changes since the last one. Runs in constant time if the store
+     * hasn't changed since the last call.
+     *
+     * @return A snapshot of the store.
+     */
+    @Override
+    public MultiMapSnapshot<String, String> snapshot(){
+        return changes.snapshot(this::buildSnapshot);
+    }
+
+    /**
+     * Gets the number of posts stored.
+     *
+     * @return The number of posts across all artists.
+     */
+    @Override
+    public int valueCount(){
+        return owners.size();
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Queues an added post as a change to the last snapshot.
+     */
+    private void recordAdded(Artist artist, long statusId){
+        if (changes.record(owners.size())){
+            changes.add(MultiMapSnapshot.Change.pushed(LinkUtil.buildProfileLinkFromHandle(artist.handle),
+                    LinkUtil.buildFXPostLink(artist.handle, statusId)));
+        }
+    }
+
+    /**
+     * Builds a snapshot of the store's current contents in O(n).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MultiMapSnapshot<String, String> buildSnapshot(){
+        String[] keys = new String[artists.size()];
+        PersistentSortedMap<Long, String>[] trees = new PersistentSortedMap[artists.size()];
+        int i = 0;
+
+        //Profile links sort as their handles do
+        for (Artist artist : artists.values()){
+            Long[] orders = new Long[artist.size];
+            String[] posts = new String[artist.size];
+            for (int j = 0; j < artist.size; j++){ //LIFO order
+                orders[j] = (long) j;
+                posts[j] = LinkUtil.buildFXPostLink(artist.handle, artist.statusIds[artist.size - 1 - j]);
+            }
+            keys[i] = LinkUtil.buildProfileLinkFromHandle(artist.handle);
+            trees[i++] = PersistentSortedMap.ofSorted(orders, posts);
+        }
+        return MultiMapSnapshot.of(changes.version(), PersistentSortedMap.ofSorted(keys, trees));
+    }
+
+    private Artist findArtist(String profileLink){
+        String handle = LinkUtil.getHandleFromProfileLink(profileLink);
+        return (handle == null) ? null : artists.get(handle);
+    }
+
+    private Artist addArtist(String handle){
+        int id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+
+        if (id == artistsById.length){
+            artistsById = Arrays.copyOf(artistsById, id * 2);
+        }
+        Artist artist = new Artist(id, handle);
+        artistsById[id] = artist;
+        artists.put(handle, artist);
+        return artist;
+    }
+
+    private void removeArtist(Artist artist){
+        artists.remove(artist.handle);
+        artistsById[artist.id] = null;
+        freeIds.push(artist.id);
+    }
+
+    /**
+     * Gets the artist that stored a post link, using the global status id index.
+     *
+     * @param postLink Link to look up.
+     * @return The artist, or null if the link is not stored.
+     */
+    private Artist ownerOf(String postLink){
+        int handleStart = LinkUtil.FX_PREFIX.length();
+        int handleEnd = postLink.indexOf('/', handleStart);
+
+        if (!postLink.startsWith(LinkUtil.FX_PREFIX) || handleEnd <= handleStart){
+            return null;
+        }
+
+        String handle = postLink.substring(handleStart, handleEnd);
+        long statusId = statusIdOf(handle, postLink);
+        int id = (statusId == MISSING) ? MISSING : owners.get(statusId, MISSING);
+        Artist artist = (id == MISSING) ? null : artistsById[id];
+
+        //Same status id under another handle is a different link
+        return (artist != null && artist.handle.equals(handle)) ? artist : null;
+    }
+
+    /**
+     * Gets the status id from an FXTwitter post link by a given artist.
+     *
+     * @param handle Handle of the artist.
+     * @param postLink Link to parse.
+     * @return The status id, or MISSING if the link is not exactly
+     *             "https://fxtwitter.com/[handle]/status/[id]".
+     */
+    private static long statusIdOf(String handle, String postLink){
+        int handleStart = LinkUtil.FX_PREFIX.length();
+        int idStart = handleStart + handle.length() + LinkUtil.STATUS_SEGMENT.length();
+        int digits = postLink.length() - idStart;
+
+        if (digits < 1 || digits > MAX_STATUS_ID_DIGITS
+                || !postLink.startsWith(LinkUtil.FX_PREFIX)
+                || !postLink.startsWith(handle, handleStart)
+                || !postLink.startsWith(LinkUtil.STATUS_SEGMENT, handleStart + handle.length())){
+            return MISSING;
+        }
+
+        long id = 0;
+        for (int i = idStart; i < postLink.length(); i++){
+            char c = postLink.charAt(i);
+            if (c < '0' || c > '9' || id > (Long.MAX_VALUE - (c - '0')) / 10){
+                return MISSING;
+            }
+            id = id * 10 + (c - '0');
+        }
+
+        //Leading zeros would render a different link
+        return (id > 0 && postLink.charAt(idStart) != '0') ? id : MISSING;
+    }
+
+    /**
+     * List view of an artist's posts in LIFO order.
+     */
+    private static final class PostList extends AbstractList<String> implements RandomAccess {
+        private final Artist artist;
+
+        private PostList(Artist artist){
+            this.artist = artist;
+        }
+
+        @Override
+        public String get(int index){
+            if (index < 0 || index >= artist.size){
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + artist.size);
+            }
+            return LinkUtil.buildFXPostLink(artist.handle, artist.statusIds[artist.size - 1 - index]);
+        }
+
+        @Override
+        public int size(){
+            return artist.size;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package lolcatloyal.ArtBot;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe SortedMultiMap.
+ *
+ * Keys are held in a ConcurrentSkipListMap, so they stay sorted and
+ * can be read without locking. Each Key's Values are held in a
+ * HashLinkedList guarded by its own lock, so writers to different
+ * Keys never block each other.
+ *
+ * addValue(), removeValue() and removeKey() are atomic. getKeys() returns
+ * a weakly consistent view of the Keys: it never throws
+ * ConcurrentModificationException, and may or may not reflect changes
+ * made while iterating. getValuesForKey() returns a copy of the Key's
+ * Values taken atomically. clear() removes Keys one at a time, so it is
+ * not atomic as a whole.
+ *
+ * A reverse index maps each Value to the Keys it is stored under. Writers
+ * update it while holding their Key's lock, so containsValue() and
+ * getKeysForValue() run in constant time without locking.
+ *
+ * Writers queue each change to the map's last MultiMapSnapshot while still
+ * holding their Key's lock, so the queue always holds each Key's changes in
+ * order. snapshot() applies the queued changes, and writers apply them
+ * themselves once the queue grows as large as the map.
+ *
+ * @param <K> The type of Keys to be stored
+ * @param <V> The type of Values to be stored
+ */
+@SuppressWarnings("Convert2Diamond")
+public class ConcurrentMultiValueMap<K extends Comparable<K>, V> implements SortedMultiMap<K, V> {
+    private final ConcurrentSkipListMap<K, Values<V>> map;
+    private final ConcurrentHashMap<V, Object> owners; //Value --> Keys storing it, see ValueOwners
+    private static final int MIN_DRAIN_THRESHOLD = 1024;
+
+    private final ConcurrentLinkedQueue<MultiMapSnapshot.Change<K, V>> changes;
+    private final AtomicInteger pending; //changes queued, counted after queueing
+    private final AtomicInteger valueCount;
+    private final Object drainLock = new Object();
+    private volatile MultiMapSnapshot<K, V> snapshot; //guarded by drainLock
+    private volatile int drainThreshold = MIN_DRAIN_THRESHOLD;
+
+    /**
+     * Values stored for a single Key, guarded by the Values' own monitor.
+     *
+     * Once a Key is removed from the map its Values are retired, and
+     * writers that raced with the removal retry against the map.
+     *
+     * @param <V> The type of Values stored
+     */
+    private static class Values<V> {
+        private final HashLinkedList<V> list = new HashLinkedList<V>();
+        private boolean retired;
+    }
+
+    /**
+     * Creates a new empty ConcurrentMultiValueMap.
+     */
+    public ConcurrentMultiValueMap() {
+        map = new ConcurrentSkipListMap<K, Values<V>>();
+        owners = new ConcurrentHashMap<V, Object>();
+        changes = new ConcurrentLinkedQueue<MultiMapSnapshot.Change<K, V>>();
+        pending = new AtomicInteger();
+        valueCount = new AtomicInteger();
+        snapshot = MultiMapSnapshot.empty();
+    }
+
+    @Override
+    public Set<K> getKeys(){
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Gets a copy of the Values associated with a given Key sorted
+     * in LIFO order. Returns null if the given Key is not in the map.
+     *
+     * @param key Key for the desired Values in the map.
+     * @precond key is nonnull
+     * @return An unmodifiable List of Values mapped from the desired Key arranged in
+     *             LIFO order. Null if the given key is not in the map.
+     */
+    @Override
+    public List<V> getValuesForKey(K key){
+        Values<V> values = map.get(key);
+
+        if (values == null){
+            return null;
+        }
+
+        synchronized (values){
+            if (values.retired){
+                return null; //key removed since lookup
+            }
+            return Collections.unmodifiableList(new ArrayList<V>(values.list));
+        }
+    }
+
+    @Override
+    public boolean addValue(K key, V value){
+        return addValues(key, Collections.singletonList(value)) == 1;
+    }
+
+    /**
+     * Adds Values to the map grouped by Key, as if by calling addValue()
+     * for each Value in iteration order. Each Key's Values are added
+     * atomically, under a single acquisition of its lock.
+     *
+     * @param values Values to add, grouped by Key.
+     * @precond values, its Keys and Values are nonnull
+     * @return The number of Values added.
+     */
+    @Override
+    public int addAll(Map<K, ? extends Collection<? extends V>> values){
+        int added = 0;
+
+        for (Map.Entry<K, ? extends Collection<? extends V>> entry : values.entrySet()){
+            added += addValues(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeValue(K key, V value){
+        Values<V> values = map.get(key);
+
+        if (values == null){
+            return false;
+        }
+
+        synchronized (values){
+            long order = -values.list.pushNumberOf(value);
+
+            if (values.retired || !values.list.remove(value)){
+                return false;
+            }
+            owners.computeIfPresent(value, (v, keys) -> ValueOwners.without(keys, key));
+            queue(MultiMapSnapshot.Change.<K, V>valueRemoved(key, order));
+            valueCount.decrementAndGet();
+
+            //No associated values --> remove key
+            if (values.list.isEmpty()){
+                retire(key, values);
+            }
+        }
+        drainIfFull();
+        return true;
+    }
+
+    @Override
+    public boolean removeKey(K key){
+        Values<V> values = map.get(key);
+
+        if (values == null){
+            return false;
+        }
+
+        synchronized (values){
+            if (values.retired){
+                return false;
+            }
+            retire(key, values);
+        }
+        drainIfFull();
+        return true;
+    }
+
+    @Override
+    public void clear(){
+        for (Map.Entry<K, Values<V>> entry : map.entrySet()){
+            Values<V> values = entry.getValue();
+            synchronized (values){
+                if (!values.retired){
+                    retire(entry.getKey(), values);
+                }
+            }
+        }
+        drainIfFull();
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return map.isEmpty();
+    }
+
+    @Override
+    public int valueCount(){
+        return valueCount.get();
+    }
+
+    @Override
+    public boolean containsValue(V value){
+        return owners.containsKey(value);
+    }
+
+    @Override
+    public Set<K> getKeysForValue(V value){
+        return ValueOwners.keys(owners.get(value));
+    }
+
+    /**
+     * Gets an immutable snapshot of the map's contents, including every
+     * change completed before the call. Runs in constant time if the map
+     * hasn't changed since the last call.
+     *
+     * @return A snapshot of the map.
+     */
+    @Override
+    public MultiMapSnapshot<K, V> snapshot(){
+        if (pending.get() == 0){
+            return snapshot;
+        }
+
+        synchronized (drainLock){
+            //Counted changes are a prefix of the queue
+            int count = pending.get();
+            List<MultiMapSnapshot.Change<K, V>> batch = new ArrayList<MultiMapSnapshot.Change<K, V>>(count);
+            for (int i = 0; i < count; i++){
+                batch.add(changes.poll());
+            }
+            pending.addAndGet(-count);
+
+            MultiMapSnapshot<K, V> s = MultiMapSnapshot.applyAll(snapshot, batch);
+            snapshot = s;
+            drainThreshold = Math.max(MIN_DRAIN_THRESHOLD, s.valueCount());
+            return s;
+        }
+    }
+
+    /**
+     * Adds Values to a Key under a single acquisition of its lock.
+     *
+     * @param key Key to add Values to.
+     * @param added Values to add, in order.
+     * @return The number of Values added.
+     */
+    private int addValues(K key, Collection<? extends V> added){
+        if (added.isEmpty()){
+            return 0; //don't create an empty Key
+        }
+
+        int count = 0;
+        while (true){
+            Values<V> values = map.get(key);
+
+            //Key not in map --> try to add it
+            if (values == null){
+                Values<V> created = new Values<V>();
+                values = map.putIfAbsent(key, created);
+                if (values == null){
+                    values = created;
+                }
+            }
+
+            synchronized (values){
+                //Key removed since lookup --> retry
+                if (values.retired){
+                    continue;
+                }
+                for (V value : added){
+                    if (values.list.push(value)){
+                        owners.merge(value, key, ValueOwners::with);
+                        queue(MultiMapSnapshot.Change.added(key, -values.list.pushNumberOf(value), value));
+                        count++;
+                    }
+                }
+                valueCount.addAndGet(count);
+            }
+            drainIfFull();
+            return count;
+        }
+    }
+
+    /**
+     * Queues a change for the next snapshot.
+     *
+     * @precond The caller holds the lock on the changed Key's Values.
+     */
+    private void queue(MultiMapSnapshot.Change<K, V> change){
+        changes.add(change);
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Applies the queued changes once there are as many as Values in the
+     * last snapshot, so the queue's size stays bounded by the map's.
+     */
+    private void drainIfFull(){
+        if (pending.get() >= drainThreshold){
+            snapshot();
+        }
+    }
+
+    /**
+     * Retires a Key's Values and removes the Key from the map.
+     *
+     * The Key's removal is queued first, so a writer that re-adds
+     * the Key afterwards always queues after this removal.
+     *
+     * @param key Key to remove.
+     * @param values The Key's Values.
+     * @precond The caller holds the lock on values.
+     */
+    private void retire(K key, Values<V> values){
+        values.retired = true;
+        for (V value : values.list){
+            owners.computeIfPresent(value, (v, keys) -> ValueOwners.without(keys, key));
+        }
+        queue(MultiMapSnapshot.Change.<K, V>keyRemoved(key));
+        valueCount.addAndGet(-values.list.size());
+        map.remove(key, values);
+    }
+}
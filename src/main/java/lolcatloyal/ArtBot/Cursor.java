@@ -0,0 +1,97 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cursor that cycles through a List by position, wrapping around at
+ * either end. Cursor starts at the last element in the List by default,
+ * so the first call to next() returns the first element.
+ *
+ * Cursors never copy the List. Moving costs one call to List.get(), so
+ * a Cursor over a MultiMapSnapshot's Keys or Values moves in O(log n)
+ * without allocating.
+ *
+ * @param <E> The type of elements in the List
+ */
+public class Cursor<E> {
+    private List<E> list;
+    private int index;
+
+    /**
+     * Creates a new Cursor over an empty List.
+     */
+    public Cursor(){
+        setList(Collections.<E>emptyList());
+    }
+
+    /**
+     * Creates a new Cursor over the given List.
+     *
+     * @param list List to cycle through.
+     * @precond list is nonnull
+     */
+    public Cursor(List<E> list){
+        setList(list);
+    }
+
+    /**
+     * Sets the List to cycle through and moves to its last element.
+     *
+     * @param list New List to cycle through.
+     * @precond list is nonnull
+     */
+    public void setList(List<E> list){
+        this.list = list;
+        index = list.size() - 1;
+    }
+
+    /**
+     * Cycles forward through the List.
+     *
+     * @return The next element, wrapping around to the first.
+     *             Null if the List is empty.
+     */
+    public E next(){
+        if (list.isEmpty()){
+            return null;
+        }
+        index = (index + 1) % list.size();
+        return list.get(index);
+    }
+
+    /**
+     * Cycles backward through the List.
+     *
+     * @return The previous element, wrapping around to the last.
+     *             Null if the List is empty.
+     */
+    public E prev(){
+        if (list.isEmpty()){
+            return null;
+        }
+        index = (index - 1 + list.size()) % list.size();
+        return list.get(index);
+    }
+
+    /**
+     * Moves to a given position, so the next call to next()
+     * returns the element after it.
+     *
+     * @param position Position to move to.
+     * @precond position is in [0, size of the List)
+     */
+    public void moveTo(int position){
+        index = position;
+    }
+
+    /**
+     * Gets the Cursor's current position.
+     *
+     * @return Position of the element last returned, or of the last
+     *             element if the Cursor hasn't moved since the List was set.
+     */
+    public int getPosition(){
+        return index;
+    }
+}
@@ -0,0 +1,73 @@
+package lolcatloyal.ArtBot;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs an action in response to requests, at most once per interval.
+ *
+ * The first request after a run schedules the next one, as soon as the
+ * interval since the last run has passed. Requests made while a run is
+ * scheduled are merged into it. A request made while the action is running
+ * schedules another run, so no request is missed.
+ *
+ * Debouncer is thread-safe.
+ */
+public class Debouncer {
+    private final Runnable action;
+    private final long intervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier clock; //nanosecond time source
+    private final AtomicBoolean scheduled;
+    private volatile long lastRun;
+    private volatile boolean hasRun;
+
+    /**
+     * Creates a new Debouncer.
+     *
+     * @param action Action to run.
+     * @param interval Least time between runs.
+     * @param unit Unit of interval.
+     * @param scheduler Runs the action.
+     */
+    public Debouncer(Runnable action, long interval, TimeUnit unit, ScheduledExecutorService scheduler){
+        this(action, interval, unit, scheduler, System::nanoTime);
+    }
+
+    /**
+     * Creates a new Debouncer with the given clock.
+     *
+     * @param action Action to run.
+     * @param interval Least time between runs.
+     * @param unit Unit of interval.
+     * @param scheduler Runs the action.
+     * @param clock Source of the current time in nanoseconds.
+     */
+    public Debouncer(Runnable action, long interval, TimeUnit unit, ScheduledExecutorService scheduler,
+                     LongSupplier clock){
+        this.action = action;
+        this.intervalNanos = unit.toNanos(interval);
+        this.scheduler = scheduler;
+        this.clock = clock;
+        scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Requests a run of the action.
+     */
+    public void request(){
+        if (scheduled.compareAndSet(false, true)){
+            long delay = hasRun ? Math.max(0, lastRun + intervalNanos - clock.getAsLong()) : 0;
+            scheduler.schedule(this::run, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void run(){
+        lastRun = clock.getAsLong();
+        hasRun = true;
+        scheduled.set(false); //later requests schedule another run
+        action.run();
+    }
+}
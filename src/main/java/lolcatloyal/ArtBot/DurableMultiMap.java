@@ -0,0 +1,261 @@
+package lolcatloyal.ArtBot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SortedMultiMap that persists a collection of art links with a CollectionLog.
+ *
+ * Every successful change is applied to the collection and appended to the
+ * log under one lock, so the log records changes in the order they were made.
+ * Reads take the lock too, so the wrapped collection needn't be thread-safe,
+ * and getKeys() and getValuesForKey() return copies rather than views. Once the log holds
+ * compactThreshold changes, it is compacted to a snapshot of the collection.
+ *
+ * Changes are durable once sync() completes.
+ */
+public class DurableMultiMap implements SortedMultiMap<String, String>, Closeable {
+    public static final long DEFAULT_COMPACT_THRESHOLD = 100000;
+
+    private final SortedMultiMap<String, String> collection;
+    private final CollectionLog log;
+    private final long compactThreshold;
+    private final Object lock = new Object();
+
+    private DurableMultiMap(SortedMultiMap<String, String> collection, CollectionLog log, long compactThreshold){
+        this.collection = collection;
+        this.log = log;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Opens the collection persisted in a directory.
+     *
+     * @param dir Directory holding the collection's log.
+     * @param collection Empty collection to load into and wrap.
+     * @param compactThreshold Number of logged changes that triggers compaction.
+     * @return The collection, loaded from disk.
+     * @throws IOException if the log can't be read.
+     */
+    public static DurableMultiMap open(Path dir, SortedMultiMap<String, String> collection, long compactThreshold)
+            throws IOException {
+        return new DurableMultiMap(collection, CollectionLog.open(dir, collection), compactThreshold);
+    }
+
+    /**
+     * Gets a copy of the Keys, as a view of them could change while it is read.
+     *
+     * @return An unmodifiable Set containing the map's keys in alphabetical order.
+     */
+    @Override
+    public Set<String> getKeys(){
+        synchronized (lock){
+            return Collections.unmodifiableSet(new LinkedHashSet<String>(collection.getKeys()));
+        }
+    }
+
+    /**
+     * Gets a copy of a Key's Values, as a view of them could change while it is read.
+     *
+     * @param key Key for the desired Values in the map.
+     * @precond key is nonnull
+     * @return An unmodifiable List of the Key's Values in LIFO order. Null if the
+     *             given key is not in the map.
+     */
+    @Override
+    public List<String> getValuesForKey(String key){
+        synchronized (lock){
+            List<String> values = collection.getValuesForKey(key);
+            return (values == null) ? null : Collections.unmodifiableList(new ArrayList<String>(values));
+        }
+    }
+
+    @Override
+    public boolean addValue(String key, String value){
+        synchronized (lock){
+            if (!collection.addValue(key, value)){
+                return false;
+            }
+            logChange(CollectionLog.ADD, key, value);
+            return true;
+        }
+    }
+
+    /**
+     * Adds Values grouped by Key with one call to the collection's addAll(),
+     * then logs the Values it added, under a single acquisition of the lock.
+     *
+     * @param values Values to add, grouped by Key.
+     * @return The number of Values added.
+     */
+    @Override
+    public int addAll(Map<String, ? extends Collection<? extends String>> values){
+        int added = 0;
+
+        synchronized (lock){
+            //Leave out Values their Key already has --> any left that the Key has after were added
+            Map<String, Set<String>> newValues = new LinkedHashMap<String, Set<String>>();
+            for (Map.Entry<String, ? extends Collection<? extends String>> entry : values.entrySet()){
+                Set<String> keyValues = new LinkedHashSet<String>();
+                for (String value : entry.getValue()){
+                    if (!hasValue(entry.getKey(), value)){
+                        keyValues.add(value);
+                    }
+                }
+                if (!keyValues.isEmpty()){
+                    newValues.put(entry.getKey(), keyValues);
+                }
+            }
+
+            try {
+                collection.addAll(newValues);
+            }
+            finally { //log Values added before any failure, in the order they were added
+                for (Map.Entry<String, Set<String>> entry : newValues.entrySet()){
+                    for (String value : entry.getValue()){
+                        if (hasValue(entry.getKey(), value)){
+                            logChange(CollectionLog.ADD, entry.getKey(), value);
+                            added++;
+                        }
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeValue(String key, String value){
+        synchronized (lock){
+            if (!collection.removeValue(key, value)){
+                return false;
+            }
+            logChange(CollectionLog.REMOVE_VALUE, key, value);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeKey(String key){
+        synchronized (lock){
+            if (!collection.removeKey(key)){
+                return false;
+            }
+            logChange(CollectionLog.REMOVE_KEY, key, "");
+            return true;
+        }
+    }
+
+    @Override
+    public void clear(){
+        synchronized (lock){
+            collection.clear();
+            logChange(CollectionLog.CLEAR, "", "");
+        }
+    }
+
+    @Override
+    public boolean isEmpty(){
+        synchronized (lock){
+            return collection.isEmpty();
+        }
+    }
+
+    @Override
+    public int keyCount(){
+        synchronized (lock){
+            return collection.keyCount();
+        }
+    }
+
+    @Override
+    public int valueCount(){
+        synchronized (lock){
+            return collection.valueCount();
+        }
+    }
+
+    @Override
+    public boolean containsValue(String value){
+        synchronized (lock){
+            return collection.containsValue(value);
+        }
+    }
+
+    @Override
+    public Set<String> getKeysForValue(String value){
+        synchronized (lock){
+            return collection.getKeysForValue(value);
+        }
+    }
+
+    @Override
+    public MultiMapSnapshot<String, String> snapshot(){
+        synchronized (lock){ //taking a snapshot can update the collection's own, as compaction does
+            return collection.snapshot();
+        }
+    }
+
+    /**
+     * Gets a future completing once every change made so far is on disk.
+     *
+     * @return Future completing when the latest change is durable.
+     */
+    @Override
+    public CompletableFuture<Void> sync(){
+        return log.sync();
+    }
+
+    /**
+     * Compacts the log to a snapshot of the collection now.
+     */
+    public void compact(){
+        synchronized (lock){
+            log.compact(collection.snapshot());
+        }
+    }
+
+    /**
+     * Writes every pending change and closes the log.
+     *
+     * @throws IOException if pending changes couldn't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock){
+            log.close();
+        }
+    }
+
+    /**
+     * Checks whether the collection associates a Value with a Key.
+     *
+     * @precond The caller holds lock.
+     */
+    private boolean hasValue(String key, String value){
+        return collection.getKeysForValue(value).contains(key);
+    }
+
+    /**
+     * Logs a change, compacting if the log has grown past the threshold.
+     *
+     * @precond The caller holds lock and has applied the change.
+     */
+    private void logChange(byte type, String key, String value){
+        log.append(type, key, value);
+
+        if (log.recordsInLog() >= compactThreshold){
+            log.compact(collection.snapshot());
+        }
+    }
+}
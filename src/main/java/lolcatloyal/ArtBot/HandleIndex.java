@@ -0,0 +1,103 @@
+package lolcatloyal.ArtBot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Prefix index over the handles of Twitter profile links, for looking
+ * artists up by the start of their handle.
+ *
+ * Handles are kept lowercase in a ConcurrentSkipListMap, so every handle
+ * starting with a prefix sits in one contiguous range. search() finds the
+ * start of the range in O(log n) and walks only the matches it returns.
+ * Handles differing only in case map to all of their profile links.
+ *
+ * HandleIndex is thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class HandleIndex {
+    private final ConcurrentSkipListMap<String, Object> handles; //lowercase handle --> profile links, see ValueOwners
+
+    /**
+     * Creates a new empty HandleIndex.
+     */
+    public HandleIndex(){
+        handles = new ConcurrentSkipListMap<String, Object>();
+    }
+
+    /**
+     * Adds a profile link to the index. Does nothing if it is
+     * already indexed or is not a profile link.
+     *
+     * @param profileLink Link to add.
+     * @precond profileLink is nonnull
+     */
+    public void add(String profileLink){
+        String handle = LinkUtil.getHandleFromProfileLink(profileLink);
+
+        if (handle != null){
+            handles.merge(handle.toLowerCase(Locale.ROOT), profileLink, ValueOwners::with);
+        }
+    }
+
+    /**
+     * Removes a profile link from the index.
+     *
+     * @param profileLink Link to remove.
+     * @precond profileLink is nonnull
+     */
+    public void remove(String profileLink){
+        String handle = LinkUtil.getHandleFromProfileLink(profileLink);
+
+        if (handle != null){
+            handles.computeIfPresent(handle.toLowerCase(Locale.ROOT),
+                    (h, links) -> ValueOwners.without(links, profileLink));
+        }
+    }
+
+    /**
+     * Removes every profile link from the index.
+     */
+    public void clear(){
+        handles.clear();
+    }
+
+    /**
+     * Gets the profile links whose handles start with a given prefix,
+     * ignoring case, in order of their handles.
+     *
+     * @param prefix Start of the handles to find, without the '@'.
+     * @param limit Maximum number of links to return.
+     * @precond prefix is nonnull, limit is positive
+     * @return Up to limit matching profile links. Empty if none match.
+     */
+    public List<String> search(String prefix, int limit){
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        List<String> matches = new ArrayList<String>(Math.min(limit, 16));
+
+        for (Map.Entry<String, Object> entry : handles.tailMap(lowerPrefix).entrySet()){
+            if (!entry.getKey().startsWith(lowerPrefix)){
+                break; //past the prefix's range
+            }
+            for (String link : ValueOwners.<String>keys(entry.getValue())){
+                if (matches.size() == limit){
+                    return matches;
+                }
+                matches.add(link);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Gets the number of distinct handles indexed, ignoring case.
+     *
+     * @return The number of handles.
+     */
+    public int size(){
+        return handles.size();
+    }
+}
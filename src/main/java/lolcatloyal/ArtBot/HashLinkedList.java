@@ -0,0 +1,292 @@
+package lolcatloyal.ArtBot;
+
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Doubly linked list of unique elements backed by a hash index
+ * from each element to its node.
+ *
+ * Elements are pushed onto the front of the list, so iteration
+ * order is LIFO. Membership checks, pushes and removals by element
+ * all run in constant time.
+ *
+ * The list does not support adding elements through the List
+ * interface (add, set); use push() instead. Elements can be removed
+ * with remove(Object) or through an iterator.
+ *
+ * @param <E> The type of elements stored in the list
+ */
+@SuppressWarnings("Convert2Diamond")
+public class HashLinkedList<E> extends AbstractSequentialList<E> {
+    private final Map<E, Node<E>> index;
+    private Node<E> head; //most recently pushed element
+    private Node<E> tail; //least recently pushed element
+    private long pushCount; //number of successful pushes, used to number nodes
+
+    /**
+     * Node holding a single element of the list.
+     *
+     * @param <E> The type of element held by the node
+     */
+    private static class Node<E> {
+        private final E element;
+        private final long pushNumber;
+        private Node<E> prev;
+        private Node<E> next;
+
+        private Node(E element, long pushNumber){
+            this.element = element;
+            this.pushNumber = pushNumber;
+        }
+    }
+
+    /**
+     * Creates a new empty HashLinkedList.
+     */
+    public HashLinkedList(){
+        index = new HashMap<E, Node<E>>();
+    }
+
+    /**
+     * Pushes an element onto the front of the list if it
+     * is not already in the list.
+     *
+     * @param element Element to push.
+     * @precond element is nonnull
+     * @return True if the element was not already in the list.
+     */
+    public boolean push(E element){
+        if (index.containsKey(element)){
+            return false;
+        }
+
+        Node<E> node = new Node<E>(element, pushCount++);
+        linkFirst(node);
+        index.put(element, node);
+        return true;
+    }
+
+    /**
+     * Checks whether the given element is in the list.
+     *
+     * @param o Element to look for.
+     * @return True if the element is in the list.
+     */
+    @Override
+    public boolean contains(Object o){
+        return index.containsKey(o);
+    }
+
+    /**
+     * Removes the given element from the list if it is
+     * in the list.
+     *
+     * @param o Element to remove.
+     * @return True if the element was in the list.
+     */
+    @Override
+    public boolean remove(Object o){
+        Node<E> node = index.remove(o);
+
+        if (node == null){
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Gets the push number of an element in the list. Elements pushed
+     * later have higher push numbers.
+     *
+     * @param o Element to look up.
+     * @return The element's push number, or -1 if it is not in the list.
+     */
+    public long pushNumberOf(Object o){
+        Node<E> node = index.get(o);
+        return (node == null) ? -1 : node.pushNumber;
+    }
+
+    /**
+     * Performs an action on each element and its push number, in LIFO order.
+     *
+     * @param action Action taking an element and its push number.
+     */
+    public void forEachWithPushNumber(ObjLongConsumer<? super E> action){
+        for (Node<E> node = head; node != null; node = node.next){
+            action.accept(node.element, node.pushNumber);
+        }
+    }
+
+    @Override
+    public int size(){
+        return index.size();
+    }
+
+    @Override
+    public void clear(){
+        index.clear();
+        head = null;
+        tail = null;
+        modCount++;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int i){
+        if (i < 0 || i > size()){
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+        }
+        return new Itr(i);
+    }
+
+    /**
+     * Links a node to the front of the list.
+     *
+     * @param node Node to link.
+     */
+    private void linkFirst(Node<E> node){
+        node.next = head;
+        if (head == null){
+            tail = node;
+        }
+        else {
+            head.prev = node;
+        }
+        head = node;
+        modCount++;
+    }
+
+    /**
+     * Unlinks a node from the list. Does not touch the index.
+     *
+     * @param node Node to unlink.
+     */
+    private void unlink(Node<E> node){
+        if (node.prev == null){
+            head = node.next;
+        }
+        else {
+            node.prev.next = node.next;
+        }
+
+        if (node.next == null){
+            tail = node.prev;
+        }
+        else {
+            node.next.prev = node.prev;
+        }
+
+        node.prev = null;
+        node.next = null;
+        modCount++;
+    }
+
+    /**
+     * ListIterator walking the list's nodes. Supports removal
+     * but not adding or setting elements.
+     */
+    private class Itr implements ListIterator<E> {
+        private Node<E> next; //node returned by next(), null at the end
+        private Node<E> lastReturned;
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        private Itr(int i){
+            //Walk from whichever end is closer
+            if (i < size() / 2){
+                next = head;
+                for (int j = 0; j < i; j++){
+                    next = next.next;
+                }
+            }
+            else {
+                next = null;
+                for (int j = size(); j > i; j--){
+                    next = (next == null) ? tail : next.prev;
+                }
+            }
+            nextIndex = i;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return nextIndex < size();
+        }
+
+        @Override
+        public E next(){
+            checkForComodification();
+            if (!hasNext()){
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.element;
+        }
+
+        @Override
+        public boolean hasPrevious(){
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous(){
+            checkForComodification();
+            if (!hasPrevious()){
+                throw new NoSuchElementException();
+            }
+            next = (next == null) ? tail : next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.element;
+        }
+
+        @Override
+        public int nextIndex(){
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex(){
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove(){
+            checkForComodification();
+            if (lastReturned == null){
+                throw new IllegalStateException();
+            }
+
+            //Removing the element just passed by next() shifts indices down
+            if (next == lastReturned){
+                next = lastReturned.next;
+            }
+            else {
+                nextIndex--;
+            }
+            index.remove(lastReturned.element);
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(E e){
+            throw new UnsupportedOperationException();
+        }
+
+        private void checkForComodification(){
+            if (modCount != expectedModCount){
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
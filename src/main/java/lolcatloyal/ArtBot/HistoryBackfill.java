@@ -0,0 +1,286 @@
+package lolcatloyal.ArtBot;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scans a channel's message history for Twitter post links and adds
+ * them to a collection, for links posted without using -add.
+ *
+ * History is read a page at a time, newest to oldest until the start of
+ * the history is reached. Each page's messages are split among a pool of
+ * workers, made for the scan, which pick out words ParsedLink recognizes
+ * as post links. The links are added through a LinkImporter, so they reach
+ * the collection in batches.
+ *
+ * A checkpoint file records the oldest message whose links have reached the
+ * collection, and the newest, and is saved after every batch. A scan stopped
+ * partway resumes paging back from the oldest. Once the start of the history
+ * has been reached, scans page forward from the newest instead, so later
+ * scans only read messages posted since.
+ *
+ * The scan waits between pages, so its requests leave room in the rate
+ * limit for live commands.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class HistoryBackfill {
+    public static final int PAGE_SIZE = 100; //most messages Discord returns per request
+    private static final String DONE = "done"; //oldest part of the checkpoint once the start is reached
+
+    private final HistoryPager pager;
+    private final LinkImporter importer;
+    private final int workerCount;
+    private final Path checkpointFile;
+    private final long pageDelayMillis;
+    private volatile boolean stopped;
+    private volatile int messagesScanned;
+    private boolean reachedStart; //whole history before newestId scanned
+    private long oldestId; //oldest message scanned, 0 if none
+    private long newestId; //newest message scanned, 0 if none
+
+    /**
+     * Source of a channel's history.
+     */
+    public interface HistoryPager {
+        /**
+         * Gets a page of the messages before a given message.
+         *
+         * @param beforeId Id of the message to read before, or 0 to read from the newest message.
+         * @param limit Most messages to return.
+         * @return The raw content of the messages, newest first, each with its id.
+         *             Empty once the start of the history is reached.
+         * @throws Exception if the page can't be read.
+         */
+        List<HistoryMessage> pageBefore(long beforeId, int limit) throws Exception;
+
+        /**
+         * Gets a page of the messages right after a given message.
+         *
+         * @param afterId Id of the message to read after, or 0 to read from the oldest message.
+         * @param limit Most messages to return.
+         * @return The raw content of the oldest limit messages after afterId, in any
+         *             order, each with its id. Empty once the newest message is reached.
+         * @throws Exception if the page can't be read.
+         */
+        List<HistoryMessage> pageAfter(long afterId, int limit) throws Exception;
+    }
+
+    /**
+     * A message read from history.
+     */
+    public static final class HistoryMessage {
+        private final long id;
+        private final String content;
+
+        /**
+         * Creates a new HistoryMessage.
+         *
+         * @param id Id of the message.
+         * @param content Raw content of the message.
+         */
+        public HistoryMessage(long id, String content){
+            this.id = id;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Creates a new HistoryBackfill.
+     *
+     * @param pager Source of the channel's history.
+     * @param collection Collection to add links to. Must be thread-safe if it is changed elsewhere during a scan.
+     * @param workerCount Number of workers to parse messages on while running.
+     * @param checkpointFile File to save progress to.
+     * @param pageDelayMillis Time to wait between pages.
+     * @precond workerCount is positive
+     */
+    public HistoryBackfill(HistoryPager pager, SortedMultiMap<String, String> collection,
+                           int workerCount, Path checkpointFile, long pageDelayMillis){
+        this.pager = pager;
+        this.importer = new LinkImporter(collection, LinkImporter.DEFAULT_BATCH_SIZE);
+        this.workerCount = workerCount;
+        this.checkpointFile = checkpointFile;
+        this.pageDelayMillis = pageDelayMillis;
+    }
+
+    /**
+     * Scans the history from the checkpoint: back to the start of the history,
+     * then forward to the newest message. Stops early if stop() is called.
+     * Blocks until then. Workers are started for the scan and shut down after.
+     *
+     * @return True if every message up to the newest has now been scanned.
+     * @throws Exception if a page can't be read or parsed, or the checkpoint
+     *             can't be saved. Links up to the last checkpoint are kept.
+     */
+    public boolean run() throws Exception {
+        readCheckpoint();
+        if (stopped){
+            return false;
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "HistoryBackfill-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int linksSinceCheckpoint = 0;
+        try {
+            while (!stopped){
+                List<HistoryMessage> page = reachedStart
+                        ? pager.pageAfter(newestId, PAGE_SIZE)
+                        : pager.pageBefore(oldestId, PAGE_SIZE);
+                if (page.isEmpty()){
+                    if (reachedStart){ //caught up to the newest message
+                        return true;
+                    }
+                    reachedStart = true;
+                    continue;
+                }
+
+                List<String> links = parse(workers, page);
+                for (String link : links){
+                    importer.addLink(link);
+                }
+                messagesScanned += page.size();
+                for (HistoryMessage message : page){
+                    newestId = Math.max(newestId, message.id);
+                    if (!reachedStart){
+                        oldestId = (oldestId == 0) ? message.id : Math.min(oldestId, message.id);
+                    }
+                }
+
+                //Save progress once about a batch of links was found
+                linksSinceCheckpoint += links.size();
+                if (linksSinceCheckpoint >= LinkImporter.DEFAULT_BATCH_SIZE){
+                    importer.flush();
+                    writeCheckpoint();
+                    linksSinceCheckpoint = 0;
+                }
+
+                Thread.sleep(pageDelayMillis);
+            }
+            return false;
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally { //messages up to the ids have been read --> add their links and save progress
+            workers.shutdownNow();
+            importer.flush();
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Stops a running scan after its current page.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    /**
+     * Gets the number of messages scanned so far by this HistoryBackfill.
+     *
+     * @return Messages scanned.
+     */
+    public int getMessagesScanned(){
+        return messagesScanned;
+    }
+
+    /**
+     * Gets the LinkImporter counting the links found so far.
+     *
+     * @return The importer links are added through.
+     */
+    public LinkImporter getImporter(){
+        return importer;
+    }
+
+    /**
+     * Picks out the post links in a message.
+     *
+     * @param content Raw content of the message.
+     * @return The links, in order.
+     */
+    public static List<String> findPostLinks(String content){
+        List<String> links = new ArrayList<String>(1);
+        ParsedLink link = new ParsedLink();
+
+        for (int from = 0; link.find(content, from); from = link.getEnd()){
+            if (link.isPost()){
+                links.add(content.substring(link.getStart(), link.getEnd()));
+            }
+        }
+        return links;
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Finds the links in a page on the workers.
+     *
+     * @return The page's links, in page order.
+     */
+    private List<String> parse(ExecutorService workers, List<HistoryMessage> page)
+            throws InterruptedException, ExecutionException {
+        int partSize = (page.size() + workerCount - 1) / workerCount;
+        List<Future<List<String>>> parts = new ArrayList<Future<List<String>>>(workerCount);
+
+        for (int start = 0; start < page.size(); start += partSize){
+            List<HistoryMessage> part = page.subList(start, Math.min(start + partSize, page.size()));
+            parts.add(workers.submit(() -> {
+                List<String> links = new ArrayList<String>();
+                for (HistoryMessage message : part){
+                    links.addAll(findPostLinks(message.content));
+                }
+                return links;
+            }));
+        }
+
+        List<String> links = new ArrayList<String>();
+        for (Future<List<String>> part : parts){
+            links.addAll(part.get());
+        }
+        return links;
+    }
+
+    /**
+     * Reads the checkpoint, "[oldest id or done] [newest id]". A checkpoint
+     * without the newest id, saved before they were tracked, pages forward
+     * from the oldest message once done; links already stored are skipped.
+     */
+    private void readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)){
+            return;
+        }
+        String[] parts = new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8).trim().split(" ");
+
+        reachedStart = DONE.equals(parts[0]);
+        oldestId = reachedStart ? 0 : Long.parseLong(parts[0]);
+        newestId = (parts.length > 1) ? Long.parseLong(parts[1]) : 0;
+    }
+
+    /**
+     * Replaces the checkpoint file, so it is never left half written.
+     */
+    private void writeCheckpoint() throws IOException {
+        String checkpoint = (reachedStart ? DONE : Long.toString(oldestId)) + " " + newestId;
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+
+        if (checkpointFile.getParent() != null){
+            Files.createDirectories(checkpointFile.getParent());
+        }
+        Files.write(tmp, checkpoint.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,144 @@
+package lolcatloyal.ArtBot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks on a shared Executor, one at a time per key and in the order
+ * they were submitted, while tasks of different keys run in parallel.
+ * Keyed by channel id, this keeps a channel's commands in order without
+ * one busy channel holding up the rest.
+ *
+ * Each key with work has a queue of its tasks. Only the queue, not each
+ * task, is handed to the Executor, and it gives the thread back after every
+ * task, so busy keys share the pool fairly. A key's queue holds a limited
+ * number of tasks; submit() refuses more until it drains, so a flood of
+ * commands in one channel can't pile up without bound. Queues of keys with
+ * no work are dropped.
+ *
+ * KeyedSerialExecutor is thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class KeyedSerialExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+    private final int maxQueued;
+    private final ConcurrentHashMap<Long, SerialQueue> queues;
+
+    /**
+     * Tasks of a single key. The task at the head is running.
+     */
+    private final class SerialQueue implements Runnable {
+        private final long key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+        private boolean dropped; //removed from queues, new tasks need a new queue
+
+        private SerialQueue(long key){
+            this.key = key;
+        }
+
+        @Override
+        public void run(){
+            Runnable task;
+            synchronized (this){
+                task = tasks.peek();
+            }
+
+            try {
+                task.run();
+            }
+            catch (RuntimeException e){
+                LOG.error("Task for key {} failed", key, e);
+            }
+            finally { //keep running the key's later tasks, even after an Error
+                boolean more;
+                synchronized (this){
+                    tasks.poll();
+                    more = !tasks.isEmpty();
+                    if (!more){
+                        dropped = true;
+                        queues.remove(key, this);
+                    }
+                }
+                if (more){
+                    executor.execute(this); //run the next task, letting other keys go first
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a new KeyedSerialExecutor.
+     *
+     * @param executor Executor to run tasks on.
+     * @param maxQueued Most tasks a key can have waiting or running at once.
+     * @precond maxQueued is positive
+     */
+    public KeyedSerialExecutor(Executor executor, int maxQueued){
+        this.executor = executor;
+        this.maxQueued = maxQueued;
+        queues = new ConcurrentHashMap<Long, SerialQueue>();
+    }
+
+    /**
+     * Submits a task to run after every task submitted before it with
+     * the same key.
+     *
+     * @param key Key of the task, such as a channel id.
+     * @param task Task to run.
+     * @precond task is nonnull
+     * @return True if the task was queued, false if the key's queue is full.
+     * @throws RejectedExecutionException if the Executor refuses the task.
+     */
+    public boolean submit(long key, Runnable task){
+        while (true){
+            SerialQueue queue = queues.computeIfAbsent(key, k -> new SerialQueue(key));
+
+            synchronized (queue){
+                if (queue.dropped){
+                    continue; //emptied meanwhile --> use a new queue
+                }
+                if (queue.tasks.size() >= maxQueued){
+                    return false;
+                }
+
+                queue.tasks.add(task);
+                if (queue.tasks.size() == 1){ //idle --> start running
+                    try {
+                        executor.execute(queue);
+                    }
+                    catch (RejectedExecutionException e){ //executor shut down --> don't leave the queue stuck
+                        queue.tasks.clear();
+                        queue.dropped = true;
+                        queues.remove(key, queue);
+                        throw e;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tasks waiting or running for a key.
+     *
+     * @param key Key of the tasks.
+     * @return The number of tasks.
+     */
+    public int queued(long key){
+        SerialQueue queue = queues.get(key);
+
+        if (queue == null){
+            return 0;
+        }
+        synchronized (queue){
+            return queue.tasks.size();
+        }
+    }
+}
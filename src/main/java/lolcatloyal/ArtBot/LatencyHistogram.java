@@ -0,0 +1,117 @@
+package lolcatloyal.ArtBot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with buckets doubling in width, for tracking
+ * percentiles without keeping every sample.
+ *
+ * Bucket i counts latencies in [2^(i-1), 2^i) microseconds, with bucket 0
+ * holding anything under 1 microsecond and the last bucket anything over
+ * about 18 minutes. Recording is a couple of atomic increments. Percentiles
+ * are reported as the upper bound of the bucket they fall in, so they are
+ * at most twice the true value.
+ *
+ * LatencyHistogram is thread-safe.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    /**
+     * Creates a new empty LatencyHistogram.
+     */
+    public LatencyHistogram(){
+        buckets = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        totalNanos = new AtomicLong();
+        maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos Latency in nanoseconds. Negative latencies count as 0.
+     */
+    public void record(long nanos){
+        nanos = Math.max(0, nanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return The count.
+     */
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * Gets the sum of the latencies recorded.
+     *
+     * @return The total in nanoseconds.
+     */
+    public long getTotalNanos(){
+        return totalNanos.get();
+    }
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMeanNanos(){
+        long n = count.get();
+        return (n == 0) ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * Gets the highest latency recorded.
+     *
+     * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMaxNanos(){
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets an upper bound on a percentile of the latencies.
+     *
+     * @param percentile Percentile to get, in (0, 100].
+     * @return Upper bound of the bucket holding the percentile in
+     *             nanoseconds, at most the maximum. 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double percentile){
+        long[] counts = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++){
+            counts[i] = buckets.get(i);
+            n += counts[i];
+        }
+        if (n == 0){
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(n * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++){
+            seen += counts[i];
+            if (seen >= rank){
+                return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
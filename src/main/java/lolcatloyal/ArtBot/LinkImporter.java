@@ -0,0 +1,242 @@
+package lolcatloyal.ArtBot;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports art links in bulk from a text, CSV or JSON file.
+ *
+ * The file is read as a stream of tokens split on whitespace and the
+ * punctuation separating CSV fields and JSON strings, so any of those
+ * formats works without parsing it as a whole, and only one token is held
+ * in memory at a time. JSON escapes are undone. Tokens starting
+ * with "http" are treated as links; everything else, like CSV headers and
+ * JSON keys, is skipped.
+ *
+ * Links in a short text, like an -add message, can be added with
+ * addLinks() instead.
+ *
+ * Each link is canonicalized with LinkUtil and grouped under its artist.
+ * Groups are added to the collection with addAll() once a batch of links
+ * has been read, so a large file costs a few bulk inserts instead of one
+ * insert per link.
+ *
+ * LinkImporter is not thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class LinkImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MAX_TOKEN_LENGTH = 2048; //longer tokens can't be links
+    private static final String SEPARATORS = ",;\"'[]{}()<>";
+    private static final String WHITESPACE_ESCAPES = "nrtbf"; //JSON escapes that stand for whitespace
+
+    private final SortedMultiMap<String, String> collection;
+    private final int batchSize;
+    private final Map<String, List<String>> batch; //artist link --> art links, in file order
+    private final ParsedLink parsed; //reused for every link
+    private int batched;
+    private int added;
+    private int duplicates;
+    private int invalid;
+
+    /**
+     * Creates a new LinkImporter adding to a collection.
+     *
+     * @param collection Collection to add links to.
+     * @param batchSize Number of links to read before adding them.
+     * @precond collection is nonnull, batchSize is positive
+     */
+    public LinkImporter(SortedMultiMap<String, String> collection, int batchSize){
+        this.collection = collection;
+        this.batchSize = batchSize;
+        batch = new LinkedHashMap<String, List<String>>();
+        parsed = new ParsedLink();
+    }
+
+    /**
+     * Reads and adds every link in a file. Can be called again to
+     * import more files; counts add up across calls.
+     *
+     * @param in File to read, preferably buffered. Not closed.
+     * @throws IOException if the file can't be read. Links read before
+     *             the failure are still added.
+     */
+    public void importFrom(Reader in) throws IOException {
+        StringBuilder token = new StringBuilder();
+        boolean overlong = false;
+
+        try {
+            for (int c = in.read(); c != -1; c = in.read()){
+                boolean separator = Character.isWhitespace(c) || SEPARATORS.indexOf(c) != -1;
+
+                if (c == '\\'){ //JSON escape --> keep the escaped character, except "\n" and the like
+                    c = in.read();
+                    if (c == -1){
+                        break;
+                    }
+                    separator = WHITESPACE_ESCAPES.indexOf(c) != -1;
+                }
+                if (separator){
+                    onToken(token, overlong);
+                    token.setLength(0);
+                    overlong = false;
+                    continue;
+                }
+
+                if (token.length() < MAX_TOKEN_LENGTH){
+                    token.append((char) c);
+                }
+                else {
+                    overlong = true;
+                }
+            }
+            onToken(token, overlong);
+        }
+        finally {
+            flush();
+        }
+    }
+
+    /**
+     * Adds every link in some text, such as a message of pasted links,
+     * finding them with ParsedLink.find(). Call flush() to make sure they
+     * reach the collection.
+     *
+     * @param text Text to read.
+     * @return The number of links found, valid or not.
+     */
+    public int addLinks(CharSequence text){
+        int found = 0;
+
+        for (int from = 0; parsed.find(text, from); from = parsed.getEnd()){
+            addLink(parsed);
+            found++;
+        }
+        return found;
+    }
+
+    /**
+     * Gets the number of links added to the collection.
+     *
+     * @return Links added.
+     */
+    public int getAdded(){
+        return added;
+    }
+
+    /**
+     * Gets the number of valid links the collection already had,
+     * including links repeated in the file.
+     *
+     * @return Duplicate links.
+     */
+    public int getDuplicates(){
+        return duplicates;
+    }
+
+    /**
+     * Gets the number of links that weren't valid post links.
+     *
+     * @return Invalid links.
+     */
+    public int getInvalid(){
+        return invalid;
+    }
+
+    /**
+     * Adds a single link, batching it with the links before it.
+     * Call flush() to make sure it reaches the collection.
+     *
+     * @param link Link to add.
+     * @precond link is nonnull
+     */
+    public void addLink(String link){
+        parsed.parse(link, 0, link.length());
+        addLink(parsed);
+    }
+
+    /**
+     * Adds a single parsed link, see addLink(String).
+     *
+     * @param link Link to add.
+     * @precond link is nonnull
+     */
+    public void addLink(ParsedLink link){
+        if (!link.isCanonical()){
+            invalid++;
+            return;
+        }
+
+        String artLink = LinkUtil.buildCanonicalPostLink(link);
+        String artistLink = LinkUtil.buildCanonicalProfileLink(link);
+        List<String> artLinks = batch.get(artistLink);
+        if (artLinks == null){
+            artLinks = new ArrayList<String>();
+            batch.put(artistLink, artLinks);
+        }
+        artLinks.add(artLink);
+
+        if (++batched == batchSize){
+            flush();
+        }
+    }
+
+    /**
+     * Adds the batched links to the collection.
+     */
+    public void flush(){
+        if (batched == 0){
+            return;
+        }
+
+        try {
+            int batchAdded = collection.addAll(batch);
+            added += batchAdded;
+            duplicates += batched - batchAdded;
+        }
+        catch (IllegalArgumentException e){ //Collection can't store some link --> add one at a time
+            for (Map.Entry<String, List<String>> entry : batch.entrySet()){
+                for (String artLink : entry.getValue()){
+                    addOne(entry.getKey(), artLink);
+                }
+            }
+        }
+
+        batch.clear();
+        batched = 0;
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    private void onToken(StringBuilder token, boolean overlong){
+        if (token.length() < 4 || !(token.charAt(0) == 'h' && token.charAt(1) == 't'
+                && token.charAt(2) == 't' && token.charAt(3) == 'p')){
+            return; //not a link
+        }
+
+        if (overlong){
+            invalid++;
+        }
+        else {
+            addLink(token.toString());
+        }
+    }
+
+    private void addOne(String artistLink, String artLink){
+        try {
+            if (collection.addValue(artistLink, artLink)){
+                added++;
+            }
+            else {
+                duplicates++; //or added by the failed batch
+            }
+        }
+        catch (IllegalArgumentException e){
+            invalid++;
+        }
+    }
+}
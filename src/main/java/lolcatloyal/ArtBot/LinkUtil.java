@@ -1,23 +1,25 @@
 package lolcatloyal.ArtBot;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Class holding static helper methods for handling links.
+ *
+ * Links are parsed by ParsedLink in one pass, into a ParsedLink kept
+ * per thread, so the helpers only allocate the Strings they return.
  */
 public class LinkUtil {
-    //Regex patterns for identifying valid links
-    private static final Pattern TWIT_PATTERN = Pattern.compile("^https://twitter\\.com/.+/status/.+");
-    private static final Pattern FX_PATTERN = Pattern.compile("^https://fxtwitter\\.com/.+/status/.+");
+    public static final String TWIT_PROFILE_PREFIX = "https://twitter.com/";
+    public static final String FX_PREFIX = "https://fxtwitter.com/";
+    public static final String STATUS_SEGMENT = "/status/";
+
+    private static final ThreadLocal<ParsedLink> PARSED = ThreadLocal.withInitial(ParsedLink::new); //reused by every call
 
     /**
      * Determines the type of a given Twitter link.
      *
      * A link can be:
-     * a Twitter post link (0),
-     * an FXTwitter post link (1),
-     * or Invalid (-1).
+     * a Twitter post link (0), including x.com and mobile links,
+     * an FXTwitter post link (1), including the other embed fixers,
+     * or Invalid (-1). See ParsedLink for the hosts supported.
      *
      * Note: Links to users' profiles are considered
      * invalid.
@@ -27,17 +29,9 @@ public class LinkUtil {
      * or -1 for an Invalid link.
      */
     public static int determineLinkType(String link){
-        Matcher twitMatcher = TWIT_PATTERN.matcher(link);
-        Matcher fxMatcher = FX_PATTERN.matcher(link);
-
-        if (twitMatcher.find()){
-            return 0; //Twitter Link
-        }
-        else if (fxMatcher.find()){
-            return 1; //FXTwitter Link
-        }
-
-        return -1;
+        ParsedLink parsed = PARSED.get();
+        parsed.parse(link, 0, link.length());
+        return parsed.getType();
     }
 
     /**
@@ -52,25 +46,74 @@ public class LinkUtil {
      * characters.
      */
     public static String trimLink(String link){
-        link = link.trim(); //trim whitespace
-
-        String[] linkParts = link.split(" "); //split based on whitespaces
-
-        return linkParts[0];
+        ParsedLink parsed = PARSED.get();
+        parsed.parse(link); //finds the link's bounds
+        return link.substring(parsed.getStart(), parsed.getEnd());
     }
 
     /**
      * Returns the FXTwitter version of a given Twitter link by
      * inserting "fx" into it.
      *
-     * @precond twitLink is a Twitter link.
+     * @precond twitLink starts with "https://twitter.com/".
      * @param twitLink The desired Twitter link to turn into an FXTwitter link.
      * @return An FXTwitter version of a desired Twitter link.
      */
     public static String twitToFXLink(String twitLink){
-        StringBuilder result = new StringBuilder(twitLink);
-        result.insert(8, "fx");
-        return result.toString();
+        char[] result = new char[twitLink.length() + 2];
+        twitLink.getChars(0, 8, result, 0); //"https://"
+        result[8] = 'f';
+        result[9] = 'x';
+        twitLink.getChars(8, twitLink.length(), result, 10);
+        return new String(result);
+    }
+
+    /**
+     * Canonicalizes a post link from any supported host to the FXTwitter
+     * form stored in collections, "https://fxtwitter.com/[handle]/status/[id]".
+     * The handle is lowercased, as Twitter handles ignore case, and
+     * anything after the status id, like a query string or "/photo/1",
+     * is dropped. Every link to a post canonicalizes the same way.
+     *
+     * @param link Link to canonicalize.
+     * @return The canonical link, or null if the link is not a post link
+     *             with a word-character handle and a positive status id.
+     */
+    public static String canonicalizePostLink(String link){
+        ParsedLink parsed = PARSED.get();
+        parsed.parse(link, 0, link.length());
+        return parsed.isCanonical() ? buildCanonicalPostLink(parsed) : null;
+    }
+
+    /**
+     * Builds the canonical FXTwitter link of a parsed post link, see
+     * canonicalizePostLink().
+     *
+     * @param parsed A parsed canonical post link.
+     * @return The canonical post link.
+     * @precond parsed.isCanonical()
+     */
+    public static String buildCanonicalPostLink(ParsedLink parsed){
+        StringBuilder link = new StringBuilder(FX_PREFIX.length() + parsed.getHandleEnd() - parsed.getHandleStart()
+                + STATUS_SEGMENT.length() + 19);
+        link.append(FX_PREFIX);
+        appendHandle(link, parsed);
+        return link.append(STATUS_SEGMENT).append(parsed.getStatusId()).toString();
+    }
+
+    /**
+     * Builds the Twitter profile link of the author of a parsed post link,
+     * with the handle lowercased as in canonicalizePostLink().
+     *
+     * @param parsed A parsed canonical post link.
+     * @return The profile link of the post's author.
+     * @precond parsed.isCanonical()
+     */
+    public static String buildCanonicalProfileLink(ParsedLink parsed){
+        StringBuilder link = new StringBuilder(TWIT_PROFILE_PREFIX.length() + parsed.getHandleEnd() - parsed.getHandleStart());
+        link.append(TWIT_PROFILE_PREFIX);
+        appendHandle(link, parsed);
+        return link.toString();
     }
 
     /**
@@ -82,8 +125,72 @@ public class LinkUtil {
      * @return The profile link of the given post's author.
      */
     public static String buildTwitProfileLink(String postLink){
-        String[] linkParts = postLink.split("/");
-        String twitterHandle = linkParts[3];
-        return "https://twitter.com/" + twitterHandle;
+        ParsedLink parsed = PARSED.get();
+        parsed.parse(postLink, 0, postLink.length());
+        return buildProfileLink(postLink, parsed.getHandleStart(), parsed.getHandleEnd());
+    }
+
+    /**
+     * Builds a Twitter user profile link from a handle within some text,
+     * such as the bounds of a ParsedLink's handle.
+     *
+     * @param text Text holding the handle.
+     * @param handleStart Index of the handle's first character.
+     * @param handleEnd Index after the handle's last character.
+     * @return The profile link for the handle.
+     */
+    public static String buildProfileLink(CharSequence text, int handleStart, int handleEnd){
+        return new StringBuilder(TWIT_PROFILE_PREFIX.length() + handleEnd - handleStart)
+                .append(TWIT_PROFILE_PREFIX)
+                .append(text, handleStart, handleEnd)
+                .toString();
+    }
+
+    /**
+     * Gets the handle from a Twitter profile link.
+     *
+     * @param profileLink Link to parse.
+     * @return The handle, or null if the link is not exactly
+     *             "https://twitter.com/[handle]".
+     */
+    public static String getHandleFromProfileLink(String profileLink){
+        int start = TWIT_PROFILE_PREFIX.length();
+
+        if (!profileLink.startsWith(TWIT_PROFILE_PREFIX) || profileLink.length() == start
+                || profileLink.indexOf('/', start) != -1){
+            return null;
+        }
+        return profileLink.substring(start);
+    }
+
+    /**
+     * Builds a Twitter user profile link from a handle.
+     *
+     * @param handle Twitter handle without the '@'.
+     * @return The profile link for the handle.
+     */
+    public static String buildProfileLinkFromHandle(String handle){
+        return TWIT_PROFILE_PREFIX + handle;
+    }
+
+    /**
+     * Appends the lowercased handle of a parsed link.
+     */
+    private static void appendHandle(StringBuilder link, ParsedLink parsed){
+        CharSequence text = parsed.getText();
+        for (int i = parsed.getHandleStart(); i < parsed.getHandleEnd(); i++){
+            link.append(ParsedLink.toLowerCase(text.charAt(i)));
+        }
+    }
+
+    /**
+     * Builds an FXTwitter post link from a handle and status id.
+     *
+     * @param handle Twitter handle of the post's author.
+     * @param statusId Numeric id of the post.
+     * @return The FXTwitter link for the post.
+     */
+    public static String buildFXPostLink(String handle, long statusId){
+        return FX_PREFIX + handle + STATUS_SEGMENT + statusId;
     }
 }
@@ -0,0 +1,203 @@
+package lolcatloyal.ArtBot;
+
+/**
+ * Open addressing hash map from positive long keys to int values.
+ *
+ * Keys and values are stored in primitive arrays, so the map holds no
+ * per-entry objects. Collisions are resolved by linear probing, and
+ * removals shift later entries back instead of leaving tombstones.
+ */
+public class LongIntHashMap {
+    private static final long FREE = 0; //marks an empty slot
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates a new empty LongIntHashMap.
+     */
+    public LongIntHashMap(){
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Gets the value mapped from a given key.
+     *
+     * @param key Key to look up.
+     * @param missing Value to return if the key is not in the map.
+     * @return The key's value, or missing if the key is not in the map.
+     */
+    public int get(long key, int missing){
+        if (key <= 0){
+            return missing;
+        }
+
+        for (int i = slot(key); keys[i] != FREE; i = next(i)){
+            if (keys[i] == key){
+                return values[i];
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Checks whether a key is in the map.
+     *
+     * @param key Key to look up.
+     * @return True if the key is in the map.
+     */
+    public boolean containsKey(long key){
+        if (key <= 0){
+            return false;
+        }
+
+        for (int i = slot(key); keys[i] != FREE; i = next(i)){
+            if (keys[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps a key to a value if the key is not already in the map.
+     *
+     * @param key Key to add.
+     * @param value Value to map the key to.
+     * @return True if the key was not already in the map.
+     * @throws IllegalArgumentException if key is not positive.
+     */
+    public boolean putIfAbsent(long key, int value){
+        if (key <= 0){
+            throw new IllegalArgumentException("Key must be positive: " + key);
+        }
+
+        int i = slot(key);
+        for (; keys[i] != FREE; i = next(i)){
+            if (keys[i] == key){
+                return false;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+
+        //Keep load factor at or below 1/2
+        if (++size * 2 > keys.length){
+            resize(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Adds to the value mapped from a key, counting a missing key as 0,
+     * and removes the key once its value drops to 0 or below.
+     *
+     * @param key Key to add to.
+     * @param delta Amount to add.
+     * @return The key's new value.
+     * @throws IllegalArgumentException if key is not positive.
+     */
+    public int addTo(long key, int delta){
+        if (key <= 0){
+            throw new IllegalArgumentException("Key must be positive: " + key);
+        }
+
+        for (int i = slot(key); keys[i] != FREE; i = next(i)){
+            if (keys[i] == key){
+                values[i] += delta;
+                if (values[i] <= 0){
+                    int value = values[i];
+                    remove(key);
+                    return value;
+                }
+                return values[i];
+            }
+        }
+        if (delta > 0){
+            putIfAbsent(key, delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key Key to remove.
+     * @return True if the key was in the map.
+     */
+    public boolean remove(long key){
+        if (key <= 0){
+            return false;
+        }
+
+        int i = slot(key);
+        while (keys[i] != key){
+            if (keys[i] == FREE){
+                return false;
+            }
+            i = next(i);
+        }
+
+        //Shift back later entries in the probe run so lookups don't stop early
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = next(gap); keys[j] != FREE; j = next(j)){
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)){ //home is not between gap and j
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets the number of keys in the map.
+     *
+     * @return The size of the map.
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Empties the map.
+     */
+    public void clear(){
+        keys = new long[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+        size = 0;
+    }
+
+    private int slot(long key){
+        long h = key * 0x9E3779B97F4A7C15L; //spread sequential ids
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    private int next(int i){
+        return (i + 1) & (keys.length - 1);
+    }
+
+    private void resize(int capacity){
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+
+        for (int j = 0; j < oldKeys.length; j++){
+            if (oldKeys[j] != FREE){
+                int i = slot(oldKeys[j]);
+                while (keys[i] != FREE){
+                    i = next(i);
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package lolcatloyal.ArtBot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Merges text messages sent to the same channel within a short window
+ * into as few messages as possible, so a command's responses cost one
+ * API call against the channel's rate limit instead of several.
+ *
+ * The first text queued for a channel schedules a flush after the window;
+ * later texts join it. A flush sends the queued texts joined by newlines,
+ * split into as many messages as needed to stay under Discord's length
+ * limit. Texts are sent in the order they were queued.
+ *
+ * A channel's entry is removed once its texts are sent, so channels that
+ * go quiet don't keep one each.
+ *
+ * Messages that can't be merged, like ones with buttons, should be sent
+ * after calling flush() for their channel so they stay in order.
+ *
+ * MessageCoalescer is thread-safe.
+ *
+ * @param <C> The type of channel messages are sent to
+ */
+@SuppressWarnings("Convert2Diamond")
+public class MessageCoalescer<C> {
+    public static final int MAX_MESSAGE_LENGTH = 2000; //Discord's limit for message content
+
+    private final ToLongFunction<? super C> idOf;
+    private final BiConsumer<? super C, String> sender;
+    private final long window;
+    private final TimeUnit unit;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<Long, Pending> pending; //channel id --> texts waiting to be sent
+    private final AtomicLong queuedCount;
+    private final AtomicLong sentCount;
+
+    /**
+     * Texts queued for a single channel.
+     */
+    private final class Pending {
+        private final long id;
+        private final C channel;
+        private final List<String> texts = new ArrayList<String>();
+        private boolean scheduled; //a flush is scheduled
+        private boolean removed; //no longer in pending, texts must go to a new Pending
+
+        private Pending(long id, C channel){
+            this.id = id;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Creates a new MessageCoalescer.
+     *
+     * @param idOf Gets the id of a channel.
+     * @param sender Sends a message's text to a channel.
+     * @param window How long to wait for more texts after the first is queued.
+     * @param unit Unit of window.
+     * @param scheduler Runs scheduled flushes.
+     */
+    public MessageCoalescer(ToLongFunction<? super C> idOf, BiConsumer<? super C, String> sender,
+                            long window, TimeUnit unit, ScheduledExecutorService scheduler){
+        this.idOf = idOf;
+        this.sender = sender;
+        this.window = window;
+        this.unit = unit;
+        this.scheduler = scheduler;
+        pending = new ConcurrentHashMap<Long, Pending>();
+        queuedCount = new AtomicLong();
+        sentCount = new AtomicLong();
+    }
+
+    /**
+     * Queues a text to be sent to a channel.
+     *
+     * @param channel Channel to send to.
+     * @param text Text to send.
+     * @precond channel and text are nonnull
+     */
+    public void send(C channel, String text){
+        long channelId = idOf.applyAsLong(channel);
+
+        while (true){
+            Pending p = pending.computeIfAbsent(channelId, id -> new Pending(id, channel));
+
+            synchronized (p){
+                if (p.removed){ //flushed and removed since it was looked up
+                    continue;
+                }
+                p.texts.add(text);
+                queuedCount.incrementAndGet();
+
+                if (!p.scheduled){
+                    p.scheduled = true;
+                    scheduler.schedule(() -> flush(p), window, unit);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends any texts queued for a channel now.
+     *
+     * @param channel Channel to flush.
+     * @precond channel is nonnull
+     */
+    public void flush(C channel){
+        Pending p = pending.get(idOf.applyAsLong(channel));
+
+        if (p != null){
+            flush(p);
+        }
+    }
+
+    /**
+     * Gets the number of texts queued so far.
+     *
+     * @return The number of texts passed to send().
+     */
+    public long getQueuedCount(){
+        return queuedCount.get();
+    }
+
+    /**
+     * Gets the number of messages sent so far.
+     *
+     * @return The number of messages passed to the sender.
+     */
+    public long getSentCount(){
+        return sentCount.get();
+    }
+
+    /**
+     * Gets the number of channels with texts waiting to be sent.
+     *
+     * @return The number of channels queued to but not yet flushed.
+     */
+    public int getPendingChannelCount(){
+        return pending.size();
+    }
+
+    /**
+     * Gets the number of API calls saved by merging texts.
+     *
+     * @return Texts queued minus messages sent, counting texts still queued.
+     */
+    public long getSavedCount(){
+        return queuedCount.get() - sentCount.get();
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    private void flush(Pending p){
+        synchronized (p){ //send while holding the lock so flushes can't reorder texts
+            StringBuilder message = new StringBuilder();
+
+            for (String text : p.texts){
+                //Start a new message if this text won't fit
+                if (message.length() > 0 && message.length() + 1 + text.length() > MAX_MESSAGE_LENGTH){
+                    sendMessage(p.channel, message.toString());
+                    message.setLength(0);
+                }
+                if (message.length() > 0){
+                    message.append('\n');
+                }
+                message.append(text);
+            }
+            if (message.length() > 0){
+                sendMessage(p.channel, message.toString());
+            }
+
+            p.texts.clear();
+            p.scheduled = false;
+
+            //Drop the drained entry; later texts make a new one
+            p.removed = true;
+            pending.remove(p.id, p);
+        }
+    }
+
+    private void sendMessage(C channel, String message){
+        sender.accept(channel, message);
+        sentCount.incrementAndGet();
+    }
+}
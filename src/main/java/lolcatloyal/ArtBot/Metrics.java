@@ -0,0 +1,233 @@
+package lolcatloyal.ArtBot;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named latency histograms, counters and gauges describing how the bot
+ * is doing, readable over JMX and in Prometheus' text format.
+ *
+ * Metrics are created by name on first use; callers should look one up
+ * once and keep it, so recording is an atomic increment or two with no
+ * lookup or allocation. Gauges are read only when the metrics are.
+ *
+ * Over JMX, each counter and gauge is an attribute, and each histogram
+ * is an attribute per statistic, like "artbot_command_add_seconds_p99".
+ * Latencies are in seconds.
+ *
+ * Metrics is thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class Metrics implements DynamicMBean {
+    public static final String DEFAULT_OBJECT_NAME = "lolcatloyal.ArtBot:type=Metrics";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String[] HISTOGRAM_STATS = {"count", "mean", "p50", "p90", "p99", "max"};
+
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+    private final ConcurrentHashMap<String, LongAdder> counters;
+    private final ConcurrentHashMap<String, LongSupplier> gauges;
+
+    /**
+     * Creates a new Metrics with no metrics.
+     */
+    public Metrics(){
+        histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+        counters = new ConcurrentHashMap<String, LongAdder>();
+        gauges = new ConcurrentHashMap<String, LongSupplier>();
+    }
+
+    /**
+     * Gets the latency histogram with a name, creating it if needed.
+     *
+     * @param name Name of the histogram, like "artbot_command_add_seconds".
+     * @return The histogram.
+     */
+    public LatencyHistogram histogram(String name){
+        LatencyHistogram h = histograms.get(name); //computeIfAbsent locks even when present
+        return (h != null) ? h : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets the counter with a name, creating it if needed.
+     *
+     * @param name Name of the counter, like "artbot_links_added_total".
+     * @return The counter.
+     */
+    public LongAdder counter(String name){
+        LongAdder c = counters.get(name);
+        return (c != null) ? c : counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Adds a gauge, replacing any gauge with the same name.
+     *
+     * @param name Name of the gauge, like "artbot_artists".
+     * @param value Reads the gauge's current value. Called whenever the metrics are read.
+     */
+    public void gauge(String name, LongSupplier value){
+        gauges.put(name, value);
+    }
+
+    /**
+     * Writes every metric in Prometheus' text exposition format.
+     * Histograms are written as summaries with a few quantiles, plus a
+     * separate "_max" gauge.
+     *
+     * @return The metrics, sorted by name.
+     */
+    public String render(){
+        StringBuilder out = new StringBuilder();
+
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<String, LongAdder>(counters).entrySet()){
+            out.append("# TYPE ").append(counter.getKey()).append(" counter\n")
+                    .append(counter.getKey()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> gauge : new TreeMap<String, LongSupplier>(gauges).entrySet()){
+            out.append("# TYPE ").append(gauge.getKey()).append(" gauge\n")
+                    .append(gauge.getKey()).append(' ').append(gauge.getValue().getAsLong()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet()){
+            String name = entry.getKey();
+            LatencyHistogram h = entry.getValue();
+
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double q : QUANTILES){
+                out.append(name).append("{quantile=\"").append(q).append("\"} ")
+                        .append(seconds(h.getPercentileNanos(q * 100))).append('\n');
+            }
+            out.append(name).append("_sum ").append(seconds(h.getTotalNanos())).append('\n')
+                    .append(name).append("_count ").append(h.getCount()).append('\n')
+                    .append("# TYPE ").append(name).append("_max gauge\n")
+                    .append(name).append("_max ").append(seconds(h.getMaxNanos())).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server.
+     *
+     * @param objectName Name to register under, usually DEFAULT_OBJECT_NAME.
+     * @throws JMException if the name is invalid or already taken.
+     */
+    public void registerMBean(String objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(objectName);
+
+        if (server.isRegistered(name)){
+            throw new InstanceAlreadyExistsException(objectName);
+        }
+        server.registerMBean(this, name);
+    }
+
+    //--- DynamicMBean --------------------------------------------------------------
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongAdder counter = counters.get(attribute);
+        if (counter != null){
+            return counter.sum();
+        }
+        LongSupplier gauge = gauges.get(attribute);
+        if (gauge != null){
+            return gauge.getAsLong();
+        }
+
+        int split = attribute.lastIndexOf('_');
+        LatencyHistogram h = (split < 0) ? null : histograms.get(attribute.substring(0, split));
+        if (h != null){
+            switch (attribute.substring(split + 1)){
+                case "count":
+                    return h.getCount();
+                case "mean":
+                    return seconds(h.getMeanNanos());
+                case "p50":
+                    return seconds(h.getPercentileNanos(50));
+                case "p90":
+                    return seconds(h.getPercentileNanos(90));
+                case "p99":
+                    return seconds(h.getPercentileNanos(99));
+                case "max":
+                    return seconds(h.getMaxNanos());
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes){
+        AttributeList list = new AttributeList();
+
+        for (String attribute : attributes){
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            }
+            catch (AttributeNotFoundException e){ //skip, as the interface asks
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes){
+        return new AttributeList(); //all read-only
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo(){
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+
+        for (String name : new TreeMap<String, LongAdder>(counters).keySet()){
+            attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+        }
+        for (String name : new TreeMap<String, LongSupplier>(gauges).keySet()){
+            attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+        }
+        for (String name : new TreeMap<String, LatencyHistogram>(histograms).keySet()){
+            for (String stat : HISTOGRAM_STATS){
+                boolean count = stat.equals("count");
+                attributes.add(new MBeanAttributeInfo(name + "_" + stat, count ? "long" : "double",
+                        count ? "Latencies recorded" : "Latency " + stat + " in seconds", true, false, false));
+            }
+        }
+
+        return new MBeanInfo(getClass().getName(), "ArtBot metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    private static double seconds(long nanos){
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,69 @@
+package lolcatloyal.ArtBot;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves Metrics over HTTP at /metrics in Prometheus' text format, for a
+ * scraper running on the same host.
+ *
+ * The server listens on the loopback address only and renders the
+ * metrics afresh for every request, on a single thread.
+ */
+public class MetricsServer {
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    /**
+     * Starts a new MetricsServer.
+     *
+     * @param metrics Metrics to serve.
+     * @param port Port to listen on, or 0 for any free port.
+     * @throws IOException if the port can't be bound.
+     */
+    public MetricsServer(Metrics metrics, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")){
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+
+                byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port.
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, closing open connections.
+     */
+    public void stop(){
+        server.stop(0);
+    }
+}
@@ -0,0 +1,389 @@
+package lolcatloyal.ArtBot;
+
+import java.util.*;
+
+/**
+ * Immutable, versioned view of a SortedMultiMap at a point in time.
+ *
+ * Snapshots are backed by PersistentSortedMaps, so bringing a snapshot up to
+ * date with a change only copies the O(log n) nodes the change touches, and
+ * the old snapshot is left as it was. A snapshot stays consistent while the map
+ * keeps changing, and is garbage collected once nothing refers to it.
+ *
+ * Maps record their writes as Changes and apply them to their snapshot when
+ * the next snapshot is requested, so writes don't pay for snapshots nobody
+ * reads.
+ *
+ * @param <K> The type of Keys stored
+ * @param <V> The type of Values stored
+ */
+@SuppressWarnings({"unchecked", "rawtypes", "Convert2Diamond"})
+public final class MultiMapSnapshot<K extends Comparable<K>, V> {
+    private static final MultiMapSnapshot EMPTY = new MultiMapSnapshot(0, PersistentSortedMap.empty());
+    private static final int MIN_BULK_CHANGES = 1024;
+    private final long version;
+
+    //Each Key's Values are keyed by an order number that sorts them in LIFO order
+    private final PersistentSortedMap<K, PersistentSortedMap<Long, V>> tree;
+
+    private MultiMapSnapshot(long version, PersistentSortedMap<K, PersistentSortedMap<Long, V>> tree){
+        this.version = version;
+        this.tree = tree;
+    }
+
+    /**
+     * Creates a snapshot from a tree of Keys and Values.
+     *
+     * @param version Version of the map the snapshot is of.
+     * @param tree Each Key mapped to its Values, keyed by order numbers that
+     *             sort them in LIFO order when ascending.
+     * @return The snapshot.
+     */
+    static <K extends Comparable<K>, V> MultiMapSnapshot<K, V> of(long version,
+            PersistentSortedMap<K, PersistentSortedMap<Long, V>> tree){
+        return new MultiMapSnapshot<K, V>(version, tree);
+    }
+
+    /**
+     * Gets the empty snapshot at version 0.
+     *
+     * @param <K> The type of Keys stored
+     * @param <V> The type of Values stored
+     * @return An empty snapshot.
+     */
+    public static <K extends Comparable<K>, V> MultiMapSnapshot<K, V> empty(){
+        return (MultiMapSnapshot<K, V>) EMPTY;
+    }
+
+    /**
+     * Gets the version of the map this snapshot was taken at. Versions
+     * increase by one with every change to the map.
+     *
+     * @return The snapshot's version.
+     */
+    public long getVersion(){
+        return version;
+    }
+
+    /**
+     * Gets a List of the snapshot's Keys in ascending order.
+     * get() and indexOf() run in O(log n).
+     *
+     * @return An unmodifiable List of Keys.
+     */
+    public List<K> getKeys(){
+        return tree.keys();
+    }
+
+    /**
+     * Gets the Key at a given position in ascending order in O(log n).
+     *
+     * @param index Position of the Key.
+     * @return The Key at the given position.
+     * @throws IndexOutOfBoundsException if index is not in [0, number of Keys).
+     */
+    public K keyAt(int index){
+        return tree.keyAt(index);
+    }
+
+    /**
+     * Gets the position of a given Key in ascending order in O(log n).
+     *
+     * @param key Key to look up.
+     * @precond key is nonnull
+     * @return The Key's position, or -1 if the Key is not in the snapshot.
+     */
+    public int indexOfKey(K key){
+        return tree.indexOf(key);
+    }
+
+    /**
+     * Gets a List of the Values associated with a given Key in
+     * LIFO order. get() runs in O(log n).
+     *
+     * @param key Key for the desired Values.
+     * @precond key is nonnull
+     * @return An unmodifiable List of Values, or null if the Key is not in the snapshot.
+     */
+    public List<V> getValuesForKey(K key){
+        PersistentSortedMap<Long, V> values = tree.get(key);
+        return (values == null) ? null : values.values();
+    }
+
+    /**
+     * Checks whether the snapshot is empty.
+     *
+     * @return True if the snapshot holds no Keys.
+     */
+    public boolean isEmpty(){
+        return tree.isEmpty();
+    }
+
+    //--- Updates (used by SortedMultiMap implementations) --------------------------------
+
+    /**
+     * A single write to a map, to be applied to its snapshot later.
+     *
+     * @param <K> The type of Keys stored
+     * @param <V> The type of Values stored
+     */
+    static final class Change<K extends Comparable<K>, V> {
+        private static final byte ADD = 0;
+        private static final byte REMOVE_VALUE = 1;
+        private static final byte REMOVE_KEY = 2;
+        private static final byte CLEAR = 3;
+        private static final byte PUSH = 4; //ADD with the order worked out when applied
+        private static final byte REMOVE_EQUAL_VALUE = 5; //REMOVE_VALUE found by the Value when applied
+
+        private final byte type;
+        private final K key;
+        private final long order;
+        private final V value;
+
+        private Change(byte type, K key, long order, V value){
+            this.type = type;
+            this.key = key;
+            this.order = order;
+            this.value = value;
+        }
+
+        static <K extends Comparable<K>, V> Change<K, V> added(K key, long order, V value){
+            return new Change<K, V>(ADD, key, order, value);
+        }
+
+        static <K extends Comparable<K>, V> Change<K, V> valueRemoved(K key, long order){
+            return new Change<K, V>(REMOVE_VALUE, key, order, null);
+        }
+
+        /**
+         * Records a Value added as its Key's newest, for maps that don't keep
+         * order numbers. The order is worked out from the snapshot it is
+         * applied to.
+         */
+        static <K extends Comparable<K>, V> Change<K, V> pushed(K key, V value){
+            return new Change<K, V>(PUSH, key, 0, value);
+        }
+
+        /**
+         * Records a Value removed, for maps that don't keep order numbers. The
+         * Value is found among its Key's Values in the snapshot it is applied
+         * to, in time linear in their number.
+         */
+        static <K extends Comparable<K>, V> Change<K, V> equalValueRemoved(K key, V value){
+            return new Change<K, V>(REMOVE_EQUAL_VALUE, key, 0, value);
+        }
+
+        static <K extends Comparable<K>, V> Change<K, V> keyRemoved(K key){
+            return new Change<K, V>(REMOVE_KEY, key, 0, null);
+        }
+
+        static <K extends Comparable<K>, V> Change<K, V> cleared(){
+            return new Change<K, V>(CLEAR, null, 0, null);
+        }
+
+        /**
+         * Applies this change to a snapshot.
+         *
+         * @param snapshot Snapshot to update.
+         * @return The next version of the snapshot.
+         */
+        MultiMapSnapshot<K, V> applyTo(MultiMapSnapshot<K, V> snapshot){
+            switch (type){
+                case ADD:
+                    return snapshot.withValue(key, order, value);
+                case REMOVE_VALUE:
+                    return snapshot.withoutValue(key, order);
+                case REMOVE_KEY:
+                    return snapshot.withoutKey(key);
+                case PUSH: {
+                    PersistentSortedMap<Long, V> values = snapshot.tree.get(key);
+                    long first = (values == null || values.isEmpty()) ? 1 : values.keyAt(0);
+                    return snapshot.withValue(key, first - 1, value);
+                }
+                case REMOVE_EQUAL_VALUE: {
+                    PersistentSortedMap<Long, V> values = snapshot.tree.get(key);
+                    int size = (values == null) ? 0 : values.size();
+                    for (int i = 0; i < size; i++){
+                        if (values.valueAt(i).equals(value)){
+                            return snapshot.withoutValue(key, values.keyAt(i));
+                        }
+                    }
+                    return new MultiMapSnapshot<K, V>(snapshot.version + 1, snapshot.tree); //not there
+                }
+                default:
+                    return snapshot.cleared();
+            }
+        }
+    }
+
+    /**
+     * Applies changes to a snapshot in order.
+     *
+     * A large batch is applied by copying out the Keys it touches and
+     * rebuilding the tree, which costs O(n) instead of O(log n) per change.
+     *
+     * @param snapshot Snapshot to update.
+     * @param changes Changes to apply, oldest first.
+     * @return The snapshot after every change.
+     */
+    static <K extends Comparable<K>, V> MultiMapSnapshot<K, V> applyAll(MultiMapSnapshot<K, V> snapshot,
+            Collection<Change<K, V>> changes){
+        if (changes.size() < MIN_BULK_CHANGES || changes.size() < snapshot.valueCount() / 16){
+            for (Change<K, V> change : changes){
+                snapshot = change.applyTo(snapshot);
+            }
+            return snapshot;
+        }
+
+        //Untouched Keys keep their trees, touched Keys are edited as TreeMaps
+        TreeMap<K, PersistentSortedMap<Long, V>> contents = new TreeMap<K, PersistentSortedMap<Long, V>>();
+        Map<K, TreeMap<Long, V>> edited = new HashMap<K, TreeMap<Long, V>>();
+        PersistentSortedMap<K, PersistentSortedMap<Long, V>> tree = snapshot.tree;
+
+        for (int i = 0; i < tree.size(); i++){
+            contents.put(tree.keyAt(i), tree.valueAt(i));
+        }
+
+        for (Change<K, V> change : changes){
+            switch (change.type){
+                case Change.ADD:
+                    edit(contents, edited, change.key).put(change.order, change.value);
+                    break;
+                case Change.REMOVE_VALUE:
+                    if (contents.containsKey(change.key)){
+                        TreeMap<Long, V> values = edit(contents, edited, change.key);
+                        values.remove(change.order);
+                        if (values.isEmpty()){
+                            contents.remove(change.key);
+                            edited.remove(change.key);
+                        }
+                    }
+                    break;
+                case Change.REMOVE_KEY:
+                    contents.remove(change.key);
+                    edited.remove(change.key);
+                    break;
+                case Change.PUSH: {
+                    TreeMap<Long, V> values = edit(contents, edited, change.key);
+                    values.put(values.isEmpty() ? 0 : values.firstKey() - 1, change.value);
+                    break;
+                }
+                case Change.REMOVE_EQUAL_VALUE:
+                    if (contents.containsKey(change.key)){
+                        TreeMap<Long, V> values = edit(contents, edited, change.key);
+                        values.values().remove(change.value);
+                        if (values.isEmpty()){
+                            contents.remove(change.key);
+                            edited.remove(change.key);
+                        }
+                    }
+                    break;
+                default:
+                    contents.clear();
+                    edited.clear();
+            }
+        }
+
+        K[] keys = (K[]) new Comparable[contents.size()];
+        PersistentSortedMap<Long, V>[] trees = new PersistentSortedMap[contents.size()];
+        int i = 0;
+        for (Map.Entry<K, PersistentSortedMap<Long, V>> entry : contents.entrySet()){
+            TreeMap<Long, V> values = edited.get(entry.getKey());
+            keys[i] = entry.getKey();
+            trees[i++] = (values == null) ? entry.getValue() : PersistentSortedMap.ofSorted(
+                    values.keySet().toArray(new Long[0]), (V[]) values.values().toArray());
+        }
+        return new MultiMapSnapshot<K, V>(snapshot.version + changes.size(), PersistentSortedMap.ofSorted(keys, trees));
+    }
+
+    /**
+     * Gets an editable copy of a Key's Values, adding the Key if needed.
+     */
+    private static <K extends Comparable<K>, V> TreeMap<Long, V> edit(TreeMap<K, PersistentSortedMap<Long, V>> contents,
+            Map<K, TreeMap<Long, V>> edited, K key){
+        TreeMap<Long, V> values = edited.get(key);
+
+        if (values == null){
+            values = new TreeMap<Long, V>();
+            PersistentSortedMap<Long, V> current = contents.get(key);
+            if (current == null){
+                contents.put(key, PersistentSortedMap.<Long, V>empty());
+            }
+            else {
+                for (int i = 0; i < current.size(); i++){
+                    values.put(current.keyAt(i), current.valueAt(i));
+                }
+            }
+            edited.put(key, values);
+        }
+        return values;
+    }
+
+    /**
+     * Counts the Values in the snapshot in O(k) for k Keys.
+     *
+     * @return The number of Values.
+     */
+    int valueCount(){
+        int count = 0;
+        for (int i = 0; i < tree.size(); i++){
+            count += tree.valueAt(i).size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the next version of this snapshot with a Value added.
+     *
+     * @param key Key of the Value.
+     * @param order Number that sorts the Key's Values in LIFO order when ascending.
+     * @param value Value to add.
+     * @return The updated snapshot.
+     */
+    MultiMapSnapshot<K, V> withValue(K key, long order, V value){
+        PersistentSortedMap<Long, V> values = tree.get(key);
+
+        if (values == null){
+            values = PersistentSortedMap.empty();
+        }
+        return new MultiMapSnapshot<K, V>(version + 1, tree.put(key, values.put(order, value)));
+    }
+
+    /**
+     * Returns the next version of this snapshot with a Value removed.
+     * Removes the Key if the Value was its last.
+     *
+     * @param key Key of the Value.
+     * @param order Order number the Value was added with.
+     * @return The updated snapshot.
+     */
+    MultiMapSnapshot<K, V> withoutValue(K key, long order){
+        PersistentSortedMap<Long, V> values = tree.get(key);
+
+        if (values == null){
+            return new MultiMapSnapshot<K, V>(version + 1, tree);
+        }
+        values = values.remove(order);
+        return new MultiMapSnapshot<K, V>(version + 1,
+                values.isEmpty() ? tree.remove(key) : tree.put(key, values));
+    }
+
+    /**
+     * Returns the next version of this snapshot with a Key removed.
+     *
+     * @param key Key to remove.
+     * @return The updated snapshot.
+     */
+    MultiMapSnapshot<K, V> withoutKey(K key){
+        return new MultiMapSnapshot<K, V>(version + 1, tree.remove(key));
+    }
+
+    /**
+     * Returns the next version of this snapshot with every Key removed.
+     *
+     * @return The updated snapshot.
+     */
+    MultiMapSnapshot<K, V> cleared(){
+        return new MultiMapSnapshot<K, V>(version + 1, PersistentSortedMap.<K, PersistentSortedMap<Long, V>>empty());
+    }
+}
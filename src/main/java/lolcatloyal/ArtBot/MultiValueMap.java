@@ -8,40 +8,76 @@ import java.util.*;
  * Keys must extend Comparable<K>. Keys are stored in ascending order according to
  * their compareTo() implementation.
  *
- * Values are stored in LIFO order.
+ * Values are stored in LIFO order. Each Key's Values are held in a
+ * HashLinkedList, so duplicate checks, inserts and removals never scan
+ * the Key's Values.
+ *
+ * Writes are queued as changes to the map's last MultiMapSnapshot, and
+ * snapshot() applies them in O(log n) each. When more changes pile up than
+ * applying them is worth, the snapshot is rebuilt from the map in O(n) instead.
+ *
+ * A reverse index maps each Value to the Keys it is stored under, so
+ * containsValue() and getKeysForValue() run in constant time.
+ *
+ * MultiValueMap is not thread-safe. Use ConcurrentMultiValueMap when the
+ * map is shared between threads.
  *
  * @param <K> The type of Keys to be stored
  * @param <V> The type of Values to be stored
  */
 @SuppressWarnings("unused, Convert2Diamond")
-public class MultiValueMap<K extends Comparable<K>, V> {
-    private SortedMap<K, List<V>> map;
+public class MultiValueMap<K extends Comparable<K>, V> implements SortedMultiMap<K, V> {
+    private static final int MIN_REBUILD_THRESHOLD = 1024;
+
+    private SortedMap<K, HashLinkedList<V>> map;
+    private Map<V, Object> owners; //Value --> Keys storing it, see ValueOwners
+    private int valueCount;
+    private long version; //number of changes made to the map
+
+    private MultiMapSnapshot<K, V> snapshot; //contents as of the last snapshot() call
+    private final List<MultiMapSnapshot.Change<K, V>> changes; //changes since snapshot was taken
+    private boolean rebuild; //too many changes to apply --> rebuild snapshot from map
 
     /**
      * Creates a new empty MultiValueMap.
      */
     public MultiValueMap() {
-        map = new TreeMap<K, List<V>>();
+        map = new TreeMap<K, HashLinkedList<V>>();
+        owners = new HashMap<V, Object>();
+        snapshot = MultiMapSnapshot.empty();
+        changes = new ArrayList<MultiMapSnapshot.Change<K, V>>();
     }
 
     /**
-     * Creates a new MultiValueMap with the given map.
+     * Creates a new MultiValueMap holding the mappings of the given map.
+     *
+     * The given map is copied, keeping the order of each Key's Values.
+     * Duplicate Values for a Key are dropped.
      *
-     * @param m A SortedMap of K Keys and associated List<V> holding values for each key.
+     * @param m A SortedMap of K Keys and associated List<V> holding values for each key
+     *          in LIFO order.
      * @precond m is nonnull
      */
     public MultiValueMap(SortedMap<K, List<V>> m){
-        map = m;
+        this();
+        for (Map.Entry<K, List<V>> entry : m.entrySet()){
+            List<V> values = entry.getValue();
+
+            //Push oldest first to keep LIFO order
+            for (ListIterator<V> it = values.listIterator(values.size()); it.hasPrevious();){
+                addValue(entry.getKey(), it.previous());
+            }
+        }
     }
 
     /**
      * Gets a Set of Keys stored in the map sorted
      * in alphabetical order.
      *
-     * @return A Set containing the map's keys in alphabetical order.
+     * @return An unmodifiable Set containing the map's keys in alphabetical order.
      */
     public Set<K> getKeys(){
-       return map.keySet();
+       return Collections.unmodifiableSet(map.keySet());
     }
 
     /**
@@ -51,16 +87,11 @@ public class MultiValueMap<K extends Comparable<K>, V> {
      * @param key Key for the desired Values in the map.
      * @precond key is nonnull
      * @return A List of Values mapped from the desired Key arranged in LIFO order. Null if the
-     *             given key is not in the map.
+     *             given key is not in the map. The List is an unmodifiable view.
      */
     public List<V> getValuesForKey(K key){
-        //Case 1: key is in map
-        if (map.containsKey(key)){
-            return map.get(key);
-        }
-
-        //Case 2: key not in map
-        return null;
+        HashLinkedList<V> values = map.get(key);
+        return (values == null) ? null : Collections.unmodifiableList(values);
     }
 
     /**
@@ -75,25 +106,64 @@ public class MultiValueMap<K extends Comparable<K>, V> {
      *             Key.
      */
     public boolean addValue(K key, V value){
+        HashLinkedList<V> values = map.get(key);
+
         //Case 1: key not in map
-        if (!map.containsKey(key)){
-            List<V> l = new ArrayList<V>();
-            l.add(value);
-            map.put(key, l); //Add key and value to map
-            return true;
+        if (values == null){
+            values = new HashLinkedList<V>();
+            map.put(key, values); //Add key to map
         }
 
-        //Case 2: key in map
-        List<V> values = map.get(key);
-
-        //Check for duplicates
-        if (values.contains(value)){
+        //Case 2: key in map -- push fails on duplicates
+        if (!values.push(value)){
             return false;
         }
-        values.add(0, value);
+        owners.merge(value, key, ValueOwners::with);
+        valueCount++;
+        if (recordChange()){
+            changes.add(MultiMapSnapshot.Change.added(key, -values.pushNumberOf(value), value));
+        }
         return true;
     }
 
+    /**
+     * Adds Values to the map grouped by Key, as if by calling addValue()
+     * for each Value in iteration order. Each Key is looked up once.
+     *
+     * @param values Values to add, grouped by Key.
+     * @precond values, its Keys and Values are nonnull
+     * @return The number of Values added.
+     */
+    public int addAll(Map<K, ? extends Collection<? extends V>> values){
+        int added = 0;
+
+        for (Map.Entry<K, ? extends Collection<? extends V>> entry : values.entrySet()){
+            K key = entry.getKey();
+            HashLinkedList<V> list = map.get(key);
+            boolean created = (list == null);
+
+            if (created){
+                list = new HashLinkedList<V>();
+            }
+            for (V value : entry.getValue()){
+                if (list.push(value)){
+                    owners.merge(value, key, ValueOwners::with);
+                    valueCount++;
+                    added++;
+                    if (recordChange()){
+                        changes.add(MultiMapSnapshot.Change.added(key, -list.pushNumberOf(value), value));
+                    }
+                }
+            }
+
+            //Only add Keys that received a Value
+            if (created && !list.isEmpty()){
+                map.put(key, list);
+            }
+        }
+        return added;
+    }
+
     /**
      * Removes the given Value associated with a given Key from
      * the map if the Key is in the Map and the Value is associated
@@ -111,16 +181,23 @@ public class MultiValueMap<K extends Comparable<K>, V> {
      *              given Value.
      */
     public boolean removeValue(K key, V value){
+        HashLinkedList<V> values = map.get(key);
+
         //Case 1: key not in map
-        if (!map.containsKey(key)){
+        if (values == null){
             return false;
         }
 
         //Case 2: key in map
-        List<V> values = map.get(key);
+        long pushNumber = values.pushNumberOf(value);
 
         //Value is in list and has been removed
         if (values.remove(value)){
+            owners.computeIfPresent(value, (v, keys) -> ValueOwners.without(keys, key));
+            valueCount--;
+            if (recordChange()){
+                changes.add(MultiMapSnapshot.Change.<K, V>valueRemoved(key, -pushNumber));
+            }
             if (values.size() == 0){
                 map.remove(key); //No associated values --> remove key
             }
@@ -139,14 +216,31 @@ public class MultiValueMap<K extends Comparable<K>, V> {
      * @return True if the Key was in the map.
      */
     public boolean removeKey(K key){
-        return map.remove(key) != null;
+        HashLinkedList<V> values = map.remove(key);
+
+        if (values == null){
+            return false;
+        }
+        for (V value : values){
+            owners.computeIfPresent(value, (v, keys) -> ValueOwners.without(keys, key));
+        }
+        valueCount -= values.size();
+        if (recordChange()){
+            changes.add(MultiMapSnapshot.Change.<K, V>keyRemoved(key));
+        }
+        return true;
     }
 
     /**
      * Empties the map of all Key and Value mappings.
      */
     public void clear(){
-        map = new TreeMap<K, List<V>>();
+        map = new TreeMap<K, HashLinkedList<V>>();
+        owners = new HashMap<V, Object>();
+        valueCount = 0;
+        if (recordChange()){
+            changes.add(MultiMapSnapshot.Change.<K, V>cleared());
+        }
     }
 
     /**
@@ -156,4 +250,127 @@ public class MultiValueMap<K extends Comparable<K>, V> {
      */
     public boolean isEmpty() { return map.isEmpty(); }
 
+    @Override
+    public int valueCount(){
+        return valueCount;
+    }
+
+    /**
+     * Gets the Key at a given position in ascending order.
+     *
+     * Runs in O(log n) on the map's snapshot, once any writes since
+     * the last snapshot have been applied to it.
+     *
+     * @param index Position of the Key.
+     * @return The Key at the given position.
+     * @throws IndexOutOfBoundsException if index is not in [0, number of Keys).
+     */
+    public K keyAt(int index){
+        return snapshot().keyAt(index);
+    }
+
+    /**
+     * Gets the position of a given Key in ascending order.
+     *
+     * Runs in O(log n) on the map's snapshot, once any writes since
+     * the last snapshot have been applied to it.
+     *
+     * @param key Key to look up.
+     * @precond key is nonnull
+     * @return The Key's position, or -1 if the Key is not in the map.
+     */
+    public int indexOfKey(K key){
+        return snapshot().indexOfKey(key);
+    }
+
+    /**
+     * Checks whether a Value is associated with any Key in the map
+     * in constant time.
+     *
+     * @param value Value to look up.
+     * @precond value is nonnull
+     * @return True if some Key is mapped to the Value.
+     */
+    public boolean containsValue(V value){
+        return owners.containsKey(value);
+    }
+
+    /**
+     * Gets the Keys a given Value is associated with in constant time.
+     *
+     * @param value Value to look up.
+     * @precond value is nonnull
+     * @return An unmodifiable Set of the Value's Keys in ascending order.
+     *             Empty if the Value is not in the map.
+     */
+    public Set<K> getKeysForValue(V value){
+        return ValueOwners.keys(owners.get(value));
+    }
+
+    /**
+     * Gets an immutable snapshot of the map's current contents. Runs in
+     * constant time if the map hasn't changed since the last call.
+     *
+     * @return A snapshot of the map.
+     */
+    public MultiMapSnapshot<K, V> snapshot(){
+        if (rebuild){
+            snapshot = buildSnapshot();
+            rebuild = false;
+        }
+        else {
+            for (MultiMapSnapshot.Change<K, V> change : changes){
+                snapshot = change.applyTo(snapshot);
+            }
+            changes.clear();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Counts a change to the map, switching to a rebuild once
+     * too many changes are queued.
+     *
+     * @return True if the change should be queued.
+     */
+    private boolean recordChange(){
+        version++;
+
+        if (rebuild){
+            return false;
+        }
+        if (changes.size() >= Math.max(MIN_REBUILD_THRESHOLD, valueCount / 16)){
+            changes.clear();
+            rebuild = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Builds a snapshot of the map's current contents in O(n).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MultiMapSnapshot<K, V> buildSnapshot(){
+        K[] keys = (K[]) new Comparable[map.size()];
+        PersistentSortedMap<Long, V>[] trees = new PersistentSortedMap[map.size()];
+        int i = 0;
+
+        for (Map.Entry<K, HashLinkedList<V>> entry : map.entrySet()){
+            HashLinkedList<V> values = entry.getValue();
+            final Long[] orders = new Long[values.size()];
+            final V[] elements = (V[]) new Object[values.size()];
+            final int[] j = {0};
+
+            //LIFO order --> negated push numbers ascend
+            values.forEachWithPushNumber((value, pushNumber) -> {
+                orders[j[0]] = -pushNumber;
+                elements[j[0]++] = value;
+            });
+            keys[i] = entry.getKey();
+            trees[i++] = PersistentSortedMap.ofSorted(orders, elements);
+        }
+        return MultiMapSnapshot.of(version, PersistentSortedMap.ofSorted(keys, trees));
+    }
+
 }
@@ -0,0 +1,180 @@
+package lolcatloyal.ArtBot;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only store of byte strings in direct (off-heap) memory.
+ *
+ * Strings are appended to 16 MB direct ByteBuffers as [int length][bytes]
+ * and referred to by a positive long ref encoding their chunk and offset.
+ * Freeing a string only counts its bytes as garbage; the owner copies the
+ * live strings to a new arena once garbage builds up. Chunks are released
+ * when the arena is garbage collected.
+ *
+ * OffHeapArena is not thread-safe.
+ */
+@SuppressWarnings("Convert2Diamond")
+final class OffHeapArena {
+    static final int CHUNK_SIZE = 1 << 24;
+    private static final int HEADER = 4; //length prefix
+
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    private ByteBuffer current; //chunk being appended to
+    private long usedBytes;
+    private long freedBytes;
+
+    /**
+     * Appends a string.
+     *
+     * @param bytes Bytes of the string.
+     * @return Ref to the stored string.
+     * @throws IllegalArgumentException if the string doesn't fit in a chunk.
+     */
+    long put(byte[] bytes){
+        int needed = HEADER + bytes.length;
+
+        if (needed > CHUNK_SIZE){
+            throw new IllegalArgumentException("Too long to store off-heap: " + bytes.length + " bytes");
+        }
+        if (current == null || current.remaining() < needed){
+            current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            chunks.add(current);
+        }
+
+        int offset = current.position();
+        current.putInt(bytes.length);
+        current.put(bytes);
+        usedBytes += needed;
+        return ((long) chunks.size() << 32) | offset; //chunk numbers start at 1 --> refs are positive
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param ref Ref returned by put().
+     * @return Bytes of the string.
+     */
+    byte[] get(long ref){
+        ByteBuffer chunk = chunkOf(ref);
+        int offset = offsetOf(ref);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = chunk.get(offset + HEADER + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks whether a stored string equals the given bytes, without
+     * copying it onto the heap.
+     *
+     * @param ref Ref returned by put().
+     * @param bytes Bytes to compare to.
+     * @return True if the string's bytes are the same.
+     */
+    boolean matches(long ref, byte[] bytes){
+        ByteBuffer chunk = chunkOf(ref);
+        int offset = offsetOf(ref);
+
+        if (chunk.getInt(offset) != bytes.length){
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++){
+            if (chunk.get(offset + HEADER + i) != bytes[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes a stored string, giving the same result as hash(byte[]).
+     *
+     * @param ref Ref returned by put().
+     * @return Hash of the string's bytes.
+     */
+    int hash(long ref){
+        ByteBuffer chunk = chunkOf(ref);
+        int offset = offsetOf(ref);
+        int h = 0;
+
+        for (int i = 0, length = chunk.getInt(offset); i < length; i++){
+            h = 31 * h + chunk.get(offset + HEADER + i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hashes a string's bytes.
+     *
+     * @param bytes Bytes of the string.
+     * @return Hash of the bytes.
+     */
+    static int hash(byte[] bytes){
+        int h = 0;
+
+        for (byte b : bytes){
+            h = 31 * h + b;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Spreads the bits of a polynomial hash, since links differ mostly
+     * in their last few characters.
+     */
+    private static int mix(int h){
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Counts a string as garbage.
+     *
+     * @param ref Ref returned by put().
+     * @precond The string has not been freed before.
+     */
+    void free(long ref){
+        freedBytes += HEADER + chunkOf(ref).getInt(offsetOf(ref));
+    }
+
+    /**
+     * Gets the bytes appended so far, including freed strings.
+     *
+     * @return Bytes used.
+     */
+    long usedBytes(){
+        return usedBytes;
+    }
+
+    /**
+     * Gets the bytes taken by freed strings.
+     *
+     * @return Bytes freed.
+     */
+    long freedBytes(){
+        return freedBytes;
+    }
+
+    /**
+     * Gets the direct memory reserved by the arena's chunks.
+     *
+     * @return Bytes reserved.
+     */
+    long reservedBytes(){
+        return (long) chunks.size() * CHUNK_SIZE;
+    }
+
+    private ByteBuffer chunkOf(long ref){
+        return chunks.get((int) (ref >>> 32) - 1);
+    }
+
+    private static int offsetOf(long ref){
+        return (int) ref;
+    }
+}
@@ -0,0 +1,432 @@
+package lolcatloyal.ArtBot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * SortedMultiMap that keeps its Values in off-heap memory, for collections
+ * of tens of millions of art links.
+ *
+ * Value Strings are encoded as UTF-8 into an OffHeapArena, so the heap only
+ * holds an index of them: a TreeMap of the Keys, each with an array of refs
+ * to its Values, and an open addressing table from each Value's hash to its
+ * ref and Key. The table finds duplicates and a Value's Keys in constant
+ * time, comparing candidates' bytes in place. Values are decoded onto the
+ * heap only when they are read.
+ *
+ * Unlike CompactLinkStore, any Key and Value can be stored. Keys are few, so
+ * they stay on the heap to keep the TreeMap's comparisons cheap.
+ *
+ * Removing a Value shifts the rest of its Key's refs, so it takes time linear
+ * in the number of Values stored for that Key. Removed Values are garbage in
+ * the arena until it is compacted, which happens once garbage outweighs the
+ * live Values.
+ *
+ * Writes are queued as changes to the store's last MultiMapSnapshot, as in
+ * MultiValueMap, so snapshot() only decodes the Values that changed since
+ * the last one. The store is copied onto the heap in full only when more
+ * changes pile up than applying them is worth.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class OffHeapLinkStore implements SortedMultiMap<String, String> {
+    private static final long FREE = 0; //marks an empty table slot, refs are positive
+    private static final int MIN_TABLE_CAPACITY = 16;
+
+    private final TreeMap<String, Key> keys;
+    private Key[] keysById;
+    private final ArrayDeque<Integer> freeIds; //ids of removed Keys, reused first
+    private int nextId;
+    private OffHeapArena arena;
+
+    //Value table: slot --> ref, hash of the Value, id of its Key
+    private long[] slotRefs;
+    private int[] slotHashes;
+    private int[] slotKeyIds;
+    private int valueCount;
+
+    private final SnapshotChanges<String, String> changes; //changes since the last snapshot
+
+    /**
+     * Refs to the Values stored for a single Key.
+     */
+    private static final class Key {
+        private final int id;
+        private final String link;
+        private long[] refs = new long[2]; //oldest first
+        private int size;
+
+        private Key(int id, String link){
+            this.id = id;
+            this.link = link;
+        }
+    }
+
+    /**
+     * Creates a new empty OffHeapLinkStore.
+     */
+    public OffHeapLinkStore(){
+        keys = new TreeMap<String, Key>();
+        keysById = new Key[16];
+        freeIds = new ArrayDeque<Integer>();
+        arena = new OffHeapArena();
+        slotRefs = new long[MIN_TABLE_CAPACITY];
+        slotHashes = new int[MIN_TABLE_CAPACITY];
+        slotKeyIds = new int[MIN_TABLE_CAPACITY];
+        changes = new SnapshotChanges<String, String>();
+    }
+
+    @Override
+    public Set<String> getKeys(){
+        return Collections.unmodifiableSet(keys.keySet());
+    }
+
+    /**
+     * Gets a List view of the Values associated with a given Key in LIFO
+     * order. Values are decoded from off-heap memory as they are read.
+     *
+     * @param key Key for the desired Values in the map.
+     * @precond key is nonnull
+     * @return An unmodifiable List of Values, or null if the Key is not in the map.
+     */
+    @Override
+    public List<String> getValuesForKey(String key){
+        Key k = keys.get(key);
+        return (k == null) ? null : new ValueList(k);
+    }
+
+    @Override
+    public boolean addValue(String key, String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = OffHeapArena.hash(bytes);
+        Key k = keys.get(key);
+
+        if (k == null){
+            k = addKey(key);
+        }
+        else if (findSlot(hash, k.id, bytes) != -1){
+            return false; //duplicate
+        }
+
+        long ref = arena.put(bytes);
+        insert(ref, hash, k.id);
+
+        //Append, growing the array if needed
+        if (k.size == k.refs.length){
+            k.refs = Arrays.copyOf(k.refs, k.size * 2);
+        }
+        k.refs[k.size++] = ref;
+        if (changes.record(valueCount)){
+            changes.add(MultiMapSnapshot.Change.pushed(key, value));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removeValue(String key, String value){
+        Key k = keys.get(key);
+
+        if (k == null){
+            return false;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(OffHeapArena.hash(bytes), k.id, bytes);
+        if (slot == -1){
+            return false;
+        }
+
+        long ref = slotRefs[slot];
+        deleteSlot(slot);
+        arena.free(ref);
+
+        //Shift later refs back over the removed one
+        int i = k.size - 1;
+        while (k.refs[i] != ref){
+            i--;
+        }
+        System.arraycopy(k.refs, i + 1, k.refs, i, k.size - i - 1);
+        k.size--;
+
+        if (k.size == 0){
+            dropKey(k); //No associated values --> remove key
+        }
+        if (changes.record(valueCount)){
+            changes.add(MultiMapSnapshot.Change.equalValueRemoved(key, value));
+        }
+        compactIfWasteful();
+        return true;
+    }
+
+    @Override
+    public boolean removeKey(String key){
+        Key k = keys.get(key);
+
+        if (k == null){
+            return false;
+        }
+
+        for (int i = 0; i < k.size; i++){
+            deleteSlot(slotOf(k.refs[i]));
+            arena.free(k.refs[i]);
+        }
+        dropKey(k);
+        if (changes.record(valueCount)){
+            changes.add(MultiMapSnapshot.Change.<String, String>keyRemoved(key));
+        }
+        compactIfWasteful();
+        return true;
+    }
+
+    @Override
+    public void clear(){
+        keys.clear();
+        keysById = new Key[16];
+        freeIds.clear();
+        nextId = 0;
+        arena = new OffHeapArena();
+        slotRefs = new long[MIN_TABLE_CAPACITY];
+        slotHashes = new int[MIN_TABLE_CAPACITY];
+        slotKeyIds = new int[MIN_TABLE_CAPACITY];
+        valueCount = 0;
+        if (changes.record(0)){
+            changes.add(MultiMapSnapshot.Change.<String, String>cleared());
+        }
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return keys.isEmpty();
+    }
+
+    @Override
+    public boolean containsValue(String value){
+        return !getKeysForValue(value).isEmpty();
+    }
+
+    @Override
+    public Set<String> getKeysForValue(String value){
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = OffHeapArena.hash(bytes);
+        Set<String> owners = new TreeSet<String>();
+
+        //Every copy of the Value is in the same probe run
+        for (int i = home(hash); slotRefs[i] != FREE; i = next(i)){
+            if (slotHashes[i] == hash && arena.matches(slotRefs[i], bytes)){
+                owners.add(keysById[slotKeyIds[i]].link);
+            }
+        }
+        return Collections.unmodifiableSet(owners);
+    }
+
+    /**
+     * Gets an immutable snapshot of the store's current contents, applying
+     * the changes since the last one. Runs in constant time if the store
+     * hasn't changed since the last call.
+     *
+     * @return A snapshot of the store.
+     */
+    @Override
+    public MultiMapSnapshot<String, String> snapshot(){
+        return changes.snapshot(this::buildSnapshot);
+    }
+
+    /**
+     * Gets the number of Values stored.
+     *
+     * @return The number of Values across all Keys.
+     */
+    @Override
+    public int valueCount(){
+        return valueCount;
+    }
+
+    /**
+     * Gets the direct memory reserved for Values.
+     *
+     * @return Off-heap bytes reserved.
+     */
+    public long offHeapBytes(){
+        return arena.reservedBytes();
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Builds a snapshot of the store's current contents in O(n),
+     * decoding every Value onto the heap.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MultiMapSnapshot<String, String> buildSnapshot(){
+        String[] links = new String[keys.size()];
+        PersistentSortedMap<Long, String>[] trees = new PersistentSortedMap[keys.size()];
+        int i = 0;
+
+        for (Key k : keys.values()){
+            Long[] orders = new Long[k.size];
+            String[] values = new String[k.size];
+            for (int j = 0; j < k.size; j++){ //LIFO order
+                orders[j] = (long) j;
+                values[j] = new String(arena.get(k.refs[k.size - 1 - j]), StandardCharsets.UTF_8);
+            }
+            links[i] = k.link;
+            trees[i++] = PersistentSortedMap.ofSorted(orders, values);
+        }
+        return MultiMapSnapshot.of(changes.version(), PersistentSortedMap.ofSorted(links, trees));
+    }
+
+    private Key addKey(String link){
+        int id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+
+        if (id == keysById.length){
+            keysById = Arrays.copyOf(keysById, id * 2);
+        }
+        Key k = new Key(id, link);
+        keysById[id] = k;
+        keys.put(link, k);
+        return k;
+    }
+
+    private void dropKey(Key k){
+        keys.remove(k.link);
+        keysById[k.id] = null;
+        freeIds.push(k.id);
+    }
+
+    /**
+     * Finds the table slot holding a Value of a given Key.
+     *
+     * @return The slot, or -1 if the Key doesn't have the Value.
+     */
+    private int findSlot(int hash, int keyId, byte[] bytes){
+        for (int i = home(hash); slotRefs[i] != FREE; i = next(i)){
+            if (slotHashes[i] == hash && slotKeyIds[i] == keyId && arena.matches(slotRefs[i], bytes)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the table slot holding a given ref.
+     *
+     * @precond The ref is in the table.
+     */
+    private int slotOf(long ref){
+        int i = home(arena.hash(ref));
+        while (slotRefs[i] != ref){
+            i = next(i);
+        }
+        return i;
+    }
+
+    private void insert(long ref, int hash, int keyId){
+        int i = home(hash);
+        while (slotRefs[i] != FREE){
+            i = next(i);
+        }
+        slotRefs[i] = ref;
+        slotHashes[i] = hash;
+        slotKeyIds[i] = keyId;
+
+        //Keep load factor at or below 1/2
+        if (++valueCount * 2 > slotRefs.length){
+            resize(slotRefs.length * 2);
+        }
+    }
+
+    private void deleteSlot(int slot){
+        //Shift back later entries in the probe run so lookups don't stop early
+        int mask = slotRefs.length - 1;
+        int gap = slot;
+        for (int j = next(gap); slotRefs[j] != FREE; j = next(j)){
+            int home = home(slotHashes[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)){ //home is not between gap and j
+                slotRefs[gap] = slotRefs[j];
+                slotHashes[gap] = slotHashes[j];
+                slotKeyIds[gap] = slotKeyIds[j];
+                gap = j;
+            }
+        }
+        slotRefs[gap] = FREE;
+        valueCount--;
+    }
+
+    private int home(int hash){
+        return hash & (slotRefs.length - 1);
+    }
+
+    private int next(int i){
+        return (i + 1) & (slotRefs.length - 1);
+    }
+
+    private void resize(int capacity){
+        long[] oldRefs = slotRefs;
+        int[] oldHashes = slotHashes;
+        int[] oldKeyIds = slotKeyIds;
+        slotRefs = new long[capacity];
+        slotHashes = new int[capacity];
+        slotKeyIds = new int[capacity];
+
+        for (int j = 0; j < oldRefs.length; j++){
+            if (oldRefs[j] != FREE){
+                int i = home(oldHashes[j]);
+                while (slotRefs[i] != FREE){
+                    i = next(i);
+                }
+                slotRefs[i] = oldRefs[j];
+                slotHashes[i] = oldHashes[j];
+                slotKeyIds[i] = oldKeyIds[j];
+            }
+        }
+    }
+
+    /**
+     * Copies the live Values to a new arena once removed Values take
+     * up more than half of the current one.
+     */
+    private void compactIfWasteful(){
+        if (arena.usedBytes() < OffHeapArena.CHUNK_SIZE || arena.freedBytes() * 2 <= arena.usedBytes()){
+            return;
+        }
+
+        OffHeapArena compacted = new OffHeapArena();
+        int capacity = slotRefs.length;
+        slotRefs = new long[capacity];
+        slotHashes = new int[capacity];
+        slotKeyIds = new int[capacity];
+        valueCount = 0;
+
+        //Copy each Key's Values, then index the copies
+        for (Key k : keys.values()){
+            for (int i = 0; i < k.size; i++){
+                k.refs[i] = compacted.put(arena.get(k.refs[i]));
+                insert(k.refs[i], compacted.hash(k.refs[i]), k.id);
+            }
+        }
+        arena = compacted;
+    }
+
+    /**
+     * List view of a Key's Values in LIFO order.
+     */
+    private final class ValueList extends AbstractList<String> implements RandomAccess {
+        private final Key k;
+
+        private ValueList(Key k){
+            this.k = k;
+        }
+
+        @Override
+        public String get(int index){
+            if (index < 0 || index >= k.size){
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + k.size);
+            }
+            return new String(arena.get(k.refs[k.size - 1 - index]), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size(){
+            return k.size;
+        }
+    }
+}
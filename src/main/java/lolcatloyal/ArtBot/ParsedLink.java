@@ -0,0 +1,402 @@
+package lolcatloyal.ArtBot;
+
+/**
+ * Result of parsing a Twitter or FXTwitter post link, filled in by a
+ * single pass over its characters.
+ *
+ * A ParsedLink holds offsets into the text it last parsed rather than
+ * copies of its parts, so parsing allocates nothing and one ParsedLink
+ * can be reused for every link. Strings are only made when asked for.
+ *
+ * A link is a post link if it starts with a supported host and "/status/"
+ * follows later on the same line with something after it. The scheme
+ * and host are matched ignoring case, and the hosts supported are:
+ * - TWITTER: twitter.com or x.com, optionally under www. or mobile.
+ * - FX: the embed fixers fxtwitter.com, vxtwitter.com, fixupx.com and fixvx.com
+ *
+ * A post link is also canonical if its handle is only ASCII letters,
+ * digits and '_', "/status/" follows it directly, and the status id is
+ * up to 19 digits that fit in a long and aren't all zeros, followed by the
+ * end, '?', '#' or '/'. No post has status id 0. Every canonical
+ * link to a post has the same status id, whatever its host, handle case
+ * or trailing parts, so the id identifies the post.
+ *
+ * find() picks the links out of a longer text, such as a message full of
+ * pasted links, parsing each in turn.
+ *
+ * ParsedLink is not thread-safe.
+ */
+public class ParsedLink {
+    //Hosts, matching the link types of LinkUtil.determineLinkType()
+    public static final int INVALID = -1;
+    public static final int TWITTER = 0;
+    public static final int FX = 1;
+
+    private static final String[] SCHEMES = {"https://"};
+    private static final String[] SUBDOMAINS = {"www.", "mobile."}; //of TWITTER hosts only
+    private static final String[] TWITTER_HOSTS = {"twitter.com/", "x.com/"};
+    private static final String[] FX_HOSTS = {"fxtwitter.com/", "vxtwitter.com/", "fixupx.com/", "fixvx.com/"};
+    private static final String STATUS_SEGMENT = "/status/";
+    private static final int MAX_STATUS_DIGITS = 19; //digits in Long.MAX_VALUE
+    private static final String SEPARATORS = "<>|()[]"; //around links in Discord markdown, besides whitespace
+
+    private CharSequence text; //text last parsed
+    private int start; //link bounds in text
+    private int end;
+    private int host;
+    private int handleStart; //handle bounds in text, up to the first '/' after the host
+    private int handleEnd;
+    private boolean post;
+    private long statusId; //-1 unless canonical
+
+    /**
+     * Creates a new ParsedLink holding an empty, invalid link.
+     */
+    public ParsedLink(){
+        parse("", 0, 0);
+    }
+
+    /**
+     * Parses the first word of some text, the same word LinkUtil.trimLink()
+     * picks: leading whitespace is skipped and the link ends at the first
+     * space, or before any trailing whitespace.
+     *
+     * @param text Text starting with a link, such as a command's argument.
+     * @return True if the word is a post link.
+     */
+    public boolean parse(CharSequence text){
+        int length = text.length();
+        int from = 0;
+        while (from < length && text.charAt(from) <= ' '){
+            from++;
+        }
+
+        int to = from;
+        int lastVisible = from - 1;
+        while (to < length && text.charAt(to) != ' '){
+            if (text.charAt(to) > ' '){
+                lastVisible = to;
+            }
+            to++;
+        }
+        if (to == length){ //no space --> trailing whitespace isn't part of the link
+            to = lastVisible + 1;
+        }
+
+        return parse(text, from, to);
+    }
+
+    /**
+     * Parses a range of text as a link.
+     *
+     * @param text Text holding the link.
+     * @param from Index of the link's first character.
+     * @param to Index after the link's last character.
+     * @return True if the range is a post link.
+     * @precond 0 <= from <= to <= text.length()
+     */
+    public boolean parse(CharSequence text, int from, int to){
+        this.text = text;
+        start = from;
+        end = to;
+        host = INVALID;
+        handleStart = from;
+        handleEnd = from;
+        post = false;
+        statusId = -1;
+
+        //Host
+        int hostStart = skipAny(text, from, to, SCHEMES);
+        if (hostStart == from){
+            return false;
+        }
+        int i = skipAny(text, hostStart, to, FX_HOSTS);
+        if (i != hostStart){
+            host = FX;
+        }
+        else {
+            int domainStart = skipAny(text, hostStart, to, SUBDOMAINS);
+            i = skipAny(text, domainStart, to, TWITTER_HOSTS);
+            if (i == domainStart){
+                return false;
+            }
+            host = TWITTER;
+        }
+
+        //Handle runs up to the first '/', "/status/" can be anywhere after a nonempty start
+        handleStart = i;
+        handleEnd = -1;
+        boolean word = true; //handle is only handle characters
+        boolean sameLine = true;
+        int status = -1;
+        for (; i < to; i++){
+            char c = text.charAt(i);
+            if (c == '/'){
+                if (handleEnd == -1){
+                    handleEnd = i;
+                    if (!sameLine){ //"/status/" can't follow on this line
+                        break;
+                    }
+                }
+                if (sameLine && i > handleStart && i + STATUS_SEGMENT.length() < to
+                        && matches(text, i, to, STATUS_SEGMENT)
+                        && !isLineTerminator(text.charAt(i + STATUS_SEGMENT.length()))){
+                    status = i;
+                    break;
+                }
+            }
+            else if (isLineTerminator(c)){
+                sameLine = false;
+                if (handleEnd != -1){
+                    break;
+                }
+            }
+            if (handleEnd == -1 && !isHandleChar(c)){
+                word = false;
+            }
+        }
+        if (handleEnd == -1){
+            handleEnd = i;
+        }
+        if (status == -1){
+            return false;
+        }
+        post = true;
+
+        //Status id of a canonical link
+        if (!word || status != handleEnd){
+            return true;
+        }
+        int idStart = status + STATUS_SEGMENT.length();
+        int idEnd = idStart;
+        long id = 0;
+        boolean overflow = false;
+        while (idEnd < to && idEnd - idStart <= MAX_STATUS_DIGITS){
+            char c = text.charAt(idEnd);
+            if (c < '0' || c > '9'){
+                break;
+            }
+            int d = c - '0';
+            if (id > (Long.MAX_VALUE - d) / 10){
+                overflow = true;
+                break;
+            }
+            id = id * 10 + d;
+            idEnd++;
+        }
+        if (!overflow && id > 0 && idEnd - idStart <= MAX_STATUS_DIGITS
+                && (idEnd == to || isStatusEnd(text.charAt(idEnd)))){
+            statusId = id;
+        }
+        return true;
+    }
+
+    /**
+     * Finds and parses the next word starting with "http" in some text.
+     * Words are separated by whitespace and the brackets and bars Discord
+     * markdown puts around links, as in "<link>" or "||link||". Other words
+     * are skipped without being parsed, so the text is read once.
+     *
+     * @param text Text to search.
+     * @param from Index to search from, such as getEnd() of the last word found.
+     * @return True if a word was found and parsed, even if it isn't a post link.
+     *             False once the rest of the text has none.
+     */
+    public boolean find(CharSequence text, int from){
+        int length = text.length();
+        int i = from;
+
+        while (i < length){
+            while (i < length && isSeparator(text.charAt(i))){
+                i++;
+            }
+            int wordStart = i;
+            while (i < length && !isSeparator(text.charAt(i))){
+                i++;
+            }
+
+            if (i - wordStart >= 4 && toLowerCase(text.charAt(wordStart)) == 'h'
+                    && toLowerCase(text.charAt(wordStart + 1)) == 't'
+                    && toLowerCase(text.charAt(wordStart + 2)) == 't'
+                    && toLowerCase(text.charAt(wordStart + 3)) == 'p'){
+                parse(text, wordStart, i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the text last parsed.
+     *
+     * @return The text.
+     */
+    public CharSequence getText(){
+        return text;
+    }
+
+    /**
+     * Gets the index of the link's first character in the text.
+     *
+     * @return The start index.
+     */
+    public int getStart(){
+        return start;
+    }
+
+    /**
+     * Gets the index after the link's last character in the text.
+     *
+     * @return The end index.
+     */
+    public int getEnd(){
+        return end;
+    }
+
+    /**
+     * Gets the host the link starts with.
+     *
+     * @return TWITTER, FX, or INVALID for any other start.
+     */
+    public int getHost(){
+        return host;
+    }
+
+    /**
+     * Gets the link type, as LinkUtil.determineLinkType() returns it.
+     *
+     * @return The host of a post link, or INVALID.
+     */
+    public int getType(){
+        return post ? host : INVALID;
+    }
+
+    /**
+     * Checks whether the link is a post link.
+     *
+     * @return True if the link is a post link.
+     */
+    public boolean isPost(){
+        return post;
+    }
+
+    /**
+     * Checks whether the link is a canonical post link, with a handle
+     * and positive status id.
+     *
+     * @return True if getStatusId() is known.
+     */
+    public boolean isCanonical(){
+        return statusId != -1;
+    }
+
+    /**
+     * Gets the index of the handle's first character in the text.
+     *
+     * @return The start index of the handle.
+     * @precond getHost() is not INVALID.
+     */
+    public int getHandleStart(){
+        return handleStart;
+    }
+
+    /**
+     * Gets the index after the handle's last character in the text,
+     * which is the first '/' after the host or the end of the link.
+     *
+     * @return The end index of the handle.
+     * @precond getHost() is not INVALID.
+     */
+    public int getHandleEnd(){
+        return handleEnd;
+    }
+
+    /**
+     * Gets the status id of a canonical link.
+     *
+     * @return The status id, or -1 if the link isn't canonical.
+     */
+    public long getStatusId(){
+        return statusId;
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Checks whether text has a literal at an index, without reading past to.
+     */
+    private static boolean matches(CharSequence text, int at, int to, String literal){
+        if (to - at < literal.length()){
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++){
+            if (text.charAt(at + i) != literal.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the first of some lowercase literals found at an index, ignoring case.
+     *
+     * @return The index after the literal, or at if none is there.
+     */
+    private static int skipAny(CharSequence text, int at, int to, String[] literals){
+        for (String literal : literals){
+            if (to - at < literal.length()){
+                continue;
+            }
+
+            int i = 0;
+            while (i < literal.length() && toLowerCase(text.charAt(at + i)) == literal.charAt(i)){
+                i++;
+            }
+            if (i == literal.length()){
+                return at + i;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Lowercases an ASCII letter, leaving other characters as they are.
+     *
+     * @param c Character to lowercase.
+     * @return The lowercase character.
+     */
+    static char toLowerCase(char c){
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Checks whether a character can be part of a Twitter handle.
+     *
+     * @param c Character to check.
+     * @return True for ASCII letters, digits and '_'.
+     */
+    private static boolean isHandleChar(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Checks whether a character ends a line, as regex '.' doesn't match it.
+     */
+    private static boolean isLineTerminator(char c){
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Checks whether a character separates the words find() looks at.
+     */
+    private static boolean isSeparator(char c){
+        return c <= ' ' || SEPARATORS.indexOf(c) != -1;
+    }
+
+    /**
+     * Checks whether a character can follow the status id of a canonical link.
+     */
+    private static boolean isStatusEnd(char c){
+        return c == '?' || c == '#' || c == '/';
+    }
+}
@@ -0,0 +1,243 @@
+package lolcatloyal.ArtBot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Table of partitions, such as one collection per guild or channel,
+ * keyed by a long snowflake id.
+ *
+ * A partition is loaded the first time it is acquired and stays loaded
+ * while it is in use. Once no one has used it for the idle timeout,
+ * evictIdle() closes it, saving it to storage, and the next acquire()
+ * loads it again. Looking up a partition is a hash lookup, so using one
+ * costs the same however many others there are. Each partition is loaded
+ * and closed under its own lock, so a slow load holds up only callers
+ * waiting for the same partition.
+ *
+ * Every acquire() must be followed by a release() once the caller is done
+ * with the partition, so it isn't closed while still in use.
+ *
+ * PartitionTable is thread-safe.
+ *
+ * @param <P> The type of partitions stored
+ */
+@SuppressWarnings("Convert2Diamond")
+public class PartitionTable<P extends Closeable> {
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionTable.class);
+
+    private final Loader<P> loader;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock; //nanosecond time source
+    private final ConcurrentHashMap<Long, Entry<P>> partitions;
+
+    /**
+     * Loads a partition from storage, creating it if needed.
+     *
+     * @param <P> The type of partition loaded
+     */
+    public interface Loader<P> {
+        /**
+         * Loads a partition.
+         *
+         * @param id Id of the partition.
+         * @return The partition.
+         * @throws IOException if the partition can't be read.
+         */
+        P load(long id) throws IOException;
+    }
+
+    /**
+     * A partition and who is using it.
+     *
+     * @param <P> The type of partition held
+     */
+    private static final class Entry<P> {
+        private P partition; //null until loaded
+        private int users;
+        private long lastUsed;
+        private boolean evicted; //removed from partitions, acquire() needs a new entry
+    }
+
+    /**
+     * Creates a new empty PartitionTable.
+     *
+     * @param loader Loads partitions on first use.
+     * @param idleTimeout How long a partition can go unused before it can be evicted.
+     * @param unit Unit of idleTimeout.
+     */
+    public PartitionTable(Loader<P> loader, long idleTimeout, TimeUnit unit){
+        this(loader, idleTimeout, unit, System::nanoTime);
+    }
+
+    /**
+     * Creates a new empty PartitionTable with the given clock.
+     *
+     * @param loader Loads partitions on first use.
+     * @param idleTimeout How long a partition can go unused before it can be evicted.
+     * @param unit Unit of idleTimeout.
+     * @param clock Source of the current time in nanoseconds.
+     */
+    public PartitionTable(Loader<P> loader, long idleTimeout, TimeUnit unit, LongSupplier clock){
+        this.loader = loader;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.clock = clock;
+        partitions = new ConcurrentHashMap<Long, Entry<P>>();
+    }
+
+    /**
+     * Gets a partition, loading it if it isn't loaded, and marks it in use
+     * until release() is called.
+     *
+     * @param id Id of the partition.
+     * @return The partition.
+     * @throws IOException if the partition can't be loaded. It isn't marked in use.
+     */
+    public P acquire(long id) throws IOException {
+        while (true){
+            Entry<P> entry = partitions.computeIfAbsent(id, k -> new Entry<P>());
+
+            synchronized (entry){
+                if (entry.evicted){
+                    continue; //closed meanwhile --> load it again
+                }
+                if (entry.partition == null){
+                    try {
+                        entry.partition = loader.load(id);
+                    }
+                    catch (IOException e){ //don't keep an entry with nothing loaded
+                        entry.evicted = true;
+                        partitions.remove(id, entry);
+                        throw e;
+                    }
+                }
+                entry.users++;
+                return entry.partition;
+            }
+        }
+    }
+
+    /**
+     * Marks a partition acquired with acquire() no longer in use by the caller.
+     *
+     * @param id Id of the partition.
+     * @precond The caller acquired the partition and hasn't released it since.
+     */
+    public void release(long id){
+        Entry<P> entry = partitions.get(id);
+
+        synchronized (entry){
+            entry.users--;
+            entry.lastUsed = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Closes and removes every partition not in use that has been idle for
+     * the timeout. Meant to be called periodically; it looks at every
+     * loaded partition.
+     *
+     * @return The number of partitions evicted.
+     */
+    public int evictIdle(){
+        long now = clock.getAsLong();
+        int evicted = 0;
+
+        for (Long id : partitions.keySet()){
+            Entry<P> entry = partitions.get(id);
+            if (entry == null){
+                continue;
+            }
+
+            synchronized (entry){
+                if (entry.users == 0 && entry.partition != null && now - entry.lastUsed >= idleTimeoutNanos){
+                    evict(id, entry);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes and removes every partition not in use, such as on shutdown.
+     *
+     * @return The number of partitions still in use, which are left loaded.
+     */
+    public int closeAll(){
+        int inUse = 0;
+
+        for (Long id : partitions.keySet()){
+            Entry<P> entry = partitions.get(id);
+            if (entry == null){
+                continue;
+            }
+
+            synchronized (entry){
+                if (entry.users > 0){
+                    inUse++;
+                }
+                else if (entry.partition != null){
+                    evict(id, entry);
+                }
+            }
+        }
+        return inUse;
+    }
+
+    /**
+     * Gets the loaded partitions, for reading statistics. They aren't
+     * marked in use, so they may be closed at any time.
+     *
+     * @return The partitions loaded when called.
+     */
+    public List<P> loaded(){
+        List<P> loaded = new ArrayList<P>(partitions.size());
+
+        for (Entry<P> entry : partitions.values()){
+            synchronized (entry){
+                if (entry.partition != null){
+                    loaded.add(entry.partition);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Gets the number of partitions loaded.
+     *
+     * @return The number of partitions.
+     */
+    public int size(){
+        return partitions.size();
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Closes a partition, then removes it, so it can't be loaded again
+     * before it is saved.
+     *
+     * @precond The caller holds entry's lock and the partition isn't in use.
+     */
+    private void evict(long id, Entry<P> entry){
+        try {
+            entry.partition.close();
+        }
+        catch (IOException e){ //changes since the last sync may be lost, nothing more to do
+            LOG.error("Couldn't close partition {}", id, e);
+        }
+
+        entry.evicted = true;
+        partitions.remove(id, entry);
+    }
+}
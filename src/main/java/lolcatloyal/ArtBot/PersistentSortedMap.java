@@ -0,0 +1,388 @@
+package lolcatloyal.ArtBot;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable sorted map backed by a persistent AVL tree.
+ *
+ * put() and remove() return a new map and leave this one untouched. The
+ * new map shares every node off the modified path with the old one, so
+ * an update only allocates O(log n) nodes.
+ *
+ * Each node also records the size of its subtree, so entries can be
+ * looked up by position and keys can be ranked in O(log n).
+ *
+ * @param <K> The type of Keys to be stored
+ * @param <V> The type of Values to be stored
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class PersistentSortedMap<K extends Comparable<K>, V> {
+    private static final PersistentSortedMap EMPTY = new PersistentSortedMap(null);
+    private final Node<K, V> root;
+
+    /**
+     * Immutable tree node.
+     *
+     * @param <K> The type of Key held by the node
+     * @param <V> The type of Value held by the node
+     */
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right){
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private PersistentSortedMap(Node<K, V> root){
+        this.root = root;
+    }
+
+    /**
+     * Gets the empty PersistentSortedMap.
+     *
+     * @param <K> The type of Keys to be stored
+     * @param <V> The type of Values to be stored
+     * @return An empty map.
+     */
+    public static <K extends Comparable<K>, V> PersistentSortedMap<K, V> empty(){
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Builds a balanced map from Keys already in ascending order, in O(n).
+     *
+     * @param keys Keys in strictly ascending order.
+     * @param values Values for each Key.
+     * @param <K> The type of Keys to be stored
+     * @param <V> The type of Values to be stored
+     * @precond keys and values have the same length
+     * @return A map of the given Keys and Values.
+     */
+    public static <K extends Comparable<K>, V> PersistentSortedMap<K, V> ofSorted(K[] keys, V[] values){
+        Node<K, V> root = build(keys, values, 0, keys.length);
+        return (root == null) ? PersistentSortedMap.<K, V>empty() : new PersistentSortedMap<K, V>(root);
+    }
+
+    /**
+     * Gets the Value mapped from a given Key.
+     *
+     * @param key Key to look up.
+     * @precond key is nonnull
+     * @return The Key's Value, or null if the Key is not in the map.
+     */
+    public V get(K key){
+        Node<K, V> n = root;
+
+        while (n != null){
+            int c = key.compareTo(n.key);
+            if (c == 0){
+                return n.value;
+            }
+            n = (c < 0) ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a map with the given Key mapped to the given Value.
+     *
+     * @param key Key to map.
+     * @param value Value to map the Key to.
+     * @precond key, value are nonnull
+     * @return The updated map. This map if the Key was already mapped to
+     *             the same Value.
+     */
+    public PersistentSortedMap<K, V> put(K key, V value){
+        Node<K, V> newRoot = put(root, key, value);
+        return (newRoot == root) ? this : new PersistentSortedMap<K, V>(newRoot);
+    }
+
+    /**
+     * Returns a map without the given Key.
+     *
+     * @param key Key to remove.
+     * @precond key is nonnull
+     * @return The updated map. This map if the Key was not in it.
+     */
+    public PersistentSortedMap<K, V> remove(K key){
+        Node<K, V> newRoot = remove(root, key);
+
+        if (newRoot == root){
+            return this;
+        }
+        return (newRoot == null) ? PersistentSortedMap.<K, V>empty() : new PersistentSortedMap<K, V>(newRoot);
+    }
+
+    /**
+     * Gets the number of Keys in the map.
+     *
+     * @return The size of the map.
+     */
+    public int size(){
+        return size(root);
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return True if the map is empty.
+     */
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    /**
+     * Gets the Key at a given position in ascending order.
+     *
+     * @param index Position of the Key.
+     * @return The Key at the given position.
+     * @throws IndexOutOfBoundsException if index is not in [0, size()).
+     */
+    public K keyAt(int index){
+        return nodeAt(index).key;
+    }
+
+    /**
+     * Gets the Value of the Key at a given position in ascending order.
+     *
+     * @param index Position of the Key.
+     * @return The Value of the Key at the given position.
+     * @throws IndexOutOfBoundsException if index is not in [0, size()).
+     */
+    public V valueAt(int index){
+        return nodeAt(index).value;
+    }
+
+    /**
+     * Gets the position of a given Key in ascending order.
+     *
+     * @param key Key to look up.
+     * @precond key is nonnull
+     * @return The Key's position, or -1 if the Key is not in the map.
+     */
+    public int indexOf(K key){
+        Node<K, V> n = root;
+        int index = 0;
+
+        while (n != null){
+            int c = key.compareTo(n.key);
+            if (c < 0){
+                n = n.left;
+            }
+            else if (c > 0){
+                index += size(n.left) + 1;
+                n = n.right;
+            }
+            else {
+                return index + size(n.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets an unmodifiable List view of the map's Keys in ascending order.
+     * get() and indexOf() run in O(log n).
+     *
+     * @return The map's Keys.
+     */
+    public List<K> keys(){
+        return new KeyList();
+    }
+
+    /**
+     * Gets an unmodifiable List view of the map's Values ordered by
+     * their Keys. get() runs in O(log n).
+     *
+     * @return The map's Values.
+     */
+    public List<V> values(){
+        return new ValueList();
+    }
+
+    //--- Tree Operations --------------------------------------------------------------
+
+    private static int height(Node<?, ?> n){
+        return (n == null) ? 0 : n.height;
+    }
+
+    private static int size(Node<?, ?> n){
+        return (n == null) ? 0 : n.size;
+    }
+
+    private Node<K, V> nodeAt(int index){
+        if (index < 0 || index >= size()){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        Node<K, V> n = root;
+        while (true){
+            int leftSize = size(n.left);
+            if (index < leftSize){
+                n = n.left;
+            }
+            else if (index > leftSize){
+                index -= leftSize + 1;
+                n = n.right;
+            }
+            else {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Builds a balanced subtree from keys[from, to).
+     */
+    private static <K, V> Node<K, V> build(K[] keys, V[] values, int from, int to){
+        if (from >= to){
+            return null;
+        }
+
+        int mid = (from + to) >>> 1;
+        return new Node<K, V>(keys[mid], values[mid], build(keys, values, from, mid), build(keys, values, mid + 1, to));
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> put(Node<K, V> n, K key, V value){
+        if (n == null){
+            return new Node<K, V>(key, value, null, null);
+        }
+
+        int c = key.compareTo(n.key);
+        if (c < 0){
+            Node<K, V> left = put(n.left, key, value);
+            return (left == n.left) ? n : balance(n.key, n.value, left, n.right);
+        }
+        else if (c > 0){
+            Node<K, V> right = put(n.right, key, value);
+            return (right == n.right) ? n : balance(n.key, n.value, n.left, right);
+        }
+        return (n.value == value) ? n : new Node<K, V>(key, value, n.left, n.right);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> remove(Node<K, V> n, K key){
+        if (n == null){
+            return null;
+        }
+
+        int c = key.compareTo(n.key);
+        if (c < 0){
+            Node<K, V> left = remove(n.left, key);
+            return (left == n.left) ? n : balance(n.key, n.value, left, n.right);
+        }
+        else if (c > 0){
+            Node<K, V> right = remove(n.right, key);
+            return (right == n.right) ? n : balance(n.key, n.value, n.left, right);
+        }
+
+        //Found key --> replace with its successor
+        if (n.left == null){
+            return n.right;
+        }
+        if (n.right == null){
+            return n.left;
+        }
+        Node<K, V> successor = n.right;
+        while (successor.left != null){
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, n.left, removeMin(n.right));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> n){
+        if (n.left == null){
+            return n.right;
+        }
+        return balance(n.key, n.value, removeMin(n.left), n.right);
+    }
+
+    /**
+     * Builds a node from the given parts, rotating if the subtrees'
+     * heights differ by more than one.
+     */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right){
+        int hl = height(left);
+        int hr = height(right);
+
+        //Left heavy
+        if (hl > hr + 1){
+            if (height(left.left) >= height(left.right)){
+                return new Node<K, V>(left.key, left.value, left.left,
+                        new Node<K, V>(key, value, left.right, right));
+            }
+            return new Node<K, V>(left.right.key, left.right.value,
+                    new Node<K, V>(left.key, left.value, left.left, left.right.left),
+                    new Node<K, V>(key, value, left.right.right, right));
+        }
+        //Right heavy
+        if (hr > hl + 1){
+            if (height(right.right) >= height(right.left)){
+                return new Node<K, V>(right.key, right.value,
+                        new Node<K, V>(key, value, left, right.left), right.right);
+            }
+            return new Node<K, V>(right.left.key, right.left.value,
+                    new Node<K, V>(key, value, left, right.left.left),
+                    new Node<K, V>(right.key, right.value, right.left.right, right.right));
+        }
+        return new Node<K, V>(key, value, left, right);
+    }
+
+    //--- List Views --------------------------------------------------------------
+
+    private class KeyList extends AbstractList<K> implements RandomAccess {
+        @Override
+        public K get(int index){
+            return keyAt(index);
+        }
+
+        @Override
+        public int size(){
+            return PersistentSortedMap.this.size();
+        }
+
+        @Override
+        public int indexOf(Object o){
+            try {
+                return (o == null) ? -1 : PersistentSortedMap.this.indexOf((K) o);
+            }
+            catch (ClassCastException e){
+                return -1;
+            }
+        }
+
+        @Override
+        public int lastIndexOf(Object o){
+            return indexOf(o); //keys are unique
+        }
+
+        @Override
+        public boolean contains(Object o){
+            return indexOf(o) != -1;
+        }
+    }
+
+    private class ValueList extends AbstractList<V> implements RandomAccess {
+        @Override
+        public V get(int index){
+            return valueAt(index);
+        }
+
+        @Override
+        public int size(){
+            return PersistentSortedMap.this.size();
+        }
+    }
+}
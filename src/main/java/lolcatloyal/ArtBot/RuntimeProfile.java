@@ -0,0 +1,83 @@
+package lolcatloyal.ArtBot;
+
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.Compression;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Gateway and cache settings ArtBot can connect with.
+ *
+ * DEFAULT: JDA's default intents and caches plus GUILD_MEMBERS, without
+ *          transport compression -- how ArtBot has always connected
+ * LEAN: only the intents the listeners need, zlib transport compression,
+ *       and no member, presence or other entity caches. ArtBot reads
+ *       nothing but message content and button clicks, so it works the same
+ */
+public enum RuntimeProfile {
+    DEFAULT,
+    LEAN;
+
+    /**
+     * Creates a builder for a single connection with this profile's settings.
+     *
+     * @param token Bot token.
+     * @param intents Intents the listeners need.
+     * @return The builder, ready for listeners and other settings.
+     */
+    public JDABuilder createBuilder(String token, Collection<GatewayIntent> intents){
+        switch (this){
+            case LEAN:
+                return JDABuilder.createLight(token, intents) //no caches, no member chunking
+                        .setMemberCachePolicy(MemberCachePolicy.NONE)
+                        .setChunkingFilter(ChunkingFilter.NONE)
+                        .setCompression(Compression.ZLIB);
+            default:
+                return JDABuilder.createDefault(token)
+                        .enableIntents(intents)
+                        .enableIntents(GatewayIntent.GUILD_MEMBERS)
+                        .disableCache(CacheFlag.MEMBER_OVERRIDES, CacheFlag.VOICE_STATE)
+                        .setCompression(Compression.NONE);
+        }
+    }
+
+    /**
+     * Creates a builder for a sharded connection with this profile's settings.
+     *
+     * @param token Bot token.
+     * @param intents Intents the listeners need.
+     * @return The builder, ready for listeners and other settings.
+     */
+    public DefaultShardManagerBuilder createShardBuilder(String token, Collection<GatewayIntent> intents){
+        switch (this){
+            case LEAN:
+                return DefaultShardManagerBuilder.createLight(token, intents)
+                        .setMemberCachePolicy(MemberCachePolicy.NONE)
+                        .setChunkingFilter(ChunkingFilter.NONE)
+                        .setCompression(Compression.ZLIB);
+            default:
+                return DefaultShardManagerBuilder.createDefault(token)
+                        .enableIntents(intents)
+                        .enableIntents(GatewayIntent.GUILD_MEMBERS)
+                        .disableCache(CacheFlag.MEMBER_OVERRIDES, CacheFlag.VOICE_STATE)
+                        .setCompression(Compression.NONE);
+        }
+    }
+
+    /**
+     * Gets the RuntimeProfile with the given name, ignoring case.
+     *
+     * @param name Name of the profile, or null.
+     * @return The named profile, or DEFAULT if name is null.
+     * @throws IllegalArgumentException if no profile has the given name.
+     */
+    public static RuntimeProfile fromName(String name){
+        return (name == null) ? DEFAULT : valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
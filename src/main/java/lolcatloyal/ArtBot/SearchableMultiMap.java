@@ -0,0 +1,295 @@
+package lolcatloyal.ArtBot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SortedMultiMap of art links that can search its artists by handle,
+ * and stores each post at most once.
+ *
+ * Wraps a collection keyed by Twitter profile links and keeps a HandleIndex
+ * of its Keys, and a LongIntHashMap counting the stored links to each
+ * status id. The indexes are built from the collection once, then updated
+ * as changes add and remove Keys and Values. A Value whose status id is
+ * already stored isn't added, even if its link is written differently or
+ * filed under another Key. Changes are applied to the collection and the
+ * indexes under one lock, so the indexes never hold a Key or Value the
+ * collection has removed. Reads take the lock as well, so the collection
+ * needn't be thread-safe itself, and getKeys() and getValuesForKey()
+ * return copies rather than views. snapshot() is the cheap way to read
+ * the whole collection.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class SearchableMultiMap implements SortedMultiMap<String, String> {
+    private final SortedMultiMap<String, String> collection;
+    private final HandleIndex handles;
+    private final LongIntHashMap statusIds; //status id --> number of stored links to it
+    private final ParsedLink parsed; //reused under lock
+    private final Object lock = new Object();
+
+    /**
+     * Creates a new SearchableMultiMap over a collection, indexing its
+     * current Keys.
+     *
+     * @param collection Collection to wrap.
+     * @precond collection is nonnull, and is only changed through this map from now on
+     */
+    public SearchableMultiMap(SortedMultiMap<String, String> collection){
+        this.collection = collection;
+        handles = new HandleIndex();
+        statusIds = new LongIntHashMap();
+        parsed = new ParsedLink();
+
+        for (String key : collection.getKeys()){
+            handles.add(key);
+        }
+        indexStatusIds();
+    }
+
+    /**
+     * Gets the artists whose handles start with a given prefix,
+     * ignoring case, in order of their handles.
+     *
+     * @param prefix Start of the handles to find, without the '@'.
+     * @param limit Maximum number of artists to return.
+     * @precond prefix is nonnull, limit is positive
+     * @return Up to limit matching profile links. Empty if none match.
+     */
+    public List<String> searchHandles(String prefix, int limit){
+        return handles.search(prefix, limit);
+    }
+
+    /**
+     * Gets a copy of the Keys, as a view of them could change while it is read.
+     *
+     * @return An unmodifiable Set containing the map's keys in alphabetical order.
+     */
+    @Override
+    public Set<String> getKeys(){
+        synchronized (lock){
+            return Collections.unmodifiableSet(new LinkedHashSet<String>(collection.getKeys()));
+        }
+    }
+
+    /**
+     * Gets a copy of a Key's Values, as a view of them could change while it is read.
+     *
+     * @param key Key for the desired Values in the map.
+     * @precond key is nonnull
+     * @return An unmodifiable List of the Key's Values in LIFO order. Null if the
+     *             given key is not in the map.
+     */
+    @Override
+    public List<String> getValuesForKey(String key){
+        synchronized (lock){
+            List<String> values = collection.getValuesForKey(key);
+            return (values == null) ? null : Collections.unmodifiableList(new ArrayList<String>(values));
+        }
+    }
+
+    @Override
+    public boolean addValue(String key, String value){
+        synchronized (lock){
+            long statusId = statusIdOf(value);
+            if (statusId > 0 && statusIds.containsKey(statusId)){ //post already stored
+                return false;
+            }
+            if (!collection.addValue(key, value)){
+                return false;
+            }
+            if (statusId > 0){
+                statusIds.addTo(statusId, 1);
+            }
+            handles.add(key);
+            return true;
+        }
+    }
+
+    @Override
+    public int addAll(Map<String, ? extends Collection<? extends String>> values){
+        synchronized (lock){
+            //Leave out posts already stored, or earlier in values
+            Map<String, List<String>> newValues = new LinkedHashMap<String, List<String>>();
+            LongIntHashMap newStatusIds = new LongIntHashMap();
+            for (Map.Entry<String, ? extends Collection<? extends String>> entry : values.entrySet()){
+                List<String> keyValues = new ArrayList<String>(entry.getValue().size());
+                for (String value : entry.getValue()){
+                    long statusId = statusIdOf(value);
+                    if (statusId <= 0 || (!statusIds.containsKey(statusId) && newStatusIds.putIfAbsent(statusId, 1))){
+                        keyValues.add(value);
+                    }
+                }
+                if (!keyValues.isEmpty()){
+                    newValues.put(entry.getKey(), keyValues);
+                }
+            }
+
+            boolean added = false;
+            try {
+                int count = collection.addAll(newValues);
+                added = true;
+                return count;
+            }
+            finally { //index Keys added before any failure
+                for (String key : newValues.keySet()){
+                    if (collection.getValuesForKey(key) != null){
+                        handles.add(key);
+                    }
+                }
+
+                if (added){
+                    for (List<String> keyValues : newValues.values()){
+                        for (String value : keyValues){
+                            long statusId = statusIdOf(value);
+                            if (statusId > 0){
+                                statusIds.addTo(statusId, 1);
+                            }
+                        }
+                    }
+                }
+                else { //unknown which were added --> count again
+                    indexStatusIds();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean removeValue(String key, String value){
+        synchronized (lock){
+            if (!collection.removeValue(key, value)){
+                return false;
+            }
+            long statusId = statusIdOf(value);
+            if (statusId > 0){
+                statusIds.addTo(statusId, -1);
+            }
+
+            //Last Value removed --> Key is gone
+            if (collection.getValuesForKey(key) == null){
+                handles.remove(key);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeKey(String key){
+        synchronized (lock){
+            List<String> values = collection.getValuesForKey(key);
+            long[] removedIds = new long[(values == null) ? 0 : values.size()];
+            for (int i = 0; i < removedIds.length; i++){
+                removedIds[i] = statusIdOf(values.get(i));
+            }
+
+            if (!collection.removeKey(key)){
+                return false;
+            }
+            for (long statusId : removedIds){
+                if (statusId > 0){
+                    statusIds.addTo(statusId, -1);
+                }
+            }
+            handles.remove(key);
+            return true;
+        }
+    }
+
+    @Override
+    public void clear(){
+        synchronized (lock){
+            collection.clear();
+            handles.clear();
+            statusIds.clear();
+        }
+    }
+
+    @Override
+    public boolean isEmpty(){
+        synchronized (lock){
+            return collection.isEmpty();
+        }
+    }
+
+    @Override
+    public int keyCount(){
+        synchronized (lock){
+            return collection.keyCount();
+        }
+    }
+
+    @Override
+    public int valueCount(){
+        synchronized (lock){
+            return collection.valueCount();
+        }
+    }
+
+    @Override
+    public boolean containsValue(String value){
+        synchronized (lock){
+            return collection.containsValue(value);
+        }
+    }
+
+    @Override
+    public Set<String> getKeysForValue(String value){
+        synchronized (lock){
+            return collection.getKeysForValue(value);
+        }
+    }
+
+    @Override
+    public MultiMapSnapshot<String, String> snapshot(){
+        synchronized (lock){ //taking a snapshot can update the collection's own
+            return collection.snapshot();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> sync(){
+        return collection.sync();
+    }
+
+    //--- Helpers --------------------------------------------------------------
+
+    /**
+     * Gets the status id of a post link.
+     *
+     * @precond The caller holds lock, or is the constructor.
+     * @return The status id, or -1 if value isn't a canonical post link.
+     */
+    private long statusIdOf(String value){
+        parsed.parse(value, 0, value.length());
+        return parsed.getStatusId();
+    }
+
+    /**
+     * Counts the links to each status id in the collection from scratch.
+     *
+     * @precond The caller holds lock, or is the constructor.
+     */
+    private void indexStatusIds(){
+        statusIds.clear();
+
+        for (String key : collection.getKeys()){
+            List<String> values = collection.getValuesForKey(key);
+            if (values == null){
+                continue;
+            }
+            for (String value : values){
+                long statusId = statusIdOf(value);
+                if (statusId > 0){
+                    statusIds.addTo(statusId, 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package lolcatloyal.ArtBot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of sessions keyed by a long id, such as the id of the
+ * message a session is displayed in.
+ *
+ * Sessions are held in a LinkedHashMap in access order, so lookups run
+ * in constant time and the least recently used session is always first.
+ * A session is evicted once it has been idle for the timeout, or when a
+ * new session would put the registry over its capacity. Idle sessions are
+ * evicted from the front of the map as the registry is used, so eviction
+ * costs amortized constant time per call.
+ *
+ * SessionRegistry is thread-safe.
+ *
+ * @param <S> The type of sessions stored
+ */
+@SuppressWarnings("Convert2Diamond")
+public class SessionRegistry<S> {
+    private final LinkedHashMap<Long, Entry<S>> sessions;
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock; //nanosecond time source
+
+    /**
+     * A session and when it was last used.
+     *
+     * @param <S> The type of session held
+     */
+    private static final class Entry<S> {
+        private final S session;
+        private long lastUsed;
+
+        private Entry(S session, long lastUsed){
+            this.session = session;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * Creates a new empty SessionRegistry.
+     *
+     * @param maxSessions Most sessions to hold at once.
+     * @param idleTimeout How long a session can go unused before it is evicted.
+     * @param unit Unit of idleTimeout.
+     */
+    public SessionRegistry(int maxSessions, long idleTimeout, TimeUnit unit){
+        this(maxSessions, idleTimeout, unit, System::nanoTime);
+    }
+
+    /**
+     * Creates a new empty SessionRegistry with the given clock.
+     *
+     * @param maxSessions Most sessions to hold at once.
+     * @param idleTimeout How long a session can go unused before it is evicted.
+     * @param unit Unit of idleTimeout.
+     * @param clock Source of the current time in nanoseconds.
+     * @precond maxSessions is positive
+     */
+    public SessionRegistry(int maxSessions, long idleTimeout, TimeUnit unit, LongSupplier clock){
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.clock = clock;
+        sessions = new LinkedHashMap<Long, Entry<S>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SessionRegistry.Entry<S>> eldest){
+                return size() > SessionRegistry.this.maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Adds a session, replacing any session with the same id.
+     * Evicts the least recently used session if the registry is full.
+     *
+     * @param id Id of the session.
+     * @param session Session to add.
+     * @precond session is nonnull
+     */
+    public synchronized void put(long id, S session){
+        long now = clock.getAsLong();
+        evictIdle(now);
+        sessions.put(id, new Entry<S>(session, now));
+    }
+
+    /**
+     * Gets a session and marks it as used.
+     *
+     * @param id Id of the session.
+     * @return The session, or null if there is none with the id or it was evicted.
+     */
+    public synchronized S get(long id){
+        long now = clock.getAsLong();
+        evictIdle(now);
+
+        Entry<S> entry = sessions.get(id);
+        if (entry == null){
+            return null;
+        }
+        entry.lastUsed = now;
+        return entry.session;
+    }
+
+    /**
+     * Removes a session.
+     *
+     * @param id Id of the session.
+     * @return The removed session, or null if there was none with the id.
+     */
+    public synchronized S remove(long id){
+        Entry<S> entry = sessions.remove(id);
+        return (entry == null) ? null : entry.session;
+    }
+
+    /**
+     * Gets the sessions that haven't been evicted, without marking them as used.
+     *
+     * @return A copy of the sessions, least recently used first.
+     */
+    public synchronized List<S> values(){
+        evictIdle(clock.getAsLong());
+
+        List<S> values = new ArrayList<S>(sessions.size());
+        for (Entry<S> entry : sessions.values()){
+            values.add(entry.session);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the number of sessions that haven't been evicted.
+     *
+     * @return The number of sessions.
+     */
+    public synchronized int size(){
+        evictIdle(clock.getAsLong());
+        return sessions.size();
+    }
+
+    /**
+     * Evicts idle sessions, which sit at the front of the map.
+     */
+    private void evictIdle(long now){
+        for (Iterator<Entry<S>> it = sessions.values().iterator(); it.hasNext();){
+            if (now - it.next().lastUsed < idleTimeoutNanos){
+                break; //every later session was used more recently
+            }
+            it.remove();
+        }
+    }
+}
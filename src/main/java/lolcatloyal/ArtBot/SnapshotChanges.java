@@ -0,0 +1,93 @@
+package lolcatloyal.ArtBot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a map's last MultiMapSnapshot and the Changes made since, for maps
+ * that can't share their storage with a snapshot, such as CompactLinkStore
+ * and OffHeapLinkStore.
+ *
+ * The map records each write, and snapshot() applies the queued Changes to
+ * the last snapshot in O(log n) each, as MultiValueMap does. When more
+ * changes pile up than applying them is worth, they are dropped and the
+ * next snapshot is rebuilt from the map instead.
+ *
+ * SnapshotChanges is not thread-safe.
+ *
+ * @param <K> The type of Keys stored
+ * @param <V> The type of Values stored
+ */
+@SuppressWarnings("Convert2Diamond")
+final class SnapshotChanges<K extends Comparable<K>, V> {
+    private static final int MIN_REBUILD_THRESHOLD = 1024;
+
+    private MultiMapSnapshot<K, V> snapshot; //contents as of the last snapshot() call
+    private final List<MultiMapSnapshot.Change<K, V>> changes; //changes since snapshot was taken
+    private boolean rebuild; //too many changes to apply --> rebuild snapshot from map
+    private long version; //number of changes made to the map
+
+    SnapshotChanges(){
+        snapshot = MultiMapSnapshot.empty();
+        changes = new ArrayList<MultiMapSnapshot.Change<K, V>>();
+    }
+
+    /**
+     * Counts a change to the map, switching to a rebuild once
+     * too many changes are queued.
+     *
+     * @param valueCount Number of Values in the map.
+     * @return True if the change should be queued with add().
+     */
+    boolean record(int valueCount){
+        version++;
+
+        if (rebuild){
+            return false;
+        }
+        if (changes.size() >= Math.max(MIN_REBUILD_THRESHOLD, valueCount / 16)){
+            changes.clear();
+            rebuild = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues a change record() accepted.
+     *
+     * @param change The change.
+     */
+    void add(MultiMapSnapshot.Change<K, V> change){
+        changes.add(change);
+    }
+
+    /**
+     * Gets a snapshot of the map's current contents. Runs in constant time
+     * if the map hasn't changed since the last call.
+     *
+     * @param build Builds a snapshot of the map from scratch, at version().
+     * @return The snapshot.
+     */
+    MultiMapSnapshot<K, V> snapshot(Supplier<MultiMapSnapshot<K, V>> build){
+        if (rebuild){
+            snapshot = build.get();
+            rebuild = false;
+        }
+        else if (!changes.isEmpty()){
+            snapshot = MultiMapSnapshot.applyAll(snapshot, changes);
+            changes.clear();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the number of changes recorded.
+     *
+     * @return The map's version.
+     */
+    long version(){
+        return version;
+    }
+}
@@ -0,0 +1,219 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Map that stores K type keys with multiple V type values.
+ *
+ * Keys are stored in ascending order according to their compareTo()
+ * implementation. Values for each key are stored in LIFO order, and a
+ * key is removed once its last value is removed.
+ *
+ * @param <K> The type of Keys to be stored
+ * @param <V> The type of Values to be stored
+ */
+public interface SortedMultiMap<K extends Comparable<K>, V> {
+
+    /**
+     * Gets a Set of Keys stored in the map sorted
+     * in alphabetical order.
+     *
+     * @return A Set containing the map's keys in alphabetical order.
+     */
+    Set<K> getKeys();
+
+    /**
+     * Gets a List of the Values associated with a given Key sorted
+     * in LIFO order. Returns null if the given Key is not in the map.
+     *
+     * @param key Key for the desired Values in the map.
+     * @precond key is nonnull
+     * @return A List of Values mapped from the desired Key arranged in LIFO order. Null if the
+     *             given key is not in the map.
+     */
+    List<V> getValuesForKey(K key);
+
+    /**
+     * Adds a Value to the map with a given Key. If the Key is not in
+     * the map already, adds the Key as well. Fails if Value is already
+     * associated with the given Key.
+     *
+     * @param key Key for desired Value to add to the map.
+     * @param value Desired Value to add to the map.
+     * @precond key, value are nonnull
+     * @return True if Value was not already associated with the given
+     *             Key.
+     */
+    boolean addValue(K key, V value);
+
+    /**
+     * Adds Values to the map grouped by Key, as if by calling addValue()
+     * for each Value in iteration order. Values already associated with
+     * their Key are skipped.
+     *
+     * The default implementation calls addValue() for each Value.
+     * Implementations override it to look up each Key only once.
+     *
+     * @param values Values to add, grouped by Key.
+     * @precond values, its Keys and Values are nonnull
+     * @return The number of Values added.
+     */
+    default int addAll(Map<K, ? extends Collection<? extends V>> values){
+        int added = 0;
+
+        for (Map.Entry<K, ? extends Collection<? extends V>> entry : values.entrySet()){
+            for (V value : entry.getValue()){
+                if (addValue(entry.getKey(), value)){
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes the given Value associated with a given Key from
+     * the map if the Key is in the Map and the Value is associated
+     * with it. Removes the Key if the Value was its last Value.
+     *
+     * @param key Key associated with a given Value to remove.
+     * @param value Desired Value to remove.
+     * @precond key, value are nonnull
+     * @return True if the Key was in the map and was mapped to the
+     *              given Value.
+     */
+    boolean removeValue(K key, V value);
+
+    /**
+     * Removes the given Key from the map if it is
+     * in the map.
+     *
+     * @param key Desired Key to remove.
+     * @precond key is nonnull
+     * @return True if the Key was in the map.
+     */
+    boolean removeKey(K key);
+
+    /**
+     * Empties the map of all Key and Value mappings.
+     */
+    void clear();
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return True if the map is empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * Checks whether a Value is associated with any Key in the map.
+     *
+     * The default implementation scans every Key's Values. Implementations
+     * that keep a reverse index answer in constant time.
+     *
+     * @param value Value to look up.
+     * @precond value is nonnull
+     * @return True if some Key is mapped to the Value.
+     */
+    default boolean containsValue(V value){
+        return !getKeysForValue(value).isEmpty();
+    }
+
+    /**
+     * Gets the number of Keys in the map.
+     *
+     * The default implementation sizes getKeys(). Implementations whose
+     * getKeys() returns a copy answer without making one.
+     *
+     * @return The number of Keys.
+     */
+    default int keyCount(){
+        return getKeys().size();
+    }
+
+    /**
+     * Gets the number of Key and Value mappings in the map.
+     *
+     * The default implementation counts every Key's Values. Implementations
+     * that keep a count answer in constant time.
+     *
+     * @return The number of Values across all Keys.
+     */
+    default int valueCount(){
+        int count = 0;
+
+        for (K key : getKeys()){
+            List<V> values = getValuesForKey(key);
+            if (values != null){
+                count += values.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the Keys a given Value is associated with.
+     *
+     * The default implementation scans every Key's Values. Implementations
+     * that keep a reverse index answer in constant time.
+     *
+     * @param value Value to look up.
+     * @precond value is nonnull
+     * @return An unmodifiable Set of the Value's Keys in ascending order.
+     *             Empty if the Value is not in the map.
+     */
+    default Set<K> getKeysForValue(V value){
+        Set<K> keys = new TreeSet<K>();
+
+        for (K key : getKeys()){
+            List<V> values = getValuesForKey(key);
+            if (values != null && values.contains(value)){
+                keys.add(key);
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Gets an immutable snapshot of the map's current contents.
+     *
+     * The default implementation copies the whole map, and the snapshot's
+     * version only counts the Values copied. Implementations that keep
+     * their own snapshot up to date return it in constant time.
+     *
+     * @return A snapshot of the map.
+     */
+    default MultiMapSnapshot<K, V> snapshot(){
+        MultiMapSnapshot<K, V> snapshot = MultiMapSnapshot.empty();
+
+        for (K key : getKeys()){
+            List<V> values = getValuesForKey(key);
+            if (values == null){
+                continue; //key removed while copying
+            }
+
+            long order = 0;
+            for (V value : values){
+                snapshot = snapshot.withValue(key, order++, value);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets a future completing once every change made to the map so far has
+     * been persisted. In-memory maps return a completed future.
+     *
+     * @return Future completing when the map's changes are durable.
+     */
+    default CompletableFuture<Void> sync(){
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,47 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Locale;
+
+/**
+ * Ways ArtBot can store its collection of art links in memory.
+ *
+ * STANDARD: MultiValueMap, unsynchronized, which is fine behind the locks of SearchableMultiMap and DurableMultiMap
+ * CONCURRENT: ConcurrentMultiValueMap, safe to share between threads
+ * COMPACT: CompactLinkStore, the smallest heap footprint for large collections
+ * OFF_HEAP: OffHeapLinkStore, keeps links out of the heap for very large collections
+ */
+public enum StorageMode {
+    STANDARD,
+    CONCURRENT,
+    COMPACT,
+    OFF_HEAP;
+
+    /**
+     * Creates a new, empty collection for this mode.
+     *
+     * @return An empty collection of artist profile links and their art links.
+     */
+    public SortedMultiMap<String, String> createCollection(){
+        switch (this){
+            case CONCURRENT:
+                return new ConcurrentMultiValueMap<String, String>();
+            case COMPACT:
+                return new CompactLinkStore();
+            case OFF_HEAP:
+                return new OffHeapLinkStore();
+            default:
+                return new MultiValueMap<String, String>();
+        }
+    }
+
+    /**
+     * Gets the StorageMode with the given name, ignoring case.
+     *
+     * @param name Name of the mode, or null.
+     * @return The named mode, or STANDARD if name is null.
+     * @throws IllegalArgumentException if no mode has the given name.
+     */
+    public static StorageMode fromName(String name){
+        return (name == null) ? STANDARD : valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
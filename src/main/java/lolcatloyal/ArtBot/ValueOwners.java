@@ -0,0 +1,89 @@
+package lolcatloyal.ArtBot;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Helpers for reverse indexes mapping each Value to the Keys it is stored under.
+ *
+ * A Value almost always has a single Key, so a lone Key is stored in the
+ * index as is, and only Values shared between Keys get a Set. Owners are
+ * never modified in place, so they can be swapped atomically with
+ * Map.merge() and Map.computeIfPresent().
+ */
+@SuppressWarnings({"unchecked", "rawtypes", "Convert2Diamond"})
+final class ValueOwners {
+
+    /**
+     * Keys of a Value stored under more than one Key.
+     */
+    private static final class Shared {
+        private final Set<Object> keys; //unmodifiable
+
+        private Shared(Set<Object> keys){
+            this.keys = Collections.unmodifiableSet(keys);
+        }
+    }
+
+    private ValueOwners(){}
+
+    /**
+     * Adds a Key to a Value's owners.
+     *
+     * @param owners The Value's current owners.
+     * @param key Key to add.
+     * @precond owners, key are nonnull
+     * @return The updated owners.
+     */
+    static Object with(Object owners, Object key){
+        if (owners instanceof Shared){
+            Set<Object> keys = new TreeSet<Object>(((Shared) owners).keys);
+            keys.add(key);
+            return new Shared(keys);
+        }
+        if (owners.equals(key)){
+            return owners;
+        }
+
+        Set<Object> keys = new TreeSet<Object>();
+        keys.add(owners);
+        keys.add(key);
+        return new Shared(keys);
+    }
+
+    /**
+     * Removes a Key from a Value's owners.
+     *
+     * @param owners The Value's current owners.
+     * @param key Key to remove.
+     * @precond owners, key are nonnull
+     * @return The updated owners, or null if the Value has none left.
+     */
+    static Object without(Object owners, Object key){
+        if (!(owners instanceof Shared)){
+            return owners.equals(key) ? null : owners;
+        }
+
+        Set<Object> keys = new TreeSet<Object>(((Shared) owners).keys);
+        keys.remove(key);
+        return (keys.size() == 1) ? keys.iterator().next() : new Shared(keys);
+    }
+
+    /**
+     * Gets the Keys in a Value's owners.
+     *
+     * @param owners The Value's owners, or null if it has none.
+     * @param <K> The type of Keys stored
+     * @return An unmodifiable Set of the Keys in ascending order.
+     */
+    static <K> Set<K> keys(Object owners){
+        if (owners == null){
+            return Collections.emptySet();
+        }
+        if (owners instanceof Shared){
+            return (Set<K>) ((Shared) owners).keys;
+        }
+        return Collections.singleton((K) owners);
+    }
+}
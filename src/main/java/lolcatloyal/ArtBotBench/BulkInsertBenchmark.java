@@ -0,0 +1,77 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.LinkUtil;
+import lolcatloyal.ArtBot.SortedMultiMap;
+import lolcatloyal.ArtBot.StorageMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks importing 1M links by 10k artists into an empty collection,
+ * with one addValue() call per link versus a single addAll() call.
+ *
+ * Each invocation imports into a fresh collection, so results include
+ * the cost of growing it.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main BulkInsertBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BulkInsertBenchmark {
+    private static final int LINKS = 1000000;
+    private static final int ARTISTS = 10000;
+
+    @Param({"STANDARD", "CONCURRENT", "COMPACT"})
+    public StorageMode mode;
+
+    private String[] keys;
+    private String[] values;
+    private Map<String, List<String>> grouped;
+    private SortedMultiMap<String, String> m;
+
+    @Setup(Level.Trial)
+    public void setUpLinks() {
+        keys = new String[LINKS];
+        values = new String[LINKS];
+        grouped = new TreeMap<String, List<String>>();
+
+        for (int i = 0; i < LINKS; i++){
+            String handle = "artist_" + (i % ARTISTS);
+            keys[i] = LinkUtil.buildProfileLinkFromHandle(handle);
+            values[i] = LinkUtil.buildFXPostLink(handle, 1500000000000000000L + i);
+            grouped.computeIfAbsent(keys[i], k -> new ArrayList<String>()).add(values[i]);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpCollection() {
+        m = mode.createCollection();
+    }
+
+    /**
+     * Imports links one addValue() call at a time.
+     */
+    @Benchmark
+    public SortedMultiMap<String, String> addValueLoop() {
+        for (int i = 0; i < LINKS; i++){
+            m.addValue(keys[i], values[i]);
+        }
+        return m;
+    }
+
+    /**
+     * Imports links already grouped by artist with addAll().
+     */
+    @Benchmark
+    public SortedMultiMap<String, String> addAllGrouped() {
+        m.addAll(grouped);
+        return m;
+    }
+}
@@ -0,0 +1,115 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.CommandDispatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks routing a stream of chat messages to text commands, comparing
+ * the chain of regex Matchers ArtListener used to build for every message
+ * with a CommandDispatcher.
+ *
+ * The stream is mostly chatter: about 1 in 20 messages is a command, and a
+ * few more start with the prefix without being one. Scores are per message.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main CommandDispatchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+    private static final String PREFIX = "-";
+    private static final int MESSAGES = 4096; //power of two
+
+    //The Matcher chain ArtListener used before CommandDispatcher
+    private static final Pattern ADD_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "add \\s*\\w++");
+    private static final Pattern FIND_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "find \\s*@?\\w++");
+    private static final Pattern SHOW_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "show$");
+    private static final Pattern CLEAR_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "clear$");
+    private static final Pattern HELP_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "help$");
+    private static final Pattern QUIT_COMMAND_PATTERN = Pattern.compile("^" + PREFIX + "quit$");
+
+    private static final String[] CHATTER = {
+            "lol",
+            "has anyone seen the new piece from yesterday?? it's so good",
+            "https://twitter.com/someone/status/1534343399219445760",
+            "ok",
+            "I think the colours on that one are a bit off but the linework is amazing, " +
+                    "honestly one of the best I've seen this month",
+            "-_-",
+            "- not sure",
+            "brb",
+    };
+    private static final String[] COMMANDS = {
+            "-add https://twitter.com/artist_name/status/1534343399219445760?s=20",
+            "-show",
+            "-find @art",
+            "-help",
+    };
+
+    private String[] messages;
+    private int next;
+    private CommandDispatcher<Blackhole> dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        messages = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++){
+            messages[i] = (random.nextInt(20) == 0)
+                    ? COMMANDS[random.nextInt(COMMANDS.length)]
+                    : CHATTER[random.nextInt(CHATTER.length)];
+        }
+
+        BiConsumer<Blackhole, String> handler = Blackhole::consume;
+        dispatcher = new CommandDispatcher<Blackhole>(PREFIX);
+        dispatcher.registerWithArgument("add", handler)
+                .registerWithArgument("find", handler)
+                .register("show", handler)
+                .register("clear", handler)
+                .register("help", handler);
+    }
+
+    @Benchmark
+    public void matcherChain(Blackhole bh) {
+        String messageRaw = nextMessage();
+
+        Matcher addMatcher = ADD_COMMAND_PATTERN.matcher(messageRaw);
+        Matcher findMatcher = FIND_COMMAND_PATTERN.matcher(messageRaw);
+        Matcher showMatcher = SHOW_COMMAND_PATTERN.matcher(messageRaw);
+        Matcher clearMatcher = CLEAR_COMMAND_PATTERN.matcher(messageRaw);
+        Matcher helpMatcher = HELP_COMMAND_PATTERN.matcher(messageRaw);
+        Matcher quitMatcher = QUIT_COMMAND_PATTERN.matcher(messageRaw);
+
+        if (addMatcher.find()){
+            bh.consume(messageRaw.substring(5));
+        }
+        else if (findMatcher.find()){
+            bh.consume(messageRaw.substring(6));
+        }
+        else if (showMatcher.find() || clearMatcher.find() || helpMatcher.find()){
+            bh.consume(messageRaw);
+        }
+        bh.consume(quitMatcher);
+    }
+
+    @Benchmark
+    public boolean dispatcher(Blackhole bh) {
+        return dispatcher.dispatch(nextMessage(), bh);
+    }
+
+    private String nextMessage() {
+        next = (next + 1) & (MESSAGES - 1);
+        return messages[next];
+    }
+}
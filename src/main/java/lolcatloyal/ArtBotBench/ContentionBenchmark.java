@@ -0,0 +1,105 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.ConcurrentMultiValueMap;
+import lolcatloyal.ArtBot.MultiValueMap;
+import lolcatloyal.ArtBot.SortedMultiMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmark for SortedMultiMaps shared between 1 to 32 threads.
+ *
+ * Each operation adds a random art link to a random artist and removes it
+ * again. "concurrent" uses ConcurrentMultiValueMap; "locked" guards a
+ * MultiValueMap with a single lock for comparison.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main ContentionBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+    private static final int ARTISTS = 1000;
+    private static final int LINKS_PER_ARTIST = 100;
+
+    @Param({"concurrent", "locked"})
+    public String impl;
+
+    private SortedMultiMap<String, String> m;
+    private String[] artists;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m = impl.equals("concurrent")
+                ? new ConcurrentMultiValueMap<String, String>()
+                : new MultiValueMap<String, String>();
+
+        artists = new String[ARTISTS];
+        for (int i = 0; i < ARTISTS; i++){
+            artists[i] = "https://twitter.com/artist" + i;
+            for (int j = 0; j < LINKS_PER_ARTIST; j++){
+                m.addValue(artists[i], "https://fxtwitter.com/artist" + i + "/status/" + j);
+            }
+        }
+    }
+
+    /**
+     * Adds a new link for a random artist, then removes it.
+     */
+    private boolean addAndRemove() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String artist = artists[random.nextInt(ARTISTS)];
+        String link = artist + "/status/" + random.nextLong();
+
+        if (impl.equals("locked")){
+            synchronized (m){
+                m.addValue(artist, link);
+                return m.removeValue(artist, link);
+            }
+        }
+        m.addValue(artist, link);
+        return m.removeValue(artist, link);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads01() {
+        return addAndRemove();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean threads02() {
+        return addAndRemove();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads04() {
+        return addAndRemove();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean threads08() {
+        return addAndRemove();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean threads16() {
+        return addAndRemove();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean threads32() {
+        return addAndRemove();
+    }
+}
@@ -0,0 +1,95 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.CompactLinkStore;
+import lolcatloyal.ArtBot.LinkUtil;
+import lolcatloyal.ArtBot.MultiValueMap;
+import lolcatloyal.ArtBot.OffHeapLinkStore;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap of a collection of art links stored as:
+ * - TreeMap<String, List<String>> with ArrayLists (the original layout)
+ * - MultiValueMap
+ * - CompactLinkStore
+ * - OffHeapLinkStore (heap only, its direct memory is reported separately)
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] lolcatloyal.ArtBotBench.FootprintComparison [links] [artists]
+ */
+@SuppressWarnings("Convert2Diamond")
+public class FootprintComparison {
+    private static Object sink; //keeps the measured structure reachable
+
+    public static void main(String[] args) {
+        int links = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int artists = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+
+        System.out.printf("%d links across %d artists%n", links, artists);
+        report("TreeMap<String, List<String>>", links, measure(() -> {
+            TreeMap<String, List<String>> map = new TreeMap<String, List<String>>();
+            for (int i = 0; i < links; i++){
+                map.computeIfAbsent(LinkUtil.buildProfileLinkFromHandle(handle(i, artists)),
+                        k -> new ArrayList<String>()).add(0, post(i, artists));
+            }
+            return map;
+        }));
+        report("MultiValueMap", links, measure(() -> {
+            MultiValueMap<String, String> map = new MultiValueMap<String, String>();
+            for (int i = 0; i < links; i++){
+                map.addValue(LinkUtil.buildProfileLinkFromHandle(handle(i, artists)), post(i, artists));
+            }
+            return map;
+        }));
+        report("CompactLinkStore", links, measure(() -> {
+            CompactLinkStore store = new CompactLinkStore();
+            for (int i = 0; i < links; i++){
+                store.addValue(LinkUtil.buildProfileLinkFromHandle(handle(i, artists)), post(i, artists));
+            }
+            return store;
+        }));
+        report("OffHeapLinkStore", links, measure(() -> {
+            OffHeapLinkStore store = new OffHeapLinkStore();
+            for (int i = 0; i < links; i++){
+                store.addValue(LinkUtil.buildProfileLinkFromHandle(handle(i, artists)), post(i, artists));
+            }
+            System.out.printf("  (OffHeapLinkStore direct memory: %,d bytes)%n", store.offHeapBytes());
+            return store;
+        }));
+    }
+
+    private static String handle(int i, int artists){
+        return "artist_" + (i % artists);
+    }
+
+    private static String post(int i, int artists){
+        return LinkUtil.buildFXPostLink(handle(i, artists), 1500000000000000000L + i);
+    }
+
+    /**
+     * Builds a structure and measures how much heap it retains.
+     *
+     * @param builder Supplier building the structure.
+     * @return Retained bytes.
+     */
+    private static long measure(Supplier<Object> builder){
+        long before = usedHeap();
+        sink = builder.get();
+        long after = usedHeap();
+        sink = null;
+        return after - before;
+    }
+
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, int links, long bytes){
+        System.out.printf("%-32s %,14d bytes  %6.1f bytes/link%n", name, bytes, (double) bytes / links);
+    }
+}
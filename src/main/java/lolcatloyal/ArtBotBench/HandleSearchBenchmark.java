@@ -0,0 +1,63 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.HandleIndex;
+import lolcatloyal.ArtBot.LinkUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the first 10 artists whose handles start with a
+ * prefix, in a HandleIndex of 100k and 1M random handles.
+ *
+ * Costs should grow with log n, not n.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main HandleSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleSearchBenchmark {
+    private static final String HANDLE_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789_";
+
+    @Param({"100000", "1000000"})
+    public int artists;
+
+    private HandleIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        index = new HandleIndex();
+
+        for (int i = 0; i < artists; i++){
+            StringBuilder handle = new StringBuilder();
+            for (int j = 4 + random.nextInt(11); j > 0; j--){
+                handle.append(HANDLE_CHARS.charAt(random.nextInt(HANDLE_CHARS.length())));
+            }
+            index.add(LinkUtil.buildProfileLinkFromHandle(handle.toString()));
+        }
+    }
+
+    /**
+     * Searches a prefix matching about 1/37 of the handles.
+     */
+    @Benchmark
+    public List<String> searchShortPrefix() {
+        return index.search("k", 10);
+    }
+
+    /**
+     * Searches a prefix matching only a few handles.
+     */
+    @Benchmark
+    public List<String> searchLongPrefix() {
+        return index.search("Kit", 10);
+    }
+}
@@ -0,0 +1,101 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.LinkUtil;
+import lolcatloyal.ArtBot.ParsedLink;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks parsing the argument of an -add command:
+ * - legacy: trim() and split(" "), two regex Matchers, a StringBuilder
+ *   insert and split("/"), as LinkUtil did before ParsedLink
+ * - parsed: one ParsedLink pass, then building the art and artist links
+ * - parseOnly: the ParsedLink pass alone, reusing one ParsedLink
+ *
+ * for a valid link with trailing text, an invalid link, and 10k
+ * characters of garbage without spaces.
+ *
+ * Run with -prof gc to see allocations per operation:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main LinkParseBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkParseBenchmark {
+    private static final Pattern TWIT_PATTERN = Pattern.compile("^https://twitter\\.com/.+/status/.+");
+    private static final Pattern FX_PATTERN = Pattern.compile("^https://fxtwitter\\.com/.+/status/.+");
+
+    @Param({"valid", "invalid", "garbage"})
+    public String input;
+
+    private String argument;
+    private ParsedLink parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (input){
+            case "valid":
+                argument = " https://twitter.com/some_artist/status/1512345678901234567?s=20 look at this!";
+                break;
+            case "invalid":
+                argument = "https://twitter.com/some_artist look at this!";
+                break;
+            default:
+                StringBuilder garbage = new StringBuilder("https://twitter.com/");
+                while (garbage.length() < 10000){
+                    garbage.append("status").append(garbage.length() % 10);
+                }
+                argument = garbage.toString();
+        }
+        parsed = new ParsedLink();
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        String artLink = argument.trim().split(" ")[0];
+        int linkType;
+        if (TWIT_PATTERN.matcher(artLink).find()){
+            linkType = 0;
+        }
+        else if (FX_PATTERN.matcher(artLink).find()){
+            linkType = 1;
+        }
+        else {
+            linkType = -1;
+        }
+
+        if (linkType != -1){
+            if (linkType == 0){
+                artLink = new StringBuilder(artLink).insert(8, "fx").toString();
+            }
+            bh.consume(artLink);
+            bh.consume(LinkUtil.TWIT_PROFILE_PREFIX + artLink.split("/")[3]);
+        }
+    }
+
+    @Benchmark
+    public void parsed(Blackhole bh) {
+        ParsedLink link = new ParsedLink();
+
+        if (link.parse(argument)){
+            String artLink = argument.substring(link.getStart(), link.getEnd());
+            if (link.getHost() == ParsedLink.TWITTER){
+                artLink = LinkUtil.twitToFXLink(artLink);
+            }
+            bh.consume(artLink);
+            bh.consume(LinkUtil.buildProfileLink(argument, link.getHandleStart(), link.getHandleEnd()));
+        }
+    }
+
+    @Benchmark
+    public long parseOnly() {
+        parsed.parse(argument);
+        return parsed.getStatusId() + parsed.getType();
+    }
+}
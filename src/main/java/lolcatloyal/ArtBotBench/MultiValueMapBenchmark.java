@@ -0,0 +1,73 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.MultiValueMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for adding and removing Values under a single Key of a
+ * MultiValueMap holding 10, 10k and 1M Values.
+ *
+ * Costs should stay flat as the number of Values grows.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] org.openjdk.jmh.Main MultiValueMapBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiValueMapBenchmark {
+    private static final String ARTIST = "https://twitter.com/artist";
+
+    @Param({"10", "10000", "1000000"})
+    public int valuesPerKey;
+
+    private MultiValueMap<String, String> m;
+    private String oldest;
+    private String fresh;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        m = new MultiValueMap<String, String>();
+        for (int i = 0; i < valuesPerKey; i++){
+            m.addValue(ARTIST, link(i));
+        }
+        oldest = link(0);
+        fresh = link(valuesPerKey);
+    }
+
+    /**
+     * Adds a new Value to the front and removes it again.
+     */
+    @Benchmark
+    public boolean addAndRemoveNewest() {
+        m.addValue(ARTIST, fresh);
+        return m.removeValue(ARTIST, fresh);
+    }
+
+    /**
+     * Removes a stored Value and adds it back to the front.
+     */
+    @Benchmark
+    public boolean removeAndReadd() {
+        m.removeValue(ARTIST, oldest);
+        return m.addValue(ARTIST, oldest);
+    }
+
+    /**
+     * Attempts to add a Value that is already stored. This was a
+     * full scan of the Key's Values with an ArrayList.
+     */
+    @Benchmark
+    public boolean addDuplicate() {
+        return m.addValue(ARTIST, oldest);
+    }
+
+    private static String link(int i) {
+        return "https://fxtwitter.com/artist/status/" + (1500000000000000000L + i);
+    }
+}
@@ -0,0 +1,96 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.ArtListener;
+import lolcatloyal.ArtBot.RuntimeProfile;
+import net.dv8tion.jda.api.JDA;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares startup of each RuntimeProfile against a StubGateway serving
+ * a fixed set of guilds, reporting:
+ * - time from build() until JDA is ready, with every guild loaded
+ * - heap retained once ready, over the heap before connecting, sampled
+ *   after a warm-up and a forced GC
+ * - bytes the gateway sent, showing the effect of compression
+ *
+ * JDA keeps handling events for a moment after it reports ready, so heap
+ * is sampled WARM_UP_MILLIS later, once the gateway has sent nothing for
+ * a while, rather than right at onReady. Heap numbers are cleanest with one profile per JVM, as classes loaded
+ * by the first run are counted against it alone.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] lolcatloyal.ArtBotBench.ProfileComparison [guilds] [members] [channels] [profiles...]
+ */
+@SuppressWarnings("Convert2Diamond")
+public class ProfileComparison {
+    private static final int ROLES = 20;
+    private static final int EMOJIS = 20;
+    private static final long WARM_UP_MILLIS = 2000; //least time after ready before heap is sampled
+
+    private static Object sink; //keeps the measured JDA reachable
+
+    public static void main(String[] args) throws Exception {
+        int guilds = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int members = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int channels = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+
+        List<RuntimeProfile> profiles = new ArrayList<RuntimeProfile>();
+        for (int i = 3; i < args.length; i++){
+            profiles.add(RuntimeProfile.fromName(args[i]));
+        }
+        if (profiles.isEmpty()){
+            for (RuntimeProfile profile : RuntimeProfile.values()){
+                profiles.add(profile);
+            }
+        }
+
+        System.out.printf("%d guilds, %d members, %d channels, %d roles, %d emojis each%n",
+                guilds, members, channels, ROLES, EMOJIS);
+        for (RuntimeProfile profile : profiles){
+            run(profile, guilds, members, channels);
+        }
+    }
+
+    private static void run(RuntimeProfile profile, int guilds, int members, int channels) throws Exception {
+        try (StubGateway gateway = new StubGateway(guilds, channels, members, ROLES, EMOJIS)) {
+            long before = usedHeap();
+            long start = System.nanoTime();
+
+            JDA jda = profile.createBuilder("stub-token", ArtListener.INTENTS)
+                    .setHttpClient(gateway.httpClient())
+                    .setSessionController(gateway.sessionController())
+                    .addEventListeners(new ArtListener())
+                    .build()
+                    .awaitReady();
+            long readyNanos = System.nanoTime() - start;
+
+            //Let the events still in flight after ready be handled
+            long sent;
+            do {
+                sent = gateway.getBytesSent();
+                Thread.sleep(WARM_UP_MILLIS);
+            } while (gateway.getBytesSent() != sent);
+
+            sink = jda;
+            long retained = usedHeap() - before;
+            System.out.printf("%-8s ready in %,8.1f ms  %,14d bytes heap  %,14d bytes from gateway  (%,d users cached)%n",
+                    profile, readyNanos / 1e6, retained, gateway.getBytesSent(), jda.getUserCache().size());
+
+            jda.shutdownNow();
+            sink = null;
+        }
+    }
+
+    /**
+     * Gets the heap in use after forcing a GC.
+     */
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
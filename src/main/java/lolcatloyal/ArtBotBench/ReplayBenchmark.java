@@ -0,0 +1,69 @@
+package lolcatloyal.ArtBotBench;
+
+import lolcatloyal.ArtBot.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Times how long ArtBot takes to load a persisted collection at startup,
+ * from a log of adds and from a compacted snapshot, for each StorageMode.
+ *
+ * Run with:
+ * java -cp target/classes:[dependencies] lolcatloyal.ArtBotBench.ReplayBenchmark [links] [artists]
+ */
+public class ReplayBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int links = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int artists = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+        Path dir = Files.createTempDirectory("artbot-replay");
+
+        //Write the log with one group commit per 1000 adds
+        long start = System.nanoTime();
+        DurableMultiMap m = DurableMultiMap.open(dir, new CompactLinkStore(), Long.MAX_VALUE);
+        for (int i = 0; i < links; i++){
+            String handle = "artist_" + (i % artists);
+            m.addValue(LinkUtil.buildProfileLinkFromHandle(handle), LinkUtil.buildFXPostLink(handle, 1500000000000000000L + i));
+            if (i % 1000 == 999){
+                m.sync().join();
+            }
+        }
+        m.close();
+        System.out.printf("Wrote %d-record log in %d ms (%,d bytes)%n", links,
+                (System.nanoTime() - start) / 1000000, Files.size(dir.resolve("log-0")));
+
+        for (int run = 0; run < 3; run++){ //first runs warm up the JIT
+            for (StorageMode mode : StorageMode.values()){
+                time("log replay", mode, dir);
+            }
+        }
+
+        //Compact, then load from the snapshot
+        m = DurableMultiMap.open(dir, new CompactLinkStore(), Long.MAX_VALUE);
+        m.compact();
+        m.close();
+        for (StorageMode mode : StorageMode.values()){
+            time("snapshot load", mode, dir);
+        }
+        deleteAll(dir);
+    }
+
+    private static void time(String what, StorageMode mode, Path dir) throws IOException {
+        long start = System.nanoTime();
+        DurableMultiMap m = DurableMultiMap.open(dir, mode.createCollection(), Long.MAX_VALUE);
+        long elapsed = System.nanoTime() - start;
+        m.close();
+        System.out.printf("%-14s %-10s %6d ms%n", what, mode, elapsed / 1000000);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (java.util.stream.Stream<Path> files = Files.list(dir)){
+            for (Path file : (Iterable<Path>) files::iterator){
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,469 @@
+package lolcatloyal.ArtBotBench;
+
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+import net.dv8tion.jda.api.utils.SessionController;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Local stand-in for Discord's gateway and REST API, just enough for JDA
+ * to log in, receive a fixed set of guilds and become ready, without a
+ * token or network access.
+ *
+ * REST requests are answered by an OkHttp interceptor: users/@me returns
+ * the bot's user, anything else a 404. The gateway is a minimal WebSocket
+ * server on the loopback address speaking gateway v9 in JSON, with
+ * zlib-stream transport compression when the client asks for it. After
+ * IDENTIFY it sends READY and a GUILD_CREATE per guild, following the
+ * client's intents and large threshold the way Discord does: members are
+ * only sent with GUILD_MEMBERS, and only up to the large threshold.
+ *
+ * Bytes sent over the gateway are counted, to compare compression. Names
+ * and topics are random, so guilds don't compress unrealistically well
+ * against each other.
+ */
+@SuppressWarnings("Convert2Diamond")
+public class StubGateway implements Closeable {
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final long SELF_ID = 1000000000000000L;
+    private static final long GUILD_BASE = 2000000000000000L;
+    private static final long CHANNEL_BASE = 3000000000000000L;
+    private static final long USER_BASE = 4000000000000000L;
+    private static final long ROLE_BASE = 5000000000000000L;
+    private static final long EMOJI_BASE = 6000000000000000L;
+    private static final String JOINED_AT = "2021-01-01T00:00:00.000000+00:00";
+
+    private final int guilds;
+    private final int channels;
+    private final int members;
+    private final int roles;
+    private final int emojis;
+    private final ServerSocket server;
+    private final AtomicLong bytesSent;
+
+    /**
+     * Starts a new StubGateway.
+     *
+     * @param guilds Number of guilds the bot is in.
+     * @param channels Text channels per guild.
+     * @param members Members per guild, besides the bot.
+     * @param roles Roles per guild, besides @everyone.
+     * @param emojis Custom emojis per guild.
+     * @throws IOException if the gateway can't listen.
+     */
+    public StubGateway(int guilds, int channels, int members, int roles, int emojis) throws IOException {
+        this.guilds = guilds;
+        this.channels = channels;
+        this.members = members;
+        this.roles = roles;
+        this.emojis = emojis;
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        bytesSent = new AtomicLong();
+
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()){
+                try {
+                    Socket socket = server.accept();
+                    Thread connection = new Thread(() -> serve(socket), "StubGateway-connection");
+                    connection.setDaemon(true);
+                    connection.start();
+                }
+                catch (IOException e){ //closed
+                    return;
+                }
+            }
+        }, "StubGateway-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Gets a session controller pointing JDA at this gateway.
+     *
+     * @return A session controller for JDABuilder.setSessionController().
+     */
+    public SessionController sessionController(){
+        String url = "ws://127.0.0.1:" + server.getLocalPort();
+        return new ConcurrentSessionController() {
+            @Override
+            public String getGateway(){
+                return url;
+            }
+        };
+    }
+
+    /**
+     * Gets an HTTP client answering JDA's REST requests locally.
+     *
+     * @return An HTTP client for JDABuilder.setHttpClient().
+     */
+    public OkHttpClient httpClient(){
+        return new OkHttpClient.Builder().addInterceptor(chain -> {
+            String path = chain.request().url().encodedPath();
+            boolean self = path.endsWith("/users/@me");
+            String body = self ? selfUser().toString() : "{\"message\": \"Unknown\", \"code\": 0}";
+
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(self ? 200 : 404)
+                    .message(self ? "OK" : "Not Found")
+                    .body(ResponseBody.create(MediaType.get("application/json"), body))
+                    .build();
+        }).build();
+    }
+
+    /**
+     * Gets the number of bytes sent over the gateway so far, including
+     * WebSocket framing.
+     *
+     * @return Bytes sent.
+     */
+    public long getBytesSent(){
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    //--- Gateway --------------------------------------------------------------
+
+    /**
+     * Speaks the gateway protocol with one client until it disconnects.
+     */
+    private void serve(Socket socket){
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+
+            String path = handshake(in, out);
+            Deflater deflater = path.contains("compress=zlib-stream") ? new Deflater() : null;
+            send(out, deflater, "{\"op\": 10, \"d\": {\"heartbeat_interval\": 41250}}");
+
+            int sequence = 0;
+            while (true){
+                int first = in.read();
+                if (first == -1){
+                    return;
+                }
+                int opcode = first & 0x0f;
+                byte[] payload = readPayload(in);
+
+                if (opcode == 0x8){ //close --> echo and hang up
+                    writeFrame(out, 0x8, payload);
+                    return;
+                }
+                if (opcode == 0x9){ //ping
+                    writeFrame(out, 0xA, payload);
+                    continue;
+                }
+                if (opcode != 0x1){
+                    continue;
+                }
+
+                DataObject message = DataObject.fromJson(new String(payload, StandardCharsets.UTF_8));
+                switch (message.getInt("op")){
+                    case 1: //heartbeat
+                        send(out, deflater, "{\"op\": 11}");
+                        break;
+                    case 2: //identify
+                        DataObject identify = message.getObject("d");
+                        int intents = identify.getInt("intents", 0);
+                        int largeThreshold = identify.getInt("large_threshold", 250);
+
+                        send(out, deflater, dispatch("READY", ++sequence, ready()));
+                        for (int g = 0; g < guilds; g++){
+                            send(out, deflater, dispatch("GUILD_CREATE", ++sequence, guild(g, intents, largeThreshold)));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        catch (IOException e){ //client went away
+        }
+    }
+
+    /**
+     * Reads the WebSocket upgrade request and accepts it.
+     *
+     * @return The requested path, with its query.
+     */
+    private static String handshake(DataInputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1), 1);
+        String path = reader.readLine().split(" ")[1];
+        String key = null;
+
+        for (String line = reader.readLine(); line != null && !line.isEmpty(); line = reader.readLine()){
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")){
+                key = line.substring(colon + 1).trim();
+            }
+        }
+
+        String accept;
+        try {
+            accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                    .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        }
+        catch (NoSuchAlgorithmException e){
+            throw new IOException(e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        return path;
+    }
+
+    /**
+     * Reads the rest of a client frame after its first byte, unmasking it.
+     */
+    private static byte[] readPayload(DataInputStream in) throws IOException {
+        int second = in.readUnsignedByte();
+        long length = second & 0x7f;
+        if (length == 126){
+            length = in.readUnsignedShort();
+        }
+        else if (length == 127){
+            length = in.readLong();
+        }
+
+        byte[] mask = new byte[4];
+        if ((second & 0x80) != 0){
+            in.readFully(mask);
+        }
+        byte[] payload = new byte[(int) length];
+        in.readFully(payload);
+        for (int i = 0; i < payload.length; i++){
+            payload[i] ^= mask[i & 3];
+        }
+        return payload;
+    }
+
+    /**
+     * Sends a gateway message, compressed into the connection's zlib stream if it has one.
+     */
+    private void send(OutputStream out, Deflater deflater, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        if (deflater == null){
+            writeFrame(out, 0x1, bytes);
+            return;
+        }
+
+        deflater.setInput(bytes);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        do { //sync flush ends the message with 00 00 ff ff, which the client waits for
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            compressed.write(buffer, 0, n);
+        } while (n == buffer.length);
+        writeFrame(out, 0x2, compressed.toByteArray());
+    }
+
+    private void writeFrame(OutputStream out, int opcode, byte[] payload) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 10);
+
+        frame.write(0x80 | opcode);
+        if (payload.length < 126){
+            frame.write(payload.length);
+        }
+        else if (payload.length < 65536){
+            frame.write(126);
+            frame.write(payload.length >>> 8);
+            frame.write(payload.length);
+        }
+        else {
+            frame.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8){
+                frame.write((int) ((long) payload.length >>> shift));
+            }
+        }
+        frame.write(payload);
+
+        synchronized (out){
+            frame.writeTo(out);
+            out.flush();
+        }
+        bytesSent.addAndGet(frame.size());
+    }
+
+    //--- Payloads --------------------------------------------------------------
+
+    private static String dispatch(String type, int sequence, DataObject data){
+        return DataObject.empty().put("op", 0).put("t", type).put("s", sequence).put("d", data).toString();
+    }
+
+    private static DataObject selfUser(){
+        return user(SELF_ID, "ArtBot").put("bot", true).put("verified", true).put("mfa_enabled", false)
+                .put("flags", 0);
+    }
+
+    private static DataObject user(long id, String name){
+        return DataObject.empty().put("id", Long.toString(id)).put("username", name).put("discriminator", "0001")
+                .put("avatar", null).put("bot", false).put("public_flags", 0);
+    }
+
+    private DataObject ready(){
+        DataArray unavailable = DataArray.empty();
+        for (int g = 0; g < guilds; g++){
+            unavailable.add(DataObject.empty().put("id", Long.toString(GUILD_BASE + g)).put("unavailable", true));
+        }
+
+        return DataObject.empty()
+                .put("v", 9)
+                .put("user", selfUser())
+                .put("guilds", unavailable)
+                .put("session_id", "stub-session")
+                .put("private_channels", DataArray.empty())
+                .put("relationships", DataArray.empty())
+                .put("presences", DataArray.empty())
+                .put("application", DataObject.empty().put("id", Long.toString(SELF_ID)).put("flags", 0));
+    }
+
+    private DataObject guild(int g, int intents, int largeThreshold){
+        long guildId = GUILD_BASE + g;
+        boolean large = members + 1 > largeThreshold;
+        Random random = new Random(guildId);
+
+        DataArray roleList = DataArray.empty().add(role(guildId, "@everyone", 0));
+        for (int r = 0; r < roles; r++){
+            roleList.add(role(ROLE_BASE + (long) g * roles + r, name(random, 12), r + 1));
+        }
+
+        DataArray channelList = DataArray.empty();
+        for (int c = 0; c < channels; c++){
+            channelList.add(DataObject.empty()
+                    .put("id", Long.toString(CHANNEL_BASE + (long) g * channels + c))
+                    .put("type", 0)
+                    .put("name", name(random, 16))
+                    .put("position", c)
+                    .put("parent_id", null)
+                    .put("topic", name(random, 60))
+                    .put("nsfw", false)
+                    .put("last_message_id", null)
+                    .put("rate_limit_per_user", 0)
+                    .put("permission_overwrites", DataArray.empty()));
+        }
+
+        DataArray memberList = DataArray.empty().add(member(user(SELF_ID, "ArtBot").put("bot", true)));
+        if ((intents & GatewayIntent.GUILD_MEMBERS.getRawValue()) != 0 && !large){
+            for (int m = 0; m < members; m++){
+                memberList.add(member(user(USER_BASE + (long) g * members + m, name(random, 12))));
+            }
+        }
+
+        DataArray emojiList = DataArray.empty();
+        for (int e = 0; e < emojis; e++){
+            emojiList.add(DataObject.empty()
+                    .put("id", Long.toString(EMOJI_BASE + (long) g * emojis + e))
+                    .put("name", name(random, 10))
+                    .put("roles", DataArray.empty())
+                    .put("require_colons", true)
+                    .put("managed", false)
+                    .put("animated", false)
+                    .put("available", true));
+        }
+
+        return DataObject.empty()
+                .put("id", Long.toString(guildId))
+                .put("name", name(random, 20))
+                .put("icon", null)
+                .put("splash", null)
+                .put("discovery_splash", null)
+                .put("banner", null)
+                .put("description", null)
+                .put("owner_id", Long.toString(USER_BASE + (long) g * members))
+                .put("afk_channel_id", null)
+                .put("afk_timeout", 300)
+                .put("verification_level", 0)
+                .put("default_message_notifications", 0)
+                .put("explicit_content_filter", 0)
+                .put("mfa_level", 0)
+                .put("nsfw_level", 0)
+                .put("premium_tier", 0)
+                .put("premium_subscription_count", 0)
+                .put("system_channel_id", null)
+                .put("rules_channel_id", null)
+                .put("public_updates_channel_id", null)
+                .put("vanity_url_code", null)
+                .put("preferred_locale", "en-US")
+                .put("features", DataArray.empty())
+                .put("max_members", 250000)
+                .put("max_presences", null)
+                .put("member_count", members + 1)
+                .put("large", large)
+                .put("unavailable", false)
+                .put("joined_at", JOINED_AT)
+                .put("roles", roleList)
+                .put("channels", channelList)
+                .put("threads", DataArray.empty())
+                .put("members", memberList)
+                .put("presences", DataArray.empty())
+                .put("voice_states", DataArray.empty())
+                .put("emojis", emojiList)
+                .put("stickers", DataArray.empty())
+                .put("stage_instances", DataArray.empty())
+                .put("guild_scheduled_events", DataArray.empty());
+    }
+
+    private static String name(Random random, int length){
+        char[] name = new char[length];
+        for (int i = 0; i < length; i++){
+            name[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(name);
+    }
+
+    private static DataObject role(long id, String name, int position){
+        return DataObject.empty()
+                .put("id", Long.toString(id))
+                .put("name", name)
+                .put("color", 0)
+                .put("hoist", false)
+                .put("position", position)
+                .put("permissions", "104324673")
+                .put("managed", false)
+                .put("mentionable", false);
+    }
+
+    private static DataObject member(DataObject user){
+        return DataObject.empty()
+                .put("user", user)
+                .put("nick", null)
+                .put("roles", DataArray.empty())
+                .put("joined_at", JOINED_AT)
+                .put("premium_since", null)
+                .put("deaf", false)
+                .put("mute", false)
+                .put("pending", false);
+    }
+}
@@ -0,0 +1,75 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.CollectionStore;
+import lolcatloyal.ArtBot.Metrics;
+import lolcatloyal.ArtBot.MultiValueMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionStoreTest {
+    private Metrics metrics;
+    private CollectionStore store;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+        store = new CollectionStore(id -> new MultiValueMap<String, String>(), 30, TimeUnit.MINUTES, 0, metrics);
+    }
+
+    @Test
+    void partitionsSeparate() throws Exception {
+        CollectionStore.Partition a = store.acquire(1L);
+        CollectionStore.Partition b = store.acquire(2L);
+
+        a.getCollection().addValue("https://twitter.com/artist", "https://fxtwitter.com/artist/status/1");
+        assertEquals(1L, a.getId());
+        assertEquals(2L, b.getId());
+        assertTrue(b.getCollection().isEmpty());
+
+        //Shared by every user of the id
+        assertSame(a, store.acquire(1L));
+        assertNull(a.getBackfill().get());
+
+        store.release(1L);
+        store.release(1L);
+        store.release(2L);
+    }
+
+    @Test
+    void gauges() throws Exception {
+        CollectionStore.Partition a = store.acquire(1L);
+        CollectionStore.Partition b = store.acquire(2L);
+        a.getCollection().addValue("https://twitter.com/x", "https://fxtwitter.com/x/status/1");
+        a.getCollection().addValue("https://twitter.com/x", "https://fxtwitter.com/x/status/2");
+        b.getCollection().addValue("https://twitter.com/y", "https://fxtwitter.com/y/status/3");
+
+        assertEquals(2L, metrics.getAttribute("artbot_partitions"));
+        assertEquals(2L, metrics.getAttribute("artbot_artists"));
+        assertEquals(3L, metrics.getAttribute("artbot_art"));
+
+        store.release(1L);
+        store.release(2L);
+        assertEquals(0, store.closeAll());
+        assertEquals(0L, metrics.getAttribute("artbot_partitions"));
+    }
+
+    @Test
+    void changeListeners() throws Exception {
+        LinkedBlockingQueue<Long> first = new LinkedBlockingQueue<Long>();
+        LinkedBlockingQueue<Long> second = new LinkedBlockingQueue<Long>();
+        store.addChangeListener(p -> first.add(p.getId()));
+        store.addChangeListener(p -> second.add(p.getId()));
+
+        CollectionStore.Partition p = store.acquire(7L);
+        p.changed();
+
+        assertEquals(7L, first.poll(5, TimeUnit.SECONDS));
+        assertEquals(7L, second.poll(5, TimeUnit.SECONDS));
+        store.release(7L);
+    }
+}
@@ -0,0 +1,91 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.CommandDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandDispatcherTest {
+    private List<String> calls; //"context:command:argument" for each handled command
+    private CommandDispatcher<String> d;
+
+    @BeforeEach
+    void setUp() {
+        calls = new ArrayList<String>();
+        d = new CommandDispatcher<String>("-");
+        d.registerWithArgument("add", (c, a) -> calls.add(c + ":add:" + a))
+                .registerWithArgument("find", (c, a) -> calls.add(c + ":find:" + a))
+                .register("show", (c, a) -> calls.add(c + ":show:" + a))
+                .register("help", (c, a) -> calls.add(c + ":help:" + a));
+    }
+
+    @Test
+    void commandsWithoutArgument() {
+        assertTrue(d.dispatch("-show", "x"));
+        assertTrue(d.dispatch("-help", "y"));
+        assertEquals(2, calls.size());
+        assertEquals("x:show:", calls.get(0));
+        assertEquals("y:help:", calls.get(1));
+
+        //Must be the whole message
+        assertFalse(d.dispatch("-show me", "x"));
+        assertFalse(d.dispatch("-shows", "x"));
+        assertFalse(d.dispatch("-sho", "x"));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void commandsWithArgument() {
+        assertTrue(d.dispatch("-add https://twitter.com/a/status/1", "x"));
+        assertTrue(d.dispatch("-find    @ali ce", "x"));
+        assertEquals("x:add:https://twitter.com/a/status/1", calls.get(0));
+        assertEquals("x:find:@ali ce", calls.get(1));
+
+        //Any whitespace can follow the name, and is trimmed from the argument
+        assertTrue(d.dispatch("-add\nhttps://twitter.com/a/status/2", "x"));
+        assertTrue(d.dispatch("-add\t https://twitter.com/a/status/3 \n", "x"));
+        assertEquals("x:add:https://twitter.com/a/status/2", calls.get(2));
+        assertEquals("x:add:https://twitter.com/a/status/3", calls.get(3));
+
+        //Argument must follow whitespace
+        assertFalse(d.dispatch("-add", "x"));
+        assertFalse(d.dispatch("-add ", "x"));
+        assertFalse(d.dispatch("-add  \n  ", "x"));
+        assertFalse(d.dispatch("-addhttps://twitter.com/a/status/1", "x"));
+        assertEquals(4, calls.size());
+    }
+
+    @Test
+    void nonCommands() {
+        assertFalse(d.dispatch("", "x"));
+        assertFalse(d.dispatch("-", "x"));
+        assertFalse(d.dispatch("--", "x"));
+        assertFalse(d.dispatch("hello -show", "x"));
+        assertFalse(d.dispatch("show", "x"));
+        assertFalse(d.dispatch("-SHOW", "x"));
+        assertFalse(d.dispatch("-quit", "x"));
+        assertFalse(d.dispatch("-\u00e9t\u00e9", "x"));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void register() {
+        //Duplicate and invalid names
+        assertThrows(IllegalArgumentException.class, () -> d.register("show", (c, a) -> {}));
+        assertThrows(IllegalArgumentException.class, () -> d.registerWithArgument("add", (c, a) -> {}));
+        assertThrows(IllegalArgumentException.class, () -> d.register("", (c, a) -> {}));
+        assertThrows(IllegalArgumentException.class, () -> d.register("two words", (c, a) -> {}));
+        assertThrows(IllegalArgumentException.class, () -> d.register("\u00e9t\u00e9", (c, a) -> {}));
+
+        //Names sharing a first character
+        d.register("sh", (c, a) -> calls.add(c + ":sh:" + a));
+        assertTrue(d.dispatch("-sh", "x"));
+        assertTrue(d.dispatch("-show", "x"));
+        assertEquals("x:sh:", calls.get(0));
+        assertEquals("x:show:", calls.get(1));
+    }
+}
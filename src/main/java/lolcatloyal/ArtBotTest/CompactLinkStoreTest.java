@@ -0,0 +1,250 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.CompactLinkStore;
+import lolcatloyal.ArtBot.LongIntHashMap;
+import lolcatloyal.ArtBot.MultiMapSnapshot;
+import lolcatloyal.ArtBot.SortedMultiMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CompactLinkStore's and LongIntHashMap's methods.
+ */
+@SuppressWarnings("Convert2Diamond")
+class CompactLinkStoreTest {
+    private CompactLinkStore m;
+    private final String artist1 = "https://twitter.com/alice";
+    private final String artist2 = "https://twitter.com/bob";
+    private final String[] art1 = {
+            "https://fxtwitter.com/alice/status/3",
+            "https://fxtwitter.com/alice/status/2",
+            "https://fxtwitter.com/alice/status/1"};
+    private final String art2 = "https://fxtwitter.com/bob/status/1500000000000000000";
+
+    @BeforeEach
+    void setUp() {
+        m = new CompactLinkStore();
+    }
+
+    @Test
+    void addValue() {
+        //Add oldest first --> read back in LIFO order
+        for (int i = art1.length - 1; i > -1; i--){
+            assertTrue(m.addValue(artist1, art1[i]));
+        }
+        assertArrayEquals(art1, m.getValuesForKey(artist1).toArray(new String[0]));
+
+        //Duplicate
+        assertFalse(m.addValue(artist1, art1[0]));
+
+        //Keys rebuilt in alphabetical order
+        assertTrue(m.addValue(artist2, art2));
+        assertArrayEquals(new String[]{artist1, artist2}, m.getKeys().toArray(new String[0]));
+        assertTrue(m.getKeys().contains(artist2));
+        assertEquals(art1.length + 1, m.valueCount());
+    }
+
+    @Test
+    void addInvalid() {
+        //Not a profile link
+        assertThrows(IllegalArgumentException.class, () -> m.addValue("alice", art1[0]));
+        //Post by a different artist
+        assertThrows(IllegalArgumentException.class, () -> m.addValue(artist2, art1[0]));
+        //Not the FXTwitter form
+        assertThrows(IllegalArgumentException.class,
+                () -> m.addValue(artist1, "https://twitter.com/alice/status/1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> m.addValue(artist1, "https://fxtwitter.com/alice/status/1?s=20"));
+        assertThrows(IllegalArgumentException.class,
+                () -> m.addValue(artist1, "https://fxtwitter.com/alice/status/01"));
+        assertTrue(m.isEmpty());
+    }
+
+    @Test
+    void removeValue() {
+        for (String link : art1){
+            m.addValue(artist1, link);
+        }
+
+        assertFalse(m.removeValue(artist2, art2));
+        assertFalse(m.removeValue(artist1, "https://fxtwitter.com/alice/status/4"));
+        assertTrue(m.removeValue(artist1, art1[1]));
+        assertArrayEquals(new String[]{art1[2], art1[0]}, m.getValuesForKey(artist1).toArray(new String[0]));
+
+        //Last value --> artist removed; removed post can be re-added
+        assertTrue(m.removeValue(artist1, art1[0]));
+        assertTrue(m.removeValue(artist1, art1[2]));
+        assertNull(m.getValuesForKey(artist1));
+        assertTrue(m.isEmpty());
+        assertTrue(m.addValue(artist1, art1[0]));
+    }
+
+    @Test
+    void removeKeyAndClear() {
+        for (String link : art1){
+            m.addValue(artist1, link);
+        }
+        m.addValue(artist2, art2);
+
+        assertTrue(m.removeKey(artist1));
+        assertFalse(m.removeKey(artist1));
+        assertEquals(1, m.valueCount());
+        assertTrue(m.addValue(artist1, art1[0])); //posts freed
+
+        m.clear();
+        assertTrue(m.isEmpty());
+        assertEquals(0, m.valueCount());
+    }
+
+    @Test
+    void snapshot() {
+        m.addValue(artist1, art1[0]);
+        assertSame(m.snapshot(), m.snapshot()); //unchanged --> cached
+
+        m.addValue(artist2, art2);
+        assertArrayEquals(new String[]{artist1, artist2}, m.snapshot().getKeys().toArray(new String[0]));
+    }
+
+    @Test
+    void snapshotFollowsChanges() {
+        Random random = new Random(11);
+        MultiMapSnapshot<String, String> previous = m.snapshot();
+        List<List<String>> previousContents = contentsOf(previous);
+
+        //Small rounds are applied change by change, large ones in bulk or by a rebuild
+        for (int round = 0; round < 40; round++){
+            int changes = (round % 4 == 3) ? 1500 : 1 + random.nextInt(50);
+            for (int i = 0; i < changes; i++){
+                String handle = "artist" + random.nextInt(20);
+                String key = "https://twitter.com/" + handle;
+                String value = "https://fxtwitter.com/" + handle + "/status/" + (1 + random.nextInt(3000));
+                int op = random.nextInt(20);
+                if (op < 12){
+                    m.addValue(key, value);
+                }
+                else if (op < 18){
+                    List<String> values = m.getValuesForKey(key);
+                    m.removeValue(key, (values == null || op % 2 == 0) ? value : values.get(random.nextInt(values.size())));
+                }
+                else if (op < 19 || round % 10 != 9){
+                    m.removeKey(key);
+                }
+                else {
+                    m.clear();
+                }
+            }
+
+            MultiMapSnapshot<String, String> snapshot = m.snapshot();
+            assertEquals(contentsOf(m), contentsOf(snapshot), "round " + round);
+            assertEquals(previousContents, contentsOf(previous), "round " + round); //old snapshot unchanged
+            previous = snapshot;
+            previousContents = contentsOf(snapshot);
+        }
+    }
+
+    /**
+     * Lists a store's Keys, each followed by its Values in order.
+     */
+    static List<List<String>> contentsOf(SortedMultiMap<String, String> map){
+        List<List<String>> contents = new ArrayList<List<String>>();
+        for (String key : map.getKeys()){
+            List<String> entry = new ArrayList<String>();
+            entry.add(key);
+            entry.addAll(map.getValuesForKey(key));
+            contents.add(entry);
+        }
+        return contents;
+    }
+
+    /**
+     * Lists a snapshot's Keys, each followed by its Values in order.
+     */
+    static List<List<String>> contentsOf(MultiMapSnapshot<String, String> snapshot){
+        List<List<String>> contents = new ArrayList<List<String>>();
+        for (String key : snapshot.getKeys()){
+            List<String> entry = new ArrayList<String>();
+            entry.add(key);
+            entry.addAll(snapshot.getValuesForKey(key));
+            contents.add(entry);
+        }
+        return contents;
+    }
+
+    @Test
+    void longIntHashMap() {
+        Random random = new Random(7);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+
+        //Small key range forces collisions and backward shifts
+        for (int i = 0; i < 20000; i++){
+            long key = 1 + random.nextInt(500);
+            if (random.nextInt(3) == 0){
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+            else {
+                assertEquals(!expected.containsKey(key), map.putIfAbsent(key, i));
+                expected.putIfAbsent(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 500; key++){
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1));
+        }
+        assertThrows(IllegalArgumentException.class, () -> map.putIfAbsent(0, 1));
+    }
+
+    @Test
+    void longIntHashMapAddTo() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertEquals(1, map.addTo(5, 1));
+        assertEquals(3, map.addTo(5, 2));
+        assertEquals(2, map.addTo(5, -1));
+        assertEquals(0, map.addTo(5, -2)); //dropped to 0 --> removed
+        assertFalse(map.containsKey(5));
+        assertEquals(-1, map.addTo(6, -1)); //missing, not added
+        assertEquals(0, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.addTo(0, 1));
+    }
+
+    @Test
+    void getKeysForValue() {
+        assertFalse(m.containsValue(art2));
+        m.addValue(artist1, art1[0]);
+        m.addValue(artist2, art2);
+
+        assertTrue(m.containsValue(art1[0]));
+        assertArrayEquals(new String[]{artist2}, m.getKeysForValue(art2).toArray(new String[0]));
+
+        //Same status id by another artist, or not a post link
+        assertFalse(m.containsValue("https://fxtwitter.com/bob/status/3"));
+        assertFalse(m.containsValue(artist1));
+
+        m.removeValue(artist1, art1[0]);
+        assertTrue(m.getKeysForValue(art1[0]).isEmpty());
+    }
+
+    @Test
+    void addAll() {
+        Map<String, List<String>> values = new TreeMap<String, List<String>>();
+        values.put(artist1, Arrays.asList(art1[2], art1[1], art1[2], art1[0]));
+        values.put(artist2, Collections.singletonList(art2));
+
+        assertEquals(4, m.addAll(values));
+        assertArrayEquals(art1, m.getValuesForKey(artist1).toArray(new String[0]));
+        assertArrayEquals(new String[]{art2}, m.getValuesForKey(artist2).toArray(new String[0]));
+
+        //Invalid link --> earlier links stay added
+        values.clear();
+        values.put(artist1, Arrays.asList("https://fxtwitter.com/alice/status/4", art2));
+        assertThrows(IllegalArgumentException.class, () -> m.addAll(values));
+        assertEquals(5, m.valueCount());
+        assertEquals("https://fxtwitter.com/alice/status/4", m.snapshot().getValuesForKey(artist1).get(0));
+    }
+}
@@ -0,0 +1,235 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.ConcurrentMultiValueMap;
+import lolcatloyal.ArtBot.MultiMapSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ConcurrentMultiValueMap's methods.
+ */
+@SuppressWarnings("Convert2Diamond")
+class ConcurrentMultiValueMapTest {
+    private ConcurrentMultiValueMap<String, String> m;
+    private final String key1 = "Fruit";
+    private final String key2 = "Stores";
+    private final String[] values1 = {"Apples", "Oranges", "Bananas"};
+    private final String[] keys = {key1, key2};
+
+    @BeforeEach
+    void setUp() {
+        m = new ConcurrentMultiValueMap<String, String>();
+    }
+
+    @Test
+    void getKeys() {
+        assertArrayEquals(new String[]{}, m.getKeys().toArray(new String[0]));
+
+        //Add out of order --> keys sorted
+        m.addValue(key2, values1[0]);
+        m.addValue(key1, values1[0]);
+        assertArrayEquals(keys, m.getKeys().toArray(new String[0]));
+    }
+
+    @Test
+    void getValuesForKey() {
+        assertNull(m.getValuesForKey(key1));
+
+        for (int i = values1.length - 1; i > -1; i--){
+            m.addValue(key1, values1[i]);
+        }
+        List<String> values = m.getValuesForKey(key1);
+        assertArrayEquals(values1, values.toArray(new String[0]));
+
+        //Returned list is a copy
+        m.addValue(key1, "Kiwis");
+        assertEquals(values1.length, values.size());
+        assertThrows(UnsupportedOperationException.class, () -> values.remove(0));
+    }
+
+    @Test
+    void addValue() {
+        assertTrue(m.addValue(key1, values1[0]));
+        assertFalse(m.addValue(key1, values1[0]));
+        assertTrue(m.addValue(key2, values1[0]));
+        assertEquals(2, m.getKeys().size());
+    }
+
+    @Test
+    void removeValue() {
+        assertFalse(m.removeValue(key1, values1[0]));
+
+        m.addValue(key1, values1[0]);
+        assertFalse(m.removeValue(key1, values1[1]));
+        assertFalse(m.removeValue(key2, values1[0]));
+
+        //last value for key --> remove key
+        assertTrue(m.removeValue(key1, values1[0]));
+        assertTrue(m.isEmpty());
+        assertNull(m.getValuesForKey(key1));
+
+        //Key can be re-added
+        assertTrue(m.addValue(key1, values1[0]));
+    }
+
+    @Test
+    void removeKey() {
+        assertFalse(m.removeKey(key1));
+
+        m.addValue(key1, values1[0]);
+        assertFalse(m.removeKey(key2));
+        assertTrue(m.removeKey(key1));
+        assertFalse(m.removeKey(key1));
+        assertNull(m.getValuesForKey(key1));
+    }
+
+    @Test
+    void valueCount() {
+        assertEquals(0, m.valueCount());
+
+        for (String value : values1){
+            m.addValue(key1, value);
+            m.addValue(key2, value);
+        }
+        m.addValue(key1, values1[0]); //duplicate
+        assertEquals(6, m.valueCount());
+
+        m.removeValue(key1, values1[1]);
+        assertEquals(5, m.valueCount());
+        m.removeKey(key2);
+        assertEquals(2, m.valueCount());
+        m.clear();
+        assertEquals(0, m.valueCount());
+    }
+
+    @Test
+    void clear() {
+        m.addValue(key1, values1[0]);
+        m.addValue(key2, values1[1]);
+
+        m.clear();
+        assertTrue(m.isEmpty());
+        assertNull(m.getValuesForKey(key1));
+    }
+
+    @Test
+    void concurrentAddAndRemove() throws Exception {
+        final int threads = 8;
+        final int valuesPerThread = 2000;
+        final AtomicInteger added = new AtomicInteger();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        //Every thread adds the same values to the same keys, then removes its share of the odd values
+        for (int t = 0; t < threads; t++){
+            final int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < valuesPerThread; i++){
+                    if (m.addValue(keys[i % 2], "v" + i)){
+                        added.incrementAndGet();
+                    }
+                }
+                barrier.await();
+                for (int i = 1; i < valuesPerThread; i += 2){
+                    if (i % threads == thread){
+                        assertTrue(m.removeValue(keys[i % 2], "v" + i));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures){
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        //Each value added exactly once; all odd values (key2) removed
+        assertEquals(valuesPerThread, added.get());
+        assertEquals(valuesPerThread / 2, m.getValuesForKey(key1).size());
+        assertNull(m.getValuesForKey(key2));
+        assertArrayEquals(new String[]{key1}, m.getKeys().toArray(new String[0]));
+
+        //Snapshot saw every change
+        MultiMapSnapshot<String, String> snapshot = m.snapshot();
+        assertArrayEquals(m.getValuesForKey(key1).toArray(new String[0]),
+                snapshot.getValuesForKey(key1).toArray(new String[0]));
+        assertNull(snapshot.getValuesForKey(key2));
+    }
+
+    @Test
+    void snapshotAfterManyWrites() {
+        MultiMapSnapshot<String, String> s0 = m.snapshot();
+
+        //Enough writes that the snapshot is rebuilt rather than updated
+        for (int i = 0; i < 5000; i++){
+            m.addValue("key" + (i % 10), "value" + i);
+            if (i % 3 == 0){
+                m.removeValue("key" + (i % 10), "value" + (i / 2));
+            }
+        }
+        m.removeKey("key4");
+        MultiMapSnapshot<String, String> s1 = m.snapshot();
+
+        assertArrayEquals(m.getKeys().toArray(new String[0]), s1.getKeys().toArray(new String[0]));
+        for (String key : m.getKeys()){
+            assertArrayEquals(m.getValuesForKey(key).toArray(new String[0]),
+                    s1.getValuesForKey(key).toArray(new String[0]));
+        }
+        assertTrue(s0.isEmpty());
+
+        //Small updates after a rebuild
+        m.addValue("key0", "value5000");
+        assertEquals("value5000", m.snapshot().getValuesForKey("key0").get(0));
+        assertFalse(s1.getValuesForKey("key0").contains("value5000"));
+    }
+
+    @Test
+    void getKeysForValue() {
+        //Empty Map
+        assertFalse(m.containsValue(values1[0]));
+        assertTrue(m.getKeysForValue(values1[0]).isEmpty());
+
+        m.addValue(key1, values1[0]);
+        m.addValue(key1, values1[1]);
+        assertTrue(m.containsValue(values1[0]));
+        assertArrayEquals(new String[]{key1}, m.getKeysForValue(values1[0]).toArray(new String[0]));
+
+        //Value shared between Keys
+        m.addValue(key2, values1[0]);
+        assertArrayEquals(keys, m.getKeysForValue(values1[0]).toArray(new String[0]));
+        m.removeValue(key1, values1[0]);
+        assertArrayEquals(new String[]{key2}, m.getKeysForValue(values1[0]).toArray(new String[0]));
+
+        //Index follows removeKey and clear
+        m.removeKey(key2);
+        assertFalse(m.containsValue(values1[0]));
+        assertTrue(m.containsValue(values1[1]));
+        m.clear();
+        assertFalse(m.containsValue(values1[1]));
+    }
+
+    @Test
+    void addAll() {
+        Map<String, List<String>> values = new TreeMap<String, List<String>>();
+        values.put(key1, Arrays.asList(values1[0], values1[1], values1[0]));
+        values.put(key2, Collections.<String>emptyList());
+
+        //Same order as addValue, duplicates skipped, empty Keys not added
+        assertEquals(2, m.addAll(values));
+        assertArrayEquals(new String[]{key1}, m.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{values1[1], values1[0]}, m.getValuesForKey(key1).toArray(new String[0]));
+        assertTrue(m.containsValue(values1[1]));
+
+        values.put(key1, Arrays.asList(values1[1], values1[2]));
+        assertEquals(1, m.addAll(values));
+        assertArrayEquals(new String[]{values1[2], values1[1], values1[0]},
+                m.snapshot().getValuesForKey(key1).toArray(new String[0]));
+    }
+}
@@ -1,31 +1,34 @@
 package lolcatloyal.ArtBotTest;
 
-import lolcatloyal.ArtBot.ArrayIterator;
+import lolcatloyal.ArtBot.Cursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.*;
 
-class ArrayIteratorTest {
+class CursorTest {
     private Integer[] a1;
     private Integer[] a2;
     private String[] b;
-    private ArrayIterator<Integer> iA;
-    private ArrayIterator<String> iB;
+    private Cursor<Integer> iA;
+    private Cursor<String> iB;
 
     @BeforeEach
     void setUp() {
         a1 = new Integer[]{1, 2, 3, 4};
         a2 = new Integer[]{5, 6, 7, 8, 9, 10, 0, -1, 5, 3};
         b = new String[]{"a", "b", "c", "d"};
-        iA = new ArrayIterator<Integer>(a1);
-        iB = new ArrayIterator<String>(b);
+        iA = new Cursor<Integer>(Arrays.asList(a1));
+        iB = new Cursor<String>(Arrays.asList(b));
     }
 
     @Test
-    void setArray() {
-        //Call set Array for a2
-        iA.setArray(a2);
+    void setList() {
+        //Call setList for a2
+        iA.setList(Arrays.asList(a2));
 
         //Cycle back one space, then forward one space
         assertEquals(iA.prev(), a2[a2.length - 2]);
@@ -61,4 +64,24 @@ class ArrayIteratorTest {
 
         assertEquals(iB.prev(), b[b.length - 1]); //Cycle back to last element
     }
-}
\ No newline at end of file
+
+    @Test
+    void emptyList() {
+        Cursor<String> empty = new Cursor<String>();
+        assertNull(empty.next());
+        assertNull(empty.prev());
+
+        empty.setList(Collections.<String>emptyList());
+        assertNull(empty.next());
+    }
+
+    @Test
+    void moveTo() {
+        iB.moveTo(1);
+        assertEquals(1, iB.getPosition());
+        assertEquals(b[2], iB.next());
+        assertEquals(b[1], iB.prev());
+        assertEquals(b[0], iB.prev());
+        assertEquals(0, iB.getPosition());
+    }
+}
@@ -0,0 +1,70 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.Debouncer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebouncerTest {
+    private ScheduledExecutorService scheduler;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        runs = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void mergesRequests() throws InterruptedException {
+        Debouncer d = new Debouncer(runs::incrementAndGet, 200, TimeUnit.MILLISECONDS, scheduler);
+
+        //First request runs right away
+        d.request();
+        awaitRuns(1);
+
+        //Requests within the interval are merged into one later run
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++){
+            d.request();
+        }
+        awaitRuns(2);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+
+        Thread.sleep(300);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void requestDuringRun() throws InterruptedException {
+        Debouncer[] d = new Debouncer[1];
+        d[0] = new Debouncer(() -> {
+            if (runs.incrementAndGet() == 1){
+                d[0].request(); //made while running --> runs again
+            }
+        }, 10, TimeUnit.MILLISECONDS, scheduler);
+
+        d[0].request();
+        awaitRuns(2);
+    }
+
+    private void awaitRuns(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (runs.get() < expected && System.currentTimeMillis() < deadline){
+            Thread.sleep(5);
+        }
+        assertEquals(expected, runs.get());
+    }
+}
@@ -0,0 +1,167 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.CompactLinkStore;
+import lolcatloyal.ArtBot.DurableMultiMap;
+import lolcatloyal.ArtBot.MultiValueMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DurableMultiMap and its CollectionLog.
+ */
+@SuppressWarnings("Convert2Diamond")
+class DurableMultiMapTest {
+    private final String key1 = "https://twitter.com/alice";
+    private final String key2 = "https://twitter.com/bob";
+    private final String[] values1 = {
+            "https://fxtwitter.com/alice/status/1",
+            "https://fxtwitter.com/alice/status/2",
+            "https://fxtwitter.com/alice/status/3"};
+    private final String value2 = "https://fxtwitter.com/bob/status/4";
+
+    @TempDir
+    Path dir;
+
+    private DurableMultiMap open(long compactThreshold) throws IOException {
+        return DurableMultiMap.open(dir, new MultiValueMap<String, String>(), compactThreshold);
+    }
+
+    @Test
+    void reopen() throws Exception {
+        DurableMultiMap m = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        for (String value : values1){
+            m.addValue(key1, value);
+        }
+        m.addValue(key2, value2);
+        m.removeValue(key1, values1[1]);
+        m.sync().get(10, TimeUnit.SECONDS);
+        m.close();
+
+        //Replayed in the same order
+        DurableMultiMap reopened = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        assertArrayEquals(new String[]{key1, key2}, reopened.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{values1[2], values1[0]},
+                reopened.getValuesForKey(key1).toArray(new String[0]));
+
+        //Changes after replay are appended
+        reopened.removeKey(key2);
+        reopened.close();
+        DurableMultiMap third = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        assertArrayEquals(new String[]{key1}, third.getKeys().toArray(new String[0]));
+        third.clear();
+        third.close();
+        assertTrue(open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD).isEmpty());
+    }
+
+    @Test
+    void addAll() throws Exception {
+        DurableMultiMap m = DurableMultiMap.open(dir, new CompactLinkStore(), DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        m.addValue(key1, values1[0]);
+
+        //Already stored and repeated posts aren't added or logged
+        Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        values.put(key1, Arrays.asList(values1[0], values1[1], values1[2], values1[1]));
+        values.put(key2, Arrays.asList(value2, "https://fxtwitter.com/bob/status/1"));
+        assertEquals(3, m.addAll(values));
+        m.close();
+
+        DurableMultiMap reopened = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        assertArrayEquals(new String[]{values1[2], values1[1], values1[0]},
+                reopened.getValuesForKey(key1).toArray(new String[0]));
+        assertArrayEquals(new String[]{value2}, reopened.getValuesForKey(key2).toArray(new String[0]));
+        reopened.close();
+    }
+
+    @Test
+    void tornWrite() throws Exception {
+        DurableMultiMap m = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        m.addValue(key1, values1[0]);
+        m.addValue(key2, value2);
+        m.close();
+
+        //Chop the last record in half
+        Path log = dir.resolve("log-0");
+        long size = Files.size(log);
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(log, StandardOpenOption.WRITE)){
+            channel.truncate(size - 10);
+        }
+
+        DurableMultiMap reopened = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        assertArrayEquals(new String[]{key1}, reopened.getKeys().toArray(new String[0]));
+
+        //Torn record is dropped from the file, so new records replay
+        reopened.addValue(key2, value2);
+        reopened.close();
+        assertArrayEquals(new String[]{key1, key2},
+                open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD).getKeys().toArray(new String[0]));
+    }
+
+    @Test
+    void compaction() throws Exception {
+        DurableMultiMap m = open(2);
+        for (String value : values1){
+            m.addValue(key1, value);
+        }
+        m.addValue(key2, value2);
+        m.removeValue(key2, value2);
+        m.close();
+
+        //Two compactions --> generation 2 is all that's left
+        assertTrue(Files.exists(dir.resolve("snapshot-2")));
+        assertFalse(Files.exists(dir.resolve("log-0")));
+        assertFalse(Files.exists(dir.resolve("snapshot-1")));
+
+        DurableMultiMap reopened = open(2);
+        assertArrayEquals(new String[]{key1}, reopened.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{values1[2], values1[1], values1[0]},
+                reopened.getValuesForKey(key1).toArray(new String[0]));
+        reopened.close();
+    }
+
+    @Test
+    void staleTemporarySnapshot() throws Exception {
+        Files.write(dir.resolve("snapshot-1.tmp"), new byte[]{1, 2, 3}); //compaction cut short
+
+        DurableMultiMap m = open(DurableMultiMap.DEFAULT_COMPACT_THRESHOLD);
+        assertFalse(Files.exists(dir.resolve("snapshot-1.tmp")));
+        assertTrue(m.isEmpty());
+        m.close();
+    }
+
+    @Test
+    void writeFailure() throws Exception {
+        DurableMultiMap m = open(2);
+        Files.createDirectory(dir.resolve("snapshot-1.tmp")); //compaction can't write its snapshot
+        m.addValue(key1, values1[0]);
+        m.addValue(key1, values1[1]);
+        m.addValue(key1, values1[2]);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> m.sync().get(10, TimeUnit.SECONDS));
+
+        //Later changes fail at once, and aren't written
+        m.addValue(key2, value2);
+        ExecutionException later = assertThrows(ExecutionException.class, () -> m.sync().get(10, TimeUnit.SECONDS));
+        assertSame(failure.getCause(), later.getCause());
+        assertEquals(0, Files.size(dir.resolve("log-1")));
+        assertThrows(IOException.class, m::close);
+
+        //Reopened --> changes logged before the failure are back
+        Files.delete(dir.resolve("snapshot-1.tmp"));
+        DurableMultiMap reopened = open(2);
+        assertArrayEquals(new String[]{key1}, reopened.getKeys().toArray(new String[0]));
+        assertEquals(2, reopened.valueCount());
+        reopened.close();
+    }
+}
@@ -0,0 +1,63 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.HandleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HandleIndex.
+ */
+@SuppressWarnings("Convert2Diamond")
+class HandleIndexTest {
+    private HandleIndex index;
+    private final String alice = "https://twitter.com/alice";
+    private final String aliceUpper = "https://twitter.com/Alice";
+    private final String alicia = "https://twitter.com/alicia_art";
+    private final String bob = "https://twitter.com/bob";
+
+    @BeforeEach
+    void setUp() {
+        index = new HandleIndex();
+        index.add(bob);
+        index.add(alicia);
+        index.add(alice);
+    }
+
+    @Test
+    void search() {
+        assertEquals(Arrays.asList(alice, alicia), index.search("ali", 10));
+        assertEquals(Arrays.asList(alice, alicia), index.search("ALI", 10)); //ignores case
+        assertEquals(Collections.singletonList(alicia), index.search("alici", 10));
+        assertEquals(Collections.singletonList(alice), index.search("a", 1)); //limit
+        assertTrue(index.search("carol", 10).isEmpty());
+        assertEquals(3, index.search("", 10).size());
+    }
+
+    @Test
+    void addAndRemove() {
+        //Handles differing in case share an entry
+        index.add(aliceUpper);
+        index.add(alice); //already indexed
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(aliceUpper, alice), index.search("alice", 10));
+
+        index.remove(alice);
+        assertEquals(Collections.singletonList(aliceUpper), index.search("alice", 10));
+        index.remove(aliceUpper);
+        index.remove(bob);
+        assertEquals(Collections.singletonList(alicia), index.search("", 10));
+
+        //Not profile links
+        index.add("https://fxtwitter.com/carol/status/1");
+        index.remove("https://twitter.com/");
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertTrue(index.search("", 10).isEmpty());
+    }
+}
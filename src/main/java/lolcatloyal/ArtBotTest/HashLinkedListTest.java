@@ -0,0 +1,99 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.HashLinkedList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.ListIterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HashLinkedList's methods.
+ */
+@SuppressWarnings("Convert2Diamond")
+class HashLinkedListTest {
+    private HashLinkedList<String> l;
+    private final String[] values = {"a", "b", "c", "d", "e"};
+
+    @BeforeEach
+    void setUp() {
+        l = new HashLinkedList<String>();
+    }
+
+    @Test
+    void push() {
+        //Push in order --> stored in reverse order
+        for (String value : values){
+            assertTrue(l.push(value));
+        }
+        assertArrayEquals(new String[]{"e", "d", "c", "b", "a"}, l.toArray(new String[0]));
+
+        //Push duplicate
+        assertFalse(l.push(values[2]));
+        assertEquals(values.length, l.size());
+    }
+
+    @Test
+    void contains() {
+        assertFalse(l.contains(values[0]));
+
+        l.push(values[0]);
+        assertTrue(l.contains(values[0]));
+        assertFalse(l.contains(values[1]));
+    }
+
+    @Test
+    void remove() {
+        //Empty List
+        assertFalse(l.remove(values[0]));
+
+        for (String value : values){
+            l.push(value);
+        }
+
+        //Remove middle, head and tail
+        assertTrue(l.remove("c"));
+        assertTrue(l.remove("e"));
+        assertTrue(l.remove("a"));
+        assertFalse(l.remove("c"));
+        assertArrayEquals(new String[]{"d", "b"}, l.toArray(new String[0]));
+
+        //Removed value can be pushed again
+        assertTrue(l.push("c"));
+        assertArrayEquals(new String[]{"c", "d", "b"}, l.toArray(new String[0]));
+    }
+
+    @Test
+    void listIterator() {
+        for (String value : values){
+            l.push(value);
+        }
+
+        //get() walks from either end
+        for (int i = 0; i < values.length; i++){
+            assertEquals(values[values.length - 1 - i], l.get(i));
+        }
+
+        //Walk backwards from the end
+        ListIterator<String> it = l.listIterator(l.size());
+        for (String value : values){
+            assertEquals(value, it.previous());
+        }
+        assertFalse(it.hasPrevious());
+
+        //Remove through iterator
+        Iterator<String> it2 = l.iterator();
+        while (it2.hasNext()){
+            if (it2.next().equals("b")){
+                it2.remove();
+            }
+        }
+        assertFalse(l.contains("b"));
+        assertArrayEquals(new String[]{"e", "d", "c", "a"}, l.toArray(new String[0]));
+
+        //List interface adds are unsupported
+        assertThrows(UnsupportedOperationException.class, () -> l.add("f"));
+    }
+}
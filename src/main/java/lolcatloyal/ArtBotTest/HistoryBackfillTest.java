@@ -0,0 +1,147 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.HistoryBackfill;
+import lolcatloyal.ArtBot.HistoryBackfill.HistoryMessage;
+import lolcatloyal.ArtBot.MultiValueMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("Convert2Diamond")
+class HistoryBackfillTest {
+    private static final int MESSAGES = 450; //ids 1 to 450 at first, one link in every other message
+
+    @TempDir
+    Path dir;
+
+    private MultiValueMap<String, String> m;
+    private long newestMessage; //messages have ids 1 to newestMessage
+    private List<Long> requestedBefore; //beforeId of each page read back
+    private List<Long> requestedAfter; //afterId of each page read forward
+
+    @BeforeEach
+    void setUp() {
+        m = new MultiValueMap<String, String>();
+        newestMessage = MESSAGES;
+        requestedBefore = new ArrayList<Long>();
+        requestedAfter = new ArrayList<Long>();
+    }
+
+    /**
+     * Pages through the fake history, failing on the page before failBefore.
+     */
+    private HistoryBackfill backfill(long failBefore){
+        return new HistoryBackfill(new HistoryBackfill.HistoryPager() {
+            @Override
+            public List<HistoryMessage> pageBefore(long beforeId, int limit) throws IOException {
+                requestedBefore.add(beforeId);
+                if (beforeId == failBefore){
+                    throw new IOException("page failed");
+                }
+
+                List<HistoryMessage> page = new ArrayList<HistoryMessage>();
+                for (long id = (beforeId == 0) ? newestMessage : beforeId - 1; id > 0 && page.size() < limit; id--){
+                    page.add(message(id));
+                }
+                return page;
+            }
+
+            @Override
+            public List<HistoryMessage> pageAfter(long afterId, int limit){
+                requestedAfter.add(afterId);
+
+                List<HistoryMessage> page = new ArrayList<HistoryMessage>();
+                for (long id = Math.min(afterId + limit, newestMessage); id > afterId; id--){ //newest first, as Discord
+                    page.add(message(id));
+                }
+                return page;
+            }
+        }, m, 2, dir.resolve("checkpoint"), 0);
+    }
+
+    private static HistoryMessage message(long id){
+        String content = (id % 2 == 0)
+                ? "look <https://twitter.com/artist" + (id % 7) + "/status/" + id + "?s=20> nice"
+                : "just chatting";
+        return new HistoryMessage(id, content);
+    }
+
+    @Test
+    void scansWholeHistory() throws Exception {
+        HistoryBackfill b = backfill(-1);
+
+        assertTrue(b.run());
+        assertEquals(MESSAGES, b.getMessagesScanned());
+        assertEquals(MESSAGES / 2, b.getImporter().getAdded());
+        assertEquals(0, b.getImporter().getInvalid());
+        assertEquals(Arrays.asList(0L, 351L, 251L, 151L, 51L, 1L), requestedBefore);
+        assertEquals(Arrays.asList(450L), requestedAfter); //caught up
+        assertTrue(m.getValuesForKey("https://twitter.com/artist2").contains("https://fxtwitter.com/artist2/status/2"));
+
+        //Finished --> only messages posted since are read
+        requestedBefore.clear();
+        requestedAfter.clear();
+        assertTrue(backfill(-1).run());
+        assertTrue(requestedBefore.isEmpty());
+        assertEquals(Arrays.asList(450L), requestedAfter);
+    }
+
+    @Test
+    void scansNewMessages() throws Exception {
+        assertTrue(backfill(-1).run());
+
+        newestMessage = MESSAGES + 150;
+        requestedBefore.clear();
+        requestedAfter.clear();
+        HistoryBackfill b = backfill(-1);
+        assertTrue(b.run());
+        assertTrue(requestedBefore.isEmpty());
+        assertEquals(Arrays.asList(450L, 550L, 600L), requestedAfter);
+        assertEquals(150, b.getMessagesScanned());
+        assertEquals(75, b.getImporter().getAdded());
+        assertEquals(0, b.getImporter().getDuplicates());
+        assertTrue(m.getValuesForKey("https://twitter.com/artist1").contains("https://fxtwitter.com/artist1/status/596"));
+    }
+
+    @Test
+    void resumesFromCheckpoint() throws Exception {
+        assertThrows(IOException.class, () -> backfill(151).run());
+        assertEquals(150, m.getKeys().stream().mapToInt(k -> m.getValuesForKey(k).size()).sum());
+
+        //Resumes after the last page read
+        requestedBefore.clear();
+        HistoryBackfill b = backfill(-1);
+        assertTrue(b.run());
+        assertEquals(Arrays.asList(151L, 51L, 1L), requestedBefore);
+        assertEquals(Arrays.asList(450L), requestedAfter); //newest read before the failure
+        assertEquals(150, b.getMessagesScanned());
+        assertEquals(MESSAGES / 2 - 150, b.getImporter().getAdded());
+        assertEquals(0, b.getImporter().getDuplicates());
+    }
+
+    @Test
+    void stop() throws Exception {
+        HistoryBackfill b = backfill(-1);
+        b.stop();
+
+        assertFalse(b.run());
+        assertTrue(requestedBefore.isEmpty());
+        assertTrue(requestedAfter.isEmpty());
+    }
+
+    @Test
+    void findPostLinks() {
+        assertEquals(Arrays.asList("https://twitter.com/a/status/1", "https://fxtwitter.com/b/status/2"),
+                HistoryBackfill.findPostLinks("https://twitter.com/a/status/1\n<https://fxtwitter.com/b/status/2> " +
+                        "https://twitter.com/a http://twitter.com/a/status/3"));
+        assertTrue(HistoryBackfill.findPostLinks("").isEmpty());
+    }
+}
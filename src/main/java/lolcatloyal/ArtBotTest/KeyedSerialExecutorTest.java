@@ -0,0 +1,141 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.KeyedSerialExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("Convert2Diamond")
+class KeyedSerialExecutorTest {
+    private ExecutorService pool;
+    private KeyedSerialExecutor e;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        e = new KeyedSerialExecutor(pool, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void ordersTasksPerKey() throws InterruptedException {
+        List<List<Integer>> runs = new ArrayList<List<Integer>>();
+        CountDownLatch done = new CountDownLatch(4 * 500);
+
+        for (int key = 0; key < 4; key++){
+            runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < 500; i++){
+            for (int key = 0; key < 4; key++){
+                int task = i;
+                List<Integer> run = runs.get(key);
+                assertTrue(e.submit(key, () -> {
+                    run.add(task);
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> run : runs){
+            for (int i = 0; i < 500; i++){
+                assertEquals(i, run.get(i));
+            }
+        }
+    }
+
+    @Test
+    void runsKeysInParallel() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch otherRan = new CountDownLatch(1);
+
+        //Key 1 is stuck, key 2 still runs
+        e.submit(1, () -> {
+            try {
+                blocked.await();
+            }
+            catch (InterruptedException ignored){
+            }
+        });
+        e.submit(2, otherRan::countDown);
+
+        assertTrue(otherRan.await(10, TimeUnit.SECONDS));
+        blocked.countDown();
+    }
+
+    @Test
+    void backpressure() throws InterruptedException {
+        e = new KeyedSerialExecutor(pool, 3);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+
+        assertTrue(e.submit(1, () -> {
+            try {
+                blocked.await();
+            }
+            catch (InterruptedException ignored){
+            }
+            done.countDown();
+        }));
+        assertTrue(e.submit(1, done::countDown));
+        assertTrue(e.submit(1, done::countDown));
+        assertEquals(3, e.queued(1));
+
+        //Full --> refused, other keys unaffected
+        assertFalse(e.submit(1, done::countDown));
+        assertTrue(e.submit(2, () -> {}));
+
+        blocked.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        //Drained --> accepts again
+        long deadline = System.currentTimeMillis() + 10000;
+        while (e.queued(1) > 0 && System.currentTimeMillis() < deadline){
+            Thread.sleep(5);
+        }
+        assertEquals(0, e.queued(1));
+        assertTrue(e.submit(1, () -> {}));
+    }
+
+    @Test
+    void failingTask() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        e.submit(1, () -> {
+            throw new IllegalStateException("expected by test");
+        });
+        e.submit(1, ran::countDown);
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void taskThrowingError() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        e.submit(1, () -> {
+            throw new AssertionError("expected by test");
+        });
+        e.submit(1, ran::countDown);
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        while (e.queued(1) > 0){ //countDown() ran, the queue empties right after
+            Thread.sleep(10);
+        }
+        assertTrue(e.submit(1, () -> {}));
+    }
+}
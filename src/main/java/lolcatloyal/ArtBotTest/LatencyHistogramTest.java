@@ -0,0 +1,61 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.LatencyHistogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    private LatencyHistogram h;
+
+    @BeforeEach
+    void setUp() {
+        h = new LatencyHistogram();
+    }
+
+    @Test
+    void empty() {
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMeanNanos());
+        assertEquals(0, h.getMaxNanos());
+        assertEquals(0, h.getPercentileNanos(50));
+    }
+
+    @Test
+    void record() {
+        //90 fast, 10 slow
+        for (int i = 0; i < 90; i++){
+            h.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        for (int i = 0; i < 10; i++){
+            h.record(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        assertEquals(100, h.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(3 * 90 + 200 * 10) / 100, h.getMeanNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), h.getMaxNanos());
+
+        //Percentiles are bucket upper bounds: within 2x above the true value
+        long p50 = h.getPercentileNanos(50);
+        assertTrue(p50 >= TimeUnit.MILLISECONDS.toNanos(3) && p50 <= TimeUnit.MILLISECONDS.toNanos(6));
+        long p90 = h.getPercentileNanos(90);
+        assertTrue(p90 >= TimeUnit.MILLISECONDS.toNanos(3) && p90 <= TimeUnit.MILLISECONDS.toNanos(6));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), h.getPercentileNanos(99)); //capped at max
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), h.getPercentileNanos(100));
+    }
+
+    @Test
+    void extremes() {
+        h.record(-5);
+        h.record(0);
+        h.record(TimeUnit.DAYS.toNanos(2));
+
+        assertEquals(3, h.getCount());
+        assertEquals(TimeUnit.DAYS.toNanos(2), h.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1), h.getPercentileNanos(50));
+        assertEquals(TimeUnit.DAYS.toNanos(2), h.getPercentileNanos(100));
+    }
+}
@@ -0,0 +1,147 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.CompactLinkStore;
+import lolcatloyal.ArtBot.LinkImporter;
+import lolcatloyal.ArtBot.MultiValueMap;
+import lolcatloyal.ArtBot.SearchableMultiMap;
+import lolcatloyal.ArtBot.SortedMultiMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkImporterTest {
+    private SortedMultiMap<String, String> m;
+    private LinkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        m = new MultiValueMap<String, String>();
+        importer = new LinkImporter(m, 2);
+    }
+
+    @Test
+    void text() throws IOException {
+        importer.importFrom(new StringReader(
+                "https://twitter.com/alice/status/1\n" +
+                "https://fxtwitter.com/alice/status/2?s=20  https://twitter.com/bob/status/3/photo/1\n" +
+                "\n" +
+                "look at this https://twitter.com/alice/status/1 again\n" +
+                "https://twitter.com/alice https://twitter.com/bob/status/x http://twitter.com/bob/status/4"));
+
+        assertEquals(3, importer.getAdded());
+        assertEquals(1, importer.getDuplicates());
+        assertEquals(3, importer.getInvalid());
+        assertEquals(Arrays.asList("https://fxtwitter.com/alice/status/2", "https://fxtwitter.com/alice/status/1"),
+                m.getValuesForKey("https://twitter.com/alice"));
+        assertEquals(Arrays.asList("https://fxtwitter.com/bob/status/3"),
+                m.getValuesForKey("https://twitter.com/bob"));
+    }
+
+    @Test
+    void longIds() throws IOException {
+        importer.importFrom(new StringReader(
+                "https://twitter.com/alice/status/1712345678901234567?s=20\n" +
+                "https://x.com/Alice/status/1712345678901234567/photo/1\n" +
+                "https://fxtwitter.com/alice/status/1712345678901234568\n" +
+                "https://twitter.com/alice/status/99999999999999999999"));
+
+        assertEquals(2, importer.getAdded());
+        assertEquals(1, importer.getDuplicates());
+        assertEquals(1, importer.getInvalid());
+        assertEquals(Arrays.asList("https://fxtwitter.com/alice/status/1712345678901234568",
+                        "https://fxtwitter.com/alice/status/1712345678901234567"),
+                m.getValuesForKey("https://twitter.com/alice"));
+    }
+
+    @Test
+    void csv() throws IOException {
+        importer.importFrom(new StringReader(
+                "link,artist,note\r\n" +
+                "https://twitter.com/alice/status/1,alice,\"nice, very nice\"\r\n" +
+                "\"https://twitter.com/bob/status/3\",bob,\r\n"));
+
+        assertEquals(2, importer.getAdded());
+        assertEquals(0, importer.getDuplicates());
+        assertEquals(0, importer.getInvalid());
+        assertEquals(2, m.getKeys().size());
+    }
+
+    @Test
+    void json() throws IOException {
+        importer.importFrom(new StringReader(
+                "{\"links\": [\"https:\\/\\/twitter.com\\/alice\\/status\\/1\",\n" +
+                "  {\"url\": \"https://twitter.com/bob/status/3\\nhttps://twitter.com/bob/status/4\"}]}"));
+
+        assertEquals(3, importer.getAdded());
+        assertEquals(0, importer.getInvalid());
+        assertEquals(Arrays.asList("https://fxtwitter.com/bob/status/4", "https://fxtwitter.com/bob/status/3"),
+                m.getValuesForKey("https://twitter.com/bob"));
+    }
+
+    @Test
+    void countsAddUp() throws IOException {
+        importer.importFrom(new StringReader("https://twitter.com/alice/status/1"));
+        importer.importFrom(new StringReader("https://twitter.com/alice/status/1 https://twitter.com/alice/status/2"));
+
+        assertEquals(2, importer.getAdded());
+        assertEquals(1, importer.getDuplicates());
+        assertEquals(2, m.getValuesForKey("https://twitter.com/alice").size());
+    }
+
+    @Test
+    void addLinks() {
+        int found = importer.addLinks("look at these! https://x.com/Alice/status/1?s=20\n" +
+                "<https://vxtwitter.com/bob/status/2> ||https://twitter.com/alice/status/1|| " +
+                "https://twitter.com/alice and (https://fxtwitter.com/bob/status/3)");
+        importer.flush();
+
+        assertEquals(5, found);
+        assertEquals(3, importer.getAdded());
+        assertEquals(1, importer.getDuplicates());
+        assertEquals(1, importer.getInvalid());
+        assertEquals(Arrays.asList("https://fxtwitter.com/alice/status/1"), m.getValuesForKey("https://twitter.com/alice"));
+        assertEquals(0, importer.addLinks("no links here"));
+    }
+
+    @Test
+    void addLinksLongIds() {
+        m = new SearchableMultiMap(new MultiValueMap<String, String>());
+        importer = new LinkImporter(m, 2);
+
+        int found = importer.addLinks("https://x.com/Alice/status/1712345678901234567?s=20 " +
+                "https://fxtwitter.com/alice/status/1712345678901234567/photo/1 " +
+                "https://twitter.com/bob/status/1712345678901234567 https://vxtwitter.com/bob/status/1712345678901234568");
+        importer.flush();
+
+        assertEquals(4, found);
+        assertEquals(2, importer.getAdded());
+        assertEquals(2, importer.getDuplicates());
+        assertEquals(0, importer.getInvalid());
+        assertEquals(Arrays.asList("https://fxtwitter.com/alice/status/1712345678901234567"),
+                m.getValuesForKey("https://twitter.com/alice"));
+        assertEquals(Arrays.asList("https://fxtwitter.com/bob/status/1712345678901234568"),
+                m.getValuesForKey("https://twitter.com/bob"));
+    }
+
+    @Test
+    void manyLinks() throws IOException {
+        m = new CompactLinkStore();
+        importer = new LinkImporter(m, LinkImporter.DEFAULT_BATCH_SIZE);
+
+        StringBuilder file = new StringBuilder();
+        for (int i = 1; i <= 10000; i++){
+            file.append("https://twitter.com/artist").append(i % 37).append("/status/").append(i).append('\n');
+        }
+        importer.importFrom(new StringReader(file.toString()));
+        importer.importFrom(new StringReader(file.toString()));
+
+        assertEquals(10000, importer.getAdded());
+        assertEquals(10000, importer.getDuplicates());
+        assertEquals(37, m.getKeys().size());
+    }
+}
@@ -0,0 +1,113 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.MessageCoalescer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCoalescerTest {
+    private List<String> sent; //"channel:message" for each message sent
+    private ScheduledExecutorService scheduler;
+    private MessageCoalescer<Long> c;
+
+    @BeforeEach
+    void setUp() {
+        sent = Collections.synchronizedList(new ArrayList<String>());
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        c = new MessageCoalescer<Long>(id -> id, (id, message) -> sent.add(id + ":" + message),
+                1, TimeUnit.HOURS, scheduler); //only flush() sends
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void mergesPerChannel() {
+        c.send(1L, "a");
+        c.send(2L, "x");
+        c.send(1L, "b");
+        assertTrue(sent.isEmpty());
+
+        c.flush(1L);
+        assertEquals(1, sent.size());
+        assertEquals("1:a\nb", sent.get(0));
+
+        c.flush(2L);
+        c.flush(3L); //nothing queued
+        assertEquals(2, sent.size());
+        assertEquals("2:x", sent.get(1));
+
+        assertEquals(3, c.getQueuedCount());
+        assertEquals(2, c.getSentCount());
+        assertEquals(1, c.getSavedCount());
+    }
+
+    @Test
+    void removesDrainedChannels() {
+        for (long id = 0; id < 100; id++){
+            c.send(id, "a");
+        }
+        assertEquals(100, c.getPendingChannelCount());
+
+        for (long id = 0; id < 100; id++){
+            c.flush(id);
+        }
+        assertEquals(0, c.getPendingChannelCount());
+        assertEquals(100, sent.size());
+
+        //Texts after a flush are still sent
+        c.send(1L, "b");
+        assertEquals(1, c.getPendingChannelCount());
+        c.flush(1L);
+        assertEquals("1:b", sent.get(100));
+        assertEquals(0, c.getPendingChannelCount());
+    }
+
+    @Test
+    void splitsLongMessages() {
+        String half = new String(new char[1200]).replace('\0', 'a');
+        c.send(1L, half);
+        c.send(1L, half);
+        c.send(1L, "b");
+        c.flush(1L);
+
+        assertEquals(2, sent.size());
+        assertEquals("1:" + half, sent.get(0));
+        assertEquals("1:" + half + "\nb", sent.get(1));
+        for (String message : sent){
+            assertTrue(message.length() - 2 <= MessageCoalescer.MAX_MESSAGE_LENGTH);
+        }
+    }
+
+    @Test
+    void flushesAfterWindow() throws InterruptedException {
+        c = new MessageCoalescer<Long>(id -> id, (id, message) -> sent.add(id + ":" + message),
+                50, TimeUnit.MILLISECONDS, scheduler);
+        c.send(1L, "a");
+        c.send(1L, "b");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.isEmpty() && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(1, sent.size());
+        assertEquals("1:a\nb", sent.get(0));
+
+        //Next text starts a new window
+        c.send(1L, "c");
+        c.flush(1L);
+        assertEquals("1:c", sent.get(1));
+        assertEquals(0, c.getPendingChannelCount());
+    }
+}
@@ -0,0 +1,70 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.Metrics;
+import lolcatloyal.ArtBot.MetricsServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServerTest {
+    private Metrics metrics;
+    private MetricsServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        metrics = new Metrics();
+        server = new MetricsServer(metrics, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void scrape() throws Exception {
+        metrics.counter("artbot_links_added_total").add(2);
+
+        HttpURLConnection connection = open(MetricsServer.PATH);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/plain"));
+        assertEquals(metrics.render(), read(connection.getInputStream()));
+
+        //Rendered per request
+        metrics.counter("artbot_links_added_total").increment();
+        assertTrue(read(open(MetricsServer.PATH).getInputStream()).contains("artbot_links_added_total 3\n"));
+    }
+
+    @Test
+    void onlyGet() throws Exception {
+        HttpURLConnection connection = open(MetricsServer.PATH);
+        connection.setRequestMethod("POST");
+        assertEquals(405, connection.getResponseCode());
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+    }
+
+    private static String read(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try {
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)){
+                out.write(buffer, 0, n);
+            }
+        }
+        finally {
+            in.close();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
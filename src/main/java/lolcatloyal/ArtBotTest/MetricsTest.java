@@ -0,0 +1,91 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.Metrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private Metrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new Metrics();
+    }
+
+    @Test
+    void sameNameSameMetric() {
+        assertSame(metrics.histogram("h_seconds"), metrics.histogram("h_seconds"));
+        assertSame(metrics.counter("c_total"), metrics.counter("c_total"));
+        assertNotSame(metrics.counter("c_total"), metrics.counter("d_total"));
+    }
+
+    @Test
+    void render() {
+        metrics.counter("artbot_links_added_total").add(3);
+        AtomicLong sessions = new AtomicLong(2);
+        metrics.gauge("artbot_display_sessions", sessions::get);
+        metrics.histogram("artbot_command_add_seconds").record(TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.histogram("artbot_command_add_seconds").record(TimeUnit.MILLISECONDS.toNanos(4));
+
+        String text = metrics.render();
+        assertTrue(text.contains("# TYPE artbot_links_added_total counter\nartbot_links_added_total 3\n"));
+        assertTrue(text.contains("# TYPE artbot_display_sessions gauge\nartbot_display_sessions 2\n"));
+        assertTrue(text.contains("# TYPE artbot_command_add_seconds summary\n"));
+        assertTrue(text.contains("artbot_command_add_seconds{quantile=\"0.5\"} "));
+        assertTrue(text.contains("artbot_command_add_seconds_sum 0.006\n"));
+        assertTrue(text.contains("artbot_command_add_seconds_count 2\n"));
+        assertTrue(text.contains("artbot_command_add_seconds_max 0.004\n"));
+
+        //Gauges are read when rendered
+        sessions.set(5);
+        assertTrue(metrics.render().contains("artbot_display_sessions 5\n"));
+    }
+
+    @Test
+    void attributes() throws Exception {
+        metrics.counter("removals_total").increment();
+        metrics.gauge("artists", () -> 7);
+        metrics.histogram("show_seconds").record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertEquals(1L, metrics.getAttribute("removals_total"));
+        assertEquals(7L, metrics.getAttribute("artists"));
+        assertEquals(1L, metrics.getAttribute("show_seconds_count"));
+        assertEquals(0.5, (Double) metrics.getAttribute("show_seconds_max"), 1e-9);
+        assertEquals(0.5, (Double) metrics.getAttribute("show_seconds_mean"), 1e-9);
+        assertThrows(AttributeNotFoundException.class, () -> metrics.getAttribute("show_seconds_p42"));
+        assertThrows(AttributeNotFoundException.class, () -> metrics.getAttribute("missing"));
+        assertThrows(ReflectionException.class, () -> metrics.invoke("reset", new Object[0], new String[0]));
+
+        //2 plain attributes + 6 per histogram
+        MBeanAttributeInfo[] info = metrics.getMBeanInfo().getAttributes();
+        assertEquals(8, info.length);
+        assertEquals(2, metrics.getAttributes(new String[] {"artists", "missing", "removals_total"}).size());
+    }
+
+    @Test
+    void registerMBean() throws Exception {
+        String name = "lolcatloyal.ArtBotTest:type=MetricsTest";
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        metrics.counter("adds_total").add(4);
+
+        metrics.registerMBean(name);
+        try {
+            assertEquals(4L, server.getAttribute(new ObjectName(name), "adds_total"));
+            assertThrows(Exception.class, () -> new Metrics().registerMBean(name));
+        }
+        finally {
+            server.unregisterMBean(new ObjectName(name));
+        }
+    }
+}
@@ -3,7 +3,10 @@ package lolcatloyal.ArtBotTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.*;
+import lolcatloyal.ArtBot.MultiMapSnapshot;
 import lolcatloyal.ArtBot.MultiValueMap;
 
 /**
@@ -110,6 +113,25 @@ class MultiValueMapTest {
         assertNull(m.getValuesForKey(key1));
     }
 
+    @Test
+    void valueCount() {
+        assertEquals(0, m.valueCount());
+
+        for (String value : values1){
+            m.addValue(key1, value);
+            m.addValue(key2, value);
+        }
+        m.addValue(key1, values1[0]); //duplicate
+        assertEquals(6, m.valueCount());
+
+        m.removeValue(key1, values1[1]);
+        assertEquals(5, m.valueCount());
+        m.removeKey(key2);
+        assertEquals(2, m.valueCount());
+        m.clear();
+        assertEquals(0, m.valueCount());
+    }
+
     @Test
     void clear() {
         //Fill up Map
@@ -131,4 +153,129 @@ class MultiValueMapTest {
         assertNull(m.getValuesForKey(key2));
         assertEquals(0, m.getKeys().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void snapshot() {
+        //Empty Map
+        MultiMapSnapshot<String, String> s0 = m.snapshot();
+        assertTrue(s0.isEmpty());
+
+        for (int i = values1.length - 1; i > -1; i--){
+            m.addValue(key1, values1[i]);
+        }
+        m.addValue(key2, values2[0]);
+        MultiMapSnapshot<String, String> s1 = m.snapshot();
+        assertSame(s1, m.snapshot()); //no writes --> same snapshot
+        assertArrayEquals(keys, s1.getKeys().toArray(new String[0]));
+        assertArrayEquals(values1, s1.getValuesForKey(key1).toArray(new String[0]));
+        assertEquals(1, s1.getKeys().indexOf(key2));
+
+        //Writes don't change earlier snapshots
+        m.removeValue(key1, values1[1]);
+        m.removeKey(key2);
+        m.addValue(key1, values2[1]);
+        MultiMapSnapshot<String, String> s2 = m.snapshot();
+        assertTrue(s2.getVersion() > s1.getVersion());
+        assertArrayEquals(keys, s1.getKeys().toArray(new String[0]));
+        assertArrayEquals(values1, s1.getValuesForKey(key1).toArray(new String[0]));
+        assertArrayEquals(new String[]{key1}, s2.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{values2[1], values1[0], values1[2]},
+                s2.getValuesForKey(key1).toArray(new String[0]));
+        assertNull(s2.getValuesForKey(key2));
+
+        //Snapshot matches the map
+        assertArrayEquals(m.getValuesForKey(key1).toArray(new String[0]),
+                s2.getValuesForKey(key1).toArray(new String[0]));
+
+        m.clear();
+        assertTrue(m.snapshot().isEmpty());
+        assertFalse(s2.isEmpty());
+    }
+
+    @Test
+    void snapshotAfterManyWrites() {
+        MultiMapSnapshot<String, String> s0 = m.snapshot();
+
+        //Enough writes that the snapshot is rebuilt rather than updated
+        for (int i = 0; i < 5000; i++){
+            m.addValue("key" + (i % 10), "value" + i);
+            if (i % 3 == 0){
+                m.removeValue("key" + (i % 10), "value" + (i / 2));
+            }
+        }
+        m.removeKey("key4");
+        MultiMapSnapshot<String, String> s1 = m.snapshot();
+
+        assertArrayEquals(m.getKeys().toArray(new String[0]), s1.getKeys().toArray(new String[0]));
+        for (String key : m.getKeys()){
+            assertArrayEquals(m.getValuesForKey(key).toArray(new String[0]),
+                    s1.getValuesForKey(key).toArray(new String[0]));
+        }
+        assertTrue(s0.isEmpty());
+
+        //Small updates after a rebuild
+        m.addValue("key0", "value5000");
+        assertEquals("value5000", m.snapshot().getValuesForKey("key0").get(0));
+        assertFalse(s1.getValuesForKey("key0").contains("value5000"));
+    }
+
+    @Test
+    void getKeysForValue() {
+        //Empty Map
+        assertFalse(m.containsValue(values1[0]));
+        assertTrue(m.getKeysForValue(values1[0]).isEmpty());
+
+        m.addValue(key1, values1[0]);
+        m.addValue(key1, values1[1]);
+        assertTrue(m.containsValue(values1[0]));
+        assertArrayEquals(new String[]{key1}, m.getKeysForValue(values1[0]).toArray(new String[0]));
+
+        //Value shared between Keys
+        m.addValue(key2, values1[0]);
+        assertArrayEquals(keys, m.getKeysForValue(values1[0]).toArray(new String[0]));
+        m.removeValue(key1, values1[0]);
+        assertArrayEquals(new String[]{key2}, m.getKeysForValue(values1[0]).toArray(new String[0]));
+
+        //Index follows removeKey and clear
+        m.removeKey(key2);
+        assertFalse(m.containsValue(values1[0]));
+        assertTrue(m.containsValue(values1[1]));
+        m.clear();
+        assertFalse(m.containsValue(values1[1]));
+    }
+
+    @Test
+    void addAll() {
+        Map<String, List<String>> values = new TreeMap<String, List<String>>();
+        values.put(key1, Arrays.asList(values1[0], values1[1], values1[0]));
+        values.put(key2, Collections.<String>emptyList());
+
+        //Same order as addValue, duplicates skipped, empty Keys not added
+        assertEquals(2, m.addAll(values));
+        assertArrayEquals(new String[]{key1}, m.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{values1[1], values1[0]}, m.getValuesForKey(key1).toArray(new String[0]));
+        assertTrue(m.containsValue(values1[1]));
+
+        values.put(key1, Arrays.asList(values1[1], values1[2]));
+        assertEquals(1, m.addAll(values));
+        assertArrayEquals(new String[]{values1[2], values1[1], values1[0]},
+                m.snapshot().getValuesForKey(key1).toArray(new String[0]));
+    }
+
+    @Test
+    void keyAt() {
+        for (int i = 0; i < 100; i++){
+            m.addValue(String.format("key%03d", i), values1[0]);
+        }
+        assertEquals("key000", m.keyAt(0));
+        assertEquals("key057", m.keyAt(57));
+        assertEquals(57, m.indexOfKey("key057"));
+        assertEquals(-1, m.indexOfKey("missing"));
+        assertThrows(IndexOutOfBoundsException.class, () -> m.keyAt(100));
+
+        //Ranks follow writes
+        m.removeKey("key000");
+        assertEquals("key001", m.keyAt(0));
+        assertEquals(56, m.indexOfKey("key057"));
+    }
+}
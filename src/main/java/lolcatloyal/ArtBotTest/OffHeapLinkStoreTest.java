@@ -0,0 +1,154 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.MultiMapSnapshot;
+import lolcatloyal.ArtBot.OffHeapLinkStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for OffHeapLinkStore's methods.
+ */
+@SuppressWarnings("Convert2Diamond")
+class OffHeapLinkStoreTest {
+    private OffHeapLinkStore m;
+    private final String key1 = "https://twitter.com/alice";
+    private final String key2 = "https://twitter.com/bob";
+    private final String[] values1 = {
+            "https://fxtwitter.com/alice/status/3",
+            "https://fxtwitter.com/alice/status/2",
+            "https://fxtwitter.com/alice/status/1"};
+    private final String value2 = "Any String, even \u00e9mojis \ud83c\udfa8";
+
+    @BeforeEach
+    void setUp() {
+        m = new OffHeapLinkStore();
+    }
+
+    @Test
+    void addValue() {
+        //Add oldest first --> read back in LIFO order
+        for (int i = values1.length - 1; i > -1; i--){
+            assertTrue(m.addValue(key1, values1[i]));
+        }
+        assertArrayEquals(values1, m.getValuesForKey(key1).toArray(new String[0]));
+
+        //Duplicates fail, but the same Value can go under another Key
+        assertFalse(m.addValue(key1, values1[0]));
+        assertTrue(m.addValue(key2, values1[0]));
+        assertTrue(m.addValue(key2, value2));
+        assertEquals(value2, m.getValuesForKey(key2).get(0));
+        assertArrayEquals(new String[]{key1, key2}, m.getKeysForValue(values1[0]).toArray(new String[0]));
+        assertEquals(5, m.valueCount());
+    }
+
+    @Test
+    void removeValue() {
+        assertFalse(m.removeValue(key1, values1[0]));
+        for (String value : values1){
+            m.addValue(key1, value);
+        }
+        m.addValue(key2, values1[1]);
+
+        assertTrue(m.removeValue(key1, values1[1]));
+        assertFalse(m.removeValue(key1, values1[1]));
+        assertArrayEquals(new String[]{values1[2], values1[0]}, m.getValuesForKey(key1).toArray(new String[0]));
+        assertTrue(m.containsValue(values1[1])); //still under key2
+
+        //Last Value removed --> Key removed
+        assertTrue(m.removeValue(key2, values1[1]));
+        assertNull(m.getValuesForKey(key2));
+        assertFalse(m.containsValue(values1[1]));
+    }
+
+    @Test
+    void removeKeyAndClear() {
+        for (String value : values1){
+            m.addValue(key1, value);
+        }
+        m.addValue(key2, value2);
+
+        assertTrue(m.removeKey(key1));
+        assertFalse(m.removeKey(key1));
+        assertFalse(m.containsValue(values1[0]));
+        assertArrayEquals(new String[]{key2}, m.getKeys().toArray(new String[0]));
+        assertArrayEquals(new String[]{key2}, m.snapshot().getKeys().toArray(new String[0]));
+
+        m.clear();
+        assertTrue(m.isEmpty());
+        assertEquals(0, m.valueCount());
+        assertTrue(m.addValue(key1, values1[0]));
+    }
+
+    @Test
+    void snapshotFollowsChanges() {
+        Random random = new Random(13);
+        MultiMapSnapshot<String, String> previous = m.snapshot();
+        List<List<String>> previousContents = CompactLinkStoreTest.contentsOf(previous);
+
+        //Small rounds are applied change by change, large ones in bulk or by a rebuild
+        for (int round = 0; round < 40; round++){
+            int changes = (round % 4 == 3) ? 1500 : 1 + random.nextInt(50);
+            for (int i = 0; i < changes; i++){
+                String key = "https://twitter.com/artist" + random.nextInt(20);
+                String value = value2 + random.nextInt(3000);
+                int op = random.nextInt(20);
+                if (op < 12){
+                    m.addValue(key, value);
+                }
+                else if (op < 18){
+                    List<String> values = m.getValuesForKey(key);
+                    m.removeValue(key, (values == null || op % 2 == 0) ? value : values.get(random.nextInt(values.size())));
+                }
+                else if (op < 19 || round % 10 != 9){
+                    m.removeKey(key);
+                }
+                else {
+                    m.clear();
+                }
+            }
+
+            MultiMapSnapshot<String, String> snapshot = m.snapshot();
+            assertEquals(CompactLinkStoreTest.contentsOf(m), CompactLinkStoreTest.contentsOf(snapshot), "round " + round);
+            assertEquals(previousContents, CompactLinkStoreTest.contentsOf(previous), "round " + round); //old snapshot unchanged
+            previous = snapshot;
+            previousContents = CompactLinkStoreTest.contentsOf(snapshot);
+        }
+    }
+
+    @Test
+    void compaction() {
+        //Enough removed Values to fill a chunk with garbage
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        Random random = new Random(7);
+        for (int i = 0; i < 400000; i++){
+            String key = "https://twitter.com/artist" + random.nextInt(100);
+            String value = "https://fxtwitter.com/artist/status/" + (1500000000000000000L + i);
+            m.addValue(key, value);
+            expected.put(value, 1);
+        }
+        long reserved = m.offHeapBytes();
+        for (int i = 0; i < 350000; i++){
+            String value = "https://fxtwitter.com/artist/status/" + (1500000000000000000L + i);
+            String key = m.getKeysForValue(value).iterator().next();
+            assertTrue(m.removeValue(key, value));
+            expected.remove(value);
+        }
+
+        assertTrue(m.offHeapBytes() < reserved);
+        assertEquals(expected.size(), m.valueCount());
+        for (String key : m.getKeys()){
+            for (String value : m.getValuesForKey(key)){
+                assertNotNull(expected.remove(value));
+                assertTrue(m.containsValue(value));
+            }
+        }
+        assertTrue(expected.isEmpty());
+    }
+}
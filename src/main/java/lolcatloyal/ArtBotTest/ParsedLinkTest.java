@@ -0,0 +1,213 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.LinkUtil;
+import lolcatloyal.ArtBot.ParsedLink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ParsedLink and the LinkUtil methods built on it.
+ */
+class ParsedLinkTest {
+    //The regex LinkUtil.determineLinkType() used before ParsedLink
+    private static final Pattern TWIT_PATTERN = Pattern.compile("^https://twitter\\.com/.+/status/.+");
+    private static final Pattern FX_PATTERN = Pattern.compile("^https://fxtwitter\\.com/.+/status/.+");
+
+    //Links the regex knew the hosts of, which ParsedLink still agrees on
+    private static final String[] LINKS = {
+            "https://twitter.com/artist/status/123",
+            "https://fxtwitter.com/artist/status/123",
+            "https://twitter.com/artist/status/123?s=20",
+            "https://twitter.com/artist/status/123/photo/1",
+            "https://twitter.com/artist/status/abc",
+            "https://twitter.com/a.b/status/123",
+            "https://twitter.com/a/b/status/123",
+            "https://twitter.com//status/123",
+            "https://twitter.com/artist/status/",
+            "https://twitter.com/artist/status",
+            "https://twitter.com/artist",
+            "https://twitter.com/",
+            "https://twitter.com/artist\n/status/1",
+            "https://twitter.com/artist/status/1\nmore",
+            "https://twitter.com/artist/status/\n1",
+            "https://twitter.com/artist/status/1234567890123456789",
+            "https://twitter.com/artist/status/12x",
+            "https://twitter.co/artist/status/1",
+            "https://fxtwitter.com/artist/status/status/1",
+            "",
+            "nonsense"
+    };
+
+    private ParsedLink parsed;
+
+    @BeforeEach
+    void setUp() {
+        parsed = new ParsedLink();
+    }
+
+    @Test
+    void parse() {
+        assertTrue(parsed.parse("  https://twitter.com/artist/status/123?s=20 thanks!"));
+        assertEquals(2, parsed.getStart());
+        assertEquals(44, parsed.getEnd());
+        assertEquals(ParsedLink.TWITTER, parsed.getHost());
+        assertEquals("artist", parsed.getText().subSequence(parsed.getHandleStart(), parsed.getHandleEnd()));
+        assertTrue(parsed.isCanonical());
+        assertEquals(123, parsed.getStatusId());
+
+        assertTrue(parsed.parse("https://fxtwitter.com/a.b/status/x"));
+        assertEquals(ParsedLink.FX, parsed.getType());
+        assertFalse(parsed.isCanonical());
+        assertEquals(-1, parsed.getStatusId());
+
+        assertFalse(parsed.parse("https://twitter.com/artist"));
+        assertEquals(ParsedLink.TWITTER, parsed.getHost());
+        assertEquals(ParsedLink.INVALID, parsed.getType());
+
+        assertFalse(parsed.parse("   "));
+        assertEquals(parsed.getStart(), parsed.getEnd());
+    }
+
+    @Test
+    void sameAsRegex() {
+        for (String link : LINKS){
+            assertEquals(regexLinkType(link), LinkUtil.determineLinkType(link), link);
+        }
+
+        Random random = new Random(42);
+        String[] parts = {"https://", "twitter.com/", "fxtwitter.com/", "/status/", "/", "a", "1", "\n", " ", "?"};
+        for (int i = 0; i < 100000; i++){
+            StringBuilder link = new StringBuilder();
+            for (int j = random.nextInt(8); j >= 0; j--){
+                link.append(parts[random.nextInt(parts.length)]);
+            }
+            assertEquals(regexLinkType(link.toString()), LinkUtil.determineLinkType(link.toString()), link.toString());
+        }
+    }
+
+    @Test
+    void variants() {
+        String[] links = {
+                "https://twitter.com/Artist/status/123",
+                "https://x.com/artist/status/123?s=20",
+                "https://www.x.com/artist/status/123",
+                "https://mobile.twitter.com/ARTIST/status/123/photo/1",
+                "HTTPS://Twitter.COM/artist/status/123",
+                "https://fxtwitter.com/artist/status/123",
+                "https://vxtwitter.com/artist/status/123#m",
+                "https://fixupx.com/artist/status/123",
+                "https://fixvx.com/artist/status/123"
+        };
+
+        for (String link : links){
+            assertTrue(parsed.parse(link), link);
+            assertEquals(123, parsed.getStatusId(), link);
+            assertEquals("https://fxtwitter.com/artist/status/123", LinkUtil.canonicalizePostLink(link), link);
+            assertEquals("https://twitter.com/artist", LinkUtil.buildCanonicalProfileLink(parsed), link);
+        }
+        assertEquals(ParsedLink.TWITTER, LinkUtil.determineLinkType(links[2]));
+        assertEquals(ParsedLink.FX, LinkUtil.determineLinkType(links[7]));
+
+        //Not supported
+        assertFalse(parsed.parse("https://mobile.fxtwitter.com/artist/status/123"));
+        assertFalse(parsed.parse("https://notx.com/artist/status/123"));
+        assertFalse(parsed.parse("http://twitter.com/artist/status/123"));
+        assertFalse(parsed.parse("https://x.company/artist/status/123"));
+    }
+
+    @Test
+    void find() {
+        String message = "-add https://twitter.com/a/status/1\n<HTTPS://x.com/b/status/2>, " +
+                "||https://fxtwitter.com/c/status/3|| [art](https://twitter.com/d) httpfoo";
+
+        assertTrue(parsed.find(message, 0));
+        assertEquals(1, parsed.getStatusId());
+        assertTrue(parsed.find(message, parsed.getEnd()));
+        assertEquals(2, parsed.getStatusId()); //"," after '>' is a word of its own, skipped
+        assertTrue(parsed.find(message, parsed.getEnd()));
+        assertEquals(3, parsed.getStatusId());
+        assertTrue(parsed.find(message, parsed.getEnd()));
+        assertEquals("https://twitter.com/d", message.substring(parsed.getStart(), parsed.getEnd()));
+        assertFalse(parsed.isPost());
+        assertTrue(parsed.find(message, parsed.getEnd()));
+        assertEquals(ParsedLink.INVALID, parsed.getHost());
+        assertFalse(parsed.find(message, parsed.getEnd()));
+        assertFalse(parsed.find("", 0));
+    }
+
+    @Test
+    void trimLink() {
+        String[] arguments = {"https://twitter.com/a/status/1", "  https://twitter.com/a/status/1 hi",
+                "link\t", "link\tmore text", "\n link", "", "   ", "a  b"};
+
+        for (String argument : arguments){
+            assertEquals(argument.trim().split(" ")[0], LinkUtil.trimLink(argument), argument);
+        }
+    }
+
+    @Test
+    void canonicalizePostLink() {
+        assertEquals("https://fxtwitter.com/artist/status/123",
+                LinkUtil.canonicalizePostLink("https://twitter.com/artist/status/123/photo/1"));
+        assertEquals("https://fxtwitter.com/artist/status/123",
+                LinkUtil.canonicalizePostLink("https://fxtwitter.com/artist/status/0123#m"));
+        assertEquals("https://fxtwitter.com/artist_1/status/123",
+                LinkUtil.canonicalizePostLink("https://twitter.com/Artist_1/status/123"));
+        assertNull(LinkUtil.canonicalizePostLink("https://twitter.com/a.b/status/123"));
+        assertNull(LinkUtil.canonicalizePostLink("https://twitter.com/artist/status/12x"));
+        assertEquals("https://fxtwitter.com/artist/status/123456789012345678",
+                LinkUtil.canonicalizePostLink("https://twitter.com/artist/status/123456789012345678"));
+        assertEquals("https://fxtwitter.com/artist/status/1234567890123456789",
+                LinkUtil.canonicalizePostLink("https://twitter.com/artist/status/1234567890123456789?s=20"));
+    }
+
+    @Test
+    void longStatusIds() {
+        assertTrue(parsed.parse("https://x.com/artist/status/1700000000000000000/photo/1"));
+        assertEquals(1700000000000000000L, parsed.getStatusId());
+        assertTrue(parsed.parse("https://twitter.com/artist/status/9223372036854775807"));
+        assertEquals(Long.MAX_VALUE, parsed.getStatusId());
+
+        //Too big for a long --> still a post link, but not canonical
+        assertTrue(parsed.parse("https://twitter.com/artist/status/9223372036854775808"));
+        assertFalse(parsed.isCanonical());
+        assertTrue(parsed.parse("https://twitter.com/artist/status/12345678901234567890"));
+        assertFalse(parsed.isCanonical());
+        assertTrue(parsed.parse("https://twitter.com/artist/status/99999999999999999999"));
+        assertFalse(parsed.isCanonical());
+        assertNull(LinkUtil.canonicalizePostLink("https://twitter.com/artist/status/9223372036854775808"));
+
+        //No post has status id 0 --> still a post link, but not canonical
+        assertTrue(parsed.parse("https://twitter.com/artist/status/0"));
+        assertTrue(parsed.isPost());
+        assertFalse(parsed.isCanonical());
+        assertTrue(parsed.parse("https://twitter.com/artist/status/000?s=20"));
+        assertFalse(parsed.isCanonical());
+    }
+
+    @Test
+    void buildLinks() {
+        for (String link : LINKS){
+            if (LinkUtil.determineLinkType(link) != -1){
+                assertEquals(LinkUtil.TWIT_PROFILE_PREFIX + link.split("/")[3], LinkUtil.buildTwitProfileLink(link), link);
+            }
+        }
+
+        assertEquals("https://fxtwitter.com/a/status/1", LinkUtil.twitToFXLink("https://twitter.com/a/status/1"));
+    }
+
+    private static int regexLinkType(String link){
+        if (TWIT_PATTERN.matcher(link).find()){
+            return 0;
+        }
+        else if (FX_PATTERN.matcher(link).find()){
+            return 1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,127 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.PartitionTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionTableTest {
+    private long now; //fake clock, in nanoseconds
+    private List<Long> loads; //ids loaded, in order
+    private PartitionTable<FakePartition> t;
+
+    private static final class FakePartition implements Closeable {
+        private final long id;
+        private boolean closed;
+
+        private FakePartition(long id){
+            this.id = id;
+        }
+
+        @Override
+        public void close(){
+            closed = true;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        loads = new ArrayList<Long>();
+        t = new PartitionTable<FakePartition>(id -> {
+            loads.add(id);
+            return new FakePartition(id);
+        }, 10, TimeUnit.SECONDS, () -> now);
+    }
+
+    @Test
+    void loadsLazily() throws IOException {
+        assertEquals(0, t.size());
+
+        FakePartition a = t.acquire(1L);
+        assertEquals(1L, a.id);
+        assertSame(a, t.acquire(1L)); //already loaded
+        FakePartition b = t.acquire(2L);
+
+        assertNotSame(a, b);
+        assertEquals(2, t.size());
+        assertEquals(2, loads.size());
+        assertEquals(2, t.loaded().size());
+    }
+
+    @Test
+    void evictIdle() throws IOException {
+        FakePartition a = t.acquire(1L);
+        t.release(1L);
+        FakePartition b = t.acquire(2L);
+        t.release(2L);
+
+        //Not idle long enough
+        now += TimeUnit.SECONDS.toNanos(9);
+        t.acquire(2L);
+        t.release(2L);
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertEquals(1, t.evictIdle());
+        assertTrue(a.closed);
+        assertFalse(b.closed);
+        assertEquals(1, t.size());
+
+        //Reloaded on next use
+        FakePartition reloaded = t.acquire(1L);
+        assertNotSame(a, reloaded);
+        assertFalse(reloaded.closed);
+        assertEquals(3, loads.size()); //1, 2, then 1 again
+    }
+
+    @Test
+    void inUseNotEvicted() throws IOException {
+        FakePartition a = t.acquire(1L);
+        t.acquire(1L);
+        t.release(1L);
+
+        now += TimeUnit.SECONDS.toNanos(60);
+        assertEquals(0, t.evictIdle()); //still held once
+        assertFalse(a.closed);
+
+        t.release(1L);
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertEquals(1, t.evictIdle());
+        assertTrue(a.closed);
+    }
+
+    @Test
+    void closeAll() throws IOException {
+        FakePartition a = t.acquire(1L);
+        t.release(1L);
+        FakePartition b = t.acquire(2L);
+
+        assertEquals(1, t.closeAll()); //b still in use
+        assertTrue(a.closed);
+        assertFalse(b.closed);
+        assertEquals(1, t.size());
+    }
+
+    @Test
+    void failedLoad() throws IOException {
+        PartitionTable<FakePartition> failing = new PartitionTable<FakePartition>(id -> {
+            if (loads.add(id) && loads.size() == 1){
+                throw new IOException("expected by test");
+            }
+            return new FakePartition(id);
+        }, 10, TimeUnit.SECONDS, () -> now);
+
+        assertThrows(IOException.class, () -> failing.acquire(1L));
+        assertEquals(0, failing.size());
+
+        //Tried again on next use
+        assertEquals(1L, failing.acquire(1L).id);
+        assertEquals(1, failing.size());
+    }
+}
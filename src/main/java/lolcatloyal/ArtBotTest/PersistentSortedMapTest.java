@@ -0,0 +1,88 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.PersistentSortedMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PersistentSortedMap's methods.
+ */
+@SuppressWarnings("Convert2Diamond")
+class PersistentSortedMapTest {
+
+    @Test
+    void putAndGet() {
+        PersistentSortedMap<String, Integer> empty = PersistentSortedMap.empty();
+        PersistentSortedMap<String, Integer> m1 = empty.put("b", 2).put("a", 1).put("c", 3);
+
+        assertEquals(0, empty.size());
+        assertNull(empty.get("a"));
+        assertEquals(3, m1.size());
+        assertEquals(Integer.valueOf(1), m1.get("a"));
+        assertNull(m1.get("d"));
+
+        //Replace value --> old map unchanged
+        PersistentSortedMap<String, Integer> m2 = m1.put("a", 10);
+        assertEquals(Integer.valueOf(1), m1.get("a"));
+        assertEquals(Integer.valueOf(10), m2.get("a"));
+        assertEquals(3, m2.size());
+    }
+
+    @Test
+    void remove() {
+        PersistentSortedMap<String, Integer> m1 = PersistentSortedMap.<String, Integer>empty()
+                .put("a", 1).put("b", 2).put("c", 3);
+
+        assertSame(m1, m1.remove("d"));
+
+        PersistentSortedMap<String, Integer> m2 = m1.remove("b");
+        assertEquals(2, m2.size());
+        assertNull(m2.get("b"));
+        assertEquals(Integer.valueOf(2), m1.get("b"));
+        assertTrue(m2.remove("a").remove("c").isEmpty());
+    }
+
+    @Test
+    void positions() {
+        PersistentSortedMap<Integer, String> m = PersistentSortedMap.empty();
+        for (int i = 99; i >= 0; i--){
+            m = m.put(i * 2, "v" + i);
+        }
+
+        for (int i = 0; i < 100; i++){
+            assertEquals(Integer.valueOf(i * 2), m.keyAt(i));
+            assertEquals("v" + i, m.valueAt(i));
+            assertEquals(i, m.indexOf(i * 2));
+        }
+        assertEquals(-1, m.indexOf(1));
+        assertEquals(50, m.keys().indexOf(100));
+        assertThrows(IndexOutOfBoundsException.class, () -> PersistentSortedMap.empty().keyAt(0));
+    }
+
+    @Test
+    void matchesTreeMap() {
+        Random random = new Random(42);
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        PersistentSortedMap<Integer, Integer> m = PersistentSortedMap.empty();
+
+        //Random puts and removes, checking contents after each
+        for (int i = 0; i < 2000; i++){
+            int key = random.nextInt(200);
+            if (random.nextBoolean()){
+                expected.put(key, i);
+                m = m.put(key, i);
+            }
+            else {
+                expected.remove(key);
+                m = m.remove(key);
+            }
+            assertEquals(expected.size(), m.size());
+        }
+
+        assertEquals(new ArrayList<Integer>(expected.keySet()), m.keys());
+        assertEquals(new ArrayList<Integer>(expected.values()), m.values());
+    }
+}
@@ -0,0 +1,154 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.LinkUtil;
+import lolcatloyal.ArtBot.MultiMapSnapshot;
+import lolcatloyal.ArtBot.MultiValueMap;
+import lolcatloyal.ArtBot.SearchableMultiMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SearchableMultiMap.
+ */
+@SuppressWarnings("Convert2Diamond")
+class SearchableMultiMapTest {
+    private final String alice = "https://twitter.com/alice";
+    private final String aliceUpper = "https://twitter.com/Alice";
+    private final String alicia = "https://twitter.com/alicia_art";
+    private final String bob = "https://twitter.com/bob";
+
+    @Test
+    void searchableMultiMap() {
+        MultiValueMap<String, String> collection = new MultiValueMap<String, String>();
+        collection.addValue(alice, "https://fxtwitter.com/alice/status/1");
+        SearchableMultiMap m = new SearchableMultiMap(collection);
+
+        //Existing Keys are indexed
+        assertEquals(Collections.singletonList(alice), m.searchHandles("al", 10));
+
+        m.addValue(alicia, "https://fxtwitter.com/alicia_art/status/2");
+        m.addValue(alicia, "https://fxtwitter.com/alicia_art/status/3");
+        assertEquals(Arrays.asList(alice, alicia), m.searchHandles("al", 10));
+
+        //Key stays until its last Value is removed
+        m.removeValue(alicia, "https://fxtwitter.com/alicia_art/status/2");
+        assertEquals(Arrays.asList(alice, alicia), m.searchHandles("al", 10));
+        m.removeValue(alicia, "https://fxtwitter.com/alicia_art/status/3");
+        assertEquals(Collections.singletonList(alice), m.searchHandles("al", 10));
+
+        m.addAll(Collections.singletonMap(bob, Collections.singletonList("https://fxtwitter.com/bob/status/4")));
+        assertEquals(Collections.singletonList(bob), m.searchHandles("b", 10));
+        m.removeKey(bob);
+        assertTrue(m.searchHandles("b", 10).isEmpty());
+
+        m.clear();
+        assertTrue(m.searchHandles("", 10).isEmpty());
+        assertTrue(collection.isEmpty());
+    }
+
+    @Test
+    void statusIdDedupe() {
+        MultiValueMap<String, String> collection = new MultiValueMap<String, String>();
+        collection.addValue(aliceUpper, "https://fxtwitter.com/Alice/status/1?s=20"); //stored before canonical links
+        SearchableMultiMap m = new SearchableMultiMap(collection);
+
+        //Same post under another form or Key --> duplicate
+        assertFalse(m.addValue(alice, "https://fxtwitter.com/alice/status/1"));
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/2"));
+        assertFalse(m.addValue(bob, "https://fxtwitter.com/bob/status/2"));
+
+        Map<String, List<String>> batch = new TreeMap<String, List<String>>();
+        batch.put(alice, Arrays.asList("https://fxtwitter.com/alice/status/3", "https://fxtwitter.com/alice/status/1"));
+        batch.put(bob, Arrays.asList("https://fxtwitter.com/bob/status/3", "https://fxtwitter.com/bob/status/4"));
+        assertEquals(2, m.addAll(batch)); //status 3 once, status 4
+        assertEquals(4, m.valueCount());
+
+        //Removed posts can be added again
+        m.removeValue(aliceUpper, "https://fxtwitter.com/Alice/status/1?s=20");
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/1"));
+        m.removeKey(bob);
+        assertTrue(m.addValue(bob, "https://fxtwitter.com/bob/status/4"));
+        m.clear();
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/2"));
+    }
+
+    @Test
+    void statusIdDedupeLongIds() {
+        SearchableMultiMap m = new SearchableMultiMap(new MultiValueMap<String, String>());
+
+        //Current ids have 19 digits
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/1712345678901234567"));
+        assertFalse(m.addValue(alice, "https://fxtwitter.com/alice/status/1712345678901234567?s=20"));
+        assertFalse(m.addValue(bob, "https://fxtwitter.com/bob/status/1712345678901234567"));
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/1712345678901234568"));
+
+        //Ids too big for a long can't be compared, so aren't deduplicated
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/99999999999999999999"));
+        assertTrue(m.addValue(bob, "https://fxtwitter.com/bob/status/99999999999999999999"));
+        assertEquals(4, m.valueCount());
+    }
+
+    @Test
+    void statusIdZero() {
+        SearchableMultiMap m = new SearchableMultiMap(new MultiValueMap<String, String>());
+
+        //Not a post --> not canonical, so -add and imports reject it like any other non-canonical link
+        assertNull(LinkUtil.canonicalizePostLink("https://twitter.com/alice/status/0"));
+        assertNull(LinkUtil.canonicalizePostLink("https://twitter.com/alice/status/000"));
+
+        //Stored directly, it isn't deduplicated, as other non-canonical links aren't
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/0"));
+        assertTrue(m.addValue(bob, "https://fxtwitter.com/bob/status/0"));
+        assertTrue(m.addValue(alice, "https://fxtwitter.com/alice/status/00"));
+        assertEquals(3, m.valueCount());
+    }
+
+    @Test
+    void concurrentReads() throws Exception {
+        SearchableMultiMap m = new SearchableMultiMap(new MultiValueMap<String, String>()); //unsynchronized
+        AtomicBoolean done = new AtomicBoolean();
+
+        //One thread writes while this one reads every way
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20000; i++){
+                String key = "https://twitter.com/artist" + (i % 50);
+                m.addValue(key, "https://fxtwitter.com/artist" + (i % 50) + "/status/" + (i + 1));
+                if (i % 3 == 0){
+                    m.removeKey("https://twitter.com/artist" + ((i + 25) % 50));
+                }
+            }
+            done.set(true);
+        });
+        writer.start();
+
+        while (!done.get()){
+            for (String key : m.getKeys()){
+                List<String> values = m.getValuesForKey(key);
+                if (values != null){ //removed since getKeys()
+                    for (String value : values){
+                        assertNotNull(value);
+                    }
+                }
+            }
+            assertNotNull(m.snapshot());
+            assertTrue(m.valueCount() >= 0);
+        }
+        writer.join();
+
+        //Snapshot agrees with the collection once writes stop
+        MultiMapSnapshot<String, String> snapshot = m.snapshot();
+        assertEquals(new ArrayList<String>(m.getKeys()), snapshot.getKeys());
+        for (String key : m.getKeys()){
+            assertEquals(m.getValuesForKey(key), snapshot.getValuesForKey(key));
+        }
+    }
+}
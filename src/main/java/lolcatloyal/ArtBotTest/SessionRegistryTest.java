@@ -0,0 +1,97 @@
+package lolcatloyal.ArtBotTest;
+
+import lolcatloyal.ArtBot.SessionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+    private long now; //fake clock, in nanoseconds
+    private SessionRegistry<String> r;
+
+    @BeforeEach
+    void setUp() {
+        now = 0;
+        r = new SessionRegistry<String>(3, 10, TimeUnit.SECONDS, () -> now);
+    }
+
+    @Test
+    void putAndGet() {
+        r.put(1L, "a");
+        r.put(2L, "b");
+
+        assertEquals("a", r.get(1L));
+        assertEquals("b", r.get(2L));
+        assertNull(r.get(3L));
+        assertEquals(2, r.size());
+
+        //Replace
+        r.put(1L, "c");
+        assertEquals("c", r.get(1L));
+        assertEquals(2, r.size());
+    }
+
+    @Test
+    void remove() {
+        r.put(1L, "a");
+
+        assertEquals("a", r.remove(1L));
+        assertNull(r.remove(1L));
+        assertNull(r.get(1L));
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    void values() {
+        r.put(1L, "a");
+        r.put(2L, "b");
+        r.put(3L, "c");
+        assertEquals(Arrays.asList("a", "b", "c"), r.values());
+
+        //Listing doesn't count as use
+        r.put(4L, "d");
+        assertEquals(Arrays.asList("b", "c", "d"), r.values());
+
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertTrue(r.values().isEmpty());
+    }
+
+    @Test
+    void idleEviction() {
+        r.put(1L, "a");
+        now += TimeUnit.SECONDS.toNanos(6);
+        r.put(2L, "b");
+        now += TimeUnit.SECONDS.toNanos(5);
+
+        //1 has been idle for 11s, 2 for 5s
+        assertNull(r.get(1L));
+        assertEquals("b", r.get(2L));
+
+        //Using 2 resets its idle time
+        now += TimeUnit.SECONDS.toNanos(9);
+        assertEquals("b", r.get(2L));
+        now += TimeUnit.SECONDS.toNanos(10);
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    void capacityEviction() {
+        r.put(1L, "a");
+        r.put(2L, "b");
+        r.put(3L, "c");
+
+        //Touch 1 so 2 is least recently used
+        assertEquals("a", r.get(1L));
+        r.put(4L, "d");
+
+        assertEquals(3, r.size());
+        assertNull(r.get(2L));
+        assertEquals("a", r.get(1L));
+        assertEquals("c", r.get(3L));
+        assertEquals("d", r.get(4L));
+    }
+}